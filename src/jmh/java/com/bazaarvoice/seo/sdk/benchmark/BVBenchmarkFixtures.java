@@ -0,0 +1,93 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.benchmark;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.model.SubjectType;
+
+/**
+ * Realistic inputs shared by the benchmarks.
+ */
+final class BVBenchmarkFixtures {
+
+  private BVBenchmarkFixtures() {
+  }
+
+  static BVConfiguration newConfiguration() {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.CLOUD_KEY, "myshco-3e3001e88d9c32d19a17cafacb81bec7");
+    bvConfiguration.addProperty(BVClientConfig.BV_ROOT_FOLDER, "9344");
+    return bvConfiguration;
+  }
+
+  static BVParameters newParameters(String pageUri) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)");
+    bvParameters.setBaseURI(pageUri);
+    bvParameters.setPageURI(pageUri);
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId("data-gen-696yl2lg1i");
+    return bvParameters;
+  }
+
+  /**
+   * Builds seo content shaped like a review page: an aggregate rating, a
+   * schema.org product scope, reviews with links carrying the page uri
+   * placeholder and pagination, padded with reviews up to the size.
+   *
+   * @param size approximate size in characters.
+   * @return the content.
+   */
+  static String newContent(int size) {
+    StringBuilder sb = new StringBuilder(size + 1024);
+    sb.append("<!--begin-aggregate-rating--><div class=\"bvseo-aggregate\">")
+      .append("<span itemprop=\"ratingValue\">4.6</span> out of ")
+      .append("<span itemprop=\"bestRating\">5</span> based on ")
+      .append("<span itemprop=\"reviewCount\">1234</span> ratings.")
+      .append("</div><!--end-aggregate-rating-->")
+      .append("<!--begin-reviews--><div itemscope itemtype=\"http://schema.org/Product\">");
+    int review = 0;
+    while (sb.length() < size) {
+      review++;
+      sb.append("<div class=\"bvseo-review\" itemprop=\"review\" itemscope ")
+        .append("itemtype=\"http://schema.org/Review\">")
+        .append("<span itemprop=\"name\">Review title ").append(review)
+        .append("</span><div itemprop=\"description\">")
+        .append("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do ")
+        .append("eiusmod tempor incididunt ut labore et dolore magna aliqua. Ut ")
+        .append("enim ad minim veniam, quis nostrud exercitation ullamco laboris.")
+        .append("</div><a href=\"{INSERT_PAGE_URI}bvstate=pg:2/ct:r/rv:")
+        .append(review).append("\">Permalink</a></div>");
+    }
+    sb.append("</div><!--end-reviews--><!--begin-pagination--><div class=\"bvseo-pagination\">");
+    for (int page = 1; page <= 10; page++) {
+      sb.append("<a href=\"{INSERT_PAGE_URI}bvstate=pg:").append(page)
+        .append("/ct:r\">").append(page).append("</a>");
+    }
+    sb.append("</div><!--end-pagination-->");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.benchmark;
+
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.footer.BVFooter;
+import com.bazaarvoice.seo.sdk.footer.BVHTMLFooter;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.url.BVSeoSdkURLBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of rendering the footer appended to every call, with and
+ * without the reveal debug list.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BVFooterBenchmark {
+
+  @Param({"false", "true"})
+  public boolean revealDebug;
+
+  private BVConfiguration bvConfiguration;
+  private BVParameters bvParameters;
+  private BVSeoSdkURLBuilder bvSeoSdkUrl;
+
+  @Setup
+  public void setUp() {
+    bvConfiguration = BVBenchmarkFixtures.newConfiguration();
+    String pageUri = BVPageUri.BVSTATE.getUri();
+    if (revealDebug) {
+      pageUri += "&bvreveal=debug";
+    }
+    bvParameters = BVBenchmarkFixtures.newParameters(pageUri);
+    bvSeoSdkUrl = new BVSeoSdkURLBuilder(bvConfiguration, bvParameters);
+  }
+
+  @Benchmark
+  public String displayFooter() {
+    BVFooter bvFooter = new BVHTMLFooter(bvConfiguration, bvParameters);
+    bvFooter.setBvSeoSdkUrl(bvSeoSdkUrl);
+    bvFooter.addMessage("ERR0018");
+    bvFooter.setExecutionTime(42);
+    return bvFooter.displayFooter("getReviews");
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.benchmark;
+
+/**
+ * Page uri shapes seen in production.
+ */
+public enum BVPageUri {
+  PLAIN("http://www.example.com/store/products/data-gen-696yl2lg1i"),
+  BVSTATE("http://www.example.com/store/products/data-gen-696yl2lg1i" +
+    "?utm_source=feed&bvstate=pg:2/ct:r&color=red"),
+  ESCAPED_FRAGMENT("http://www.example.com/store/products/data-gen-696yl2lg1i" +
+    "?_escaped_fragment_=bvstate%3Dpg%3A3%2Fct%3Aq"),
+  HASHBANG("http://www.example.com/store/products/data-gen-696yl2lg1i" +
+    "#!bvstate=pg:4/ct:r"),
+  LEGACY_BVPAGE("http://www.example.com/store/products/data-gen-696yl2lg1i" +
+    "?bvpage=ctre/id8820/pg2/ord/tbe");
+
+  private final String uri;
+
+  BVPageUri(String uri) {
+    this.uri = uri;
+  }
+
+  String getUri() {
+    return uri;
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.benchmark;
+
+import com.bazaarvoice.seo.sdk.content.BVContentTemplate;
+import com.bazaarvoice.seo.sdk.content.BVContentView;
+import com.bazaarvoice.seo.sdk.util.BVUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the post-processing of fetched content: page uri
+ * substitution, the one-off template split, and rendering a view.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BVPostProcessingBenchmark {
+
+  private static final String BASE_URI =
+    "http://www.example.com/store/products/data-gen-696yl2lg1i?color=red";
+
+  @Param({"20000", "100000", "200000"})
+  public int contentSize;
+
+  private String content;
+  private BVContentTemplate template;
+  private String pageUri;
+
+  @Setup
+  public void setUp() {
+    content = BVBenchmarkFixtures.newContent(contentSize);
+    template = BVContentTemplate.parse(content);
+    pageUri = BVUtility.getPageUri(BASE_URI);
+  }
+
+  @Benchmark
+  public StringBuilder replacePageURIFromContent() {
+    StringBuilder sb = new StringBuilder(content);
+    BVUtility.replacePageURIFromContent(sb, BASE_URI);
+    return sb;
+  }
+
+  @Benchmark
+  public BVContentTemplate parseTemplate() {
+    return BVContentTemplate.parse(content);
+  }
+
+  @Benchmark
+  public StringBuilder renderContent() {
+    StringBuilder sb = new StringBuilder();
+    template.render(sb, BVUtility.getPageUri(BASE_URI));
+    return sb;
+  }
+
+  @Benchmark
+  public StringBuilder renderReviews() {
+    StringBuilder sb = new StringBuilder();
+    template.render(
+      sb,
+      pageUri,
+      template.getSections().select(BVContentView.REVIEWS)
+    );
+    return sb;
+  }
+}
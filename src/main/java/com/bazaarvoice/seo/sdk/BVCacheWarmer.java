@@ -0,0 +1,467 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.http.BVContentFetcher;
+import com.bazaarvoice.seo.sdk.metrics.BVMetrics;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.url.BVSeoSdkURLBuilder;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.text.MessageFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads the seo content of a list of subjects into the content cache ahead
+ * of the crawlers, such as at startup or after new content was published.
+ *
+ * Every subject is resolved to its content uri with
+ * {@link BVSeoSdkURLBuilder} and loaded the way a search bot request loads
+ * it, so concurrent requests for the same content share the load and an open
+ * circuit breaker stops the warm-up from reaching the content host. Content
+ * that is already cached is loaded again and revalidated when it has an ETag
+ * or Last-Modified.
+ *
+ * At most {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#WARM_UP_PARALLELISM}
+ * loads run at once and at most
+ * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#WARM_UP_RATE} loads are
+ * started per second, which keeps room in BVThreadPool for the requests
+ * served meanwhile. Caching must be enabled with
+ * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#CACHE_TTL} for the
+ * loaded content to be kept.
+ */
+public class BVCacheWarmer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BVCacheWarmer.class);
+  private static final String WARM_UP_USER_AGENT = "bvseo-sdk-warm-up";
+  private static final String BV_PAGE = "bvpage";
+  private static final String SITEMAP_LOC = "loc";
+
+  /**
+   * Number of failed subjects kept in the report, the others are only
+   * counted.
+   */
+  static final int MAX_REPORTED_FAILURES = 100;
+
+  private final BVConfiguration bvConfiguration;
+  private final BVContentFetcher contentFetcher;
+  private final BVMetrics metrics;
+  private volatile BVWarmUpListener listener;
+
+  public BVCacheWarmer(BVConfiguration bvConfiguration) {
+    this(bvConfiguration, null, null);
+  }
+
+  /**
+   * Constructor with the content fetcher and metrics of the content service.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param contentFetcher Fetcher for http content, the shared fetcher of the
+   * configuration when null.
+   * @param metrics Receiver of the performance events, none when null.
+   */
+  public BVCacheWarmer(
+    BVConfiguration bvConfiguration,
+    BVContentFetcher contentFetcher,
+    BVMetrics metrics
+  ) {
+    this.bvConfiguration = bvConfiguration;
+    this.contentFetcher = contentFetcher;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param listener receiver of the progress, none when null.
+   */
+  public void setListener(BVWarmUpListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Loads the content of the subjects and waits until every load completed.
+   * Each subject needs its content type and subject type, and a subject id
+   * unless its page uri carries one in a bvstate or bvpage parameter. The
+   * page number defaults to the first page. The subjects are not modified,
+   * and their user agent is ignored: loads are sent with the user agent of
+   * the warm-up.
+   *
+   * The subjects are read as the warm-up proceeds, so they may come from a
+   * lazy source. Interrupting the calling thread stops the warm-up.
+   *
+   * @param subjects the subjects to load.
+   * @return outcome of the warm-up.
+   */
+  public BVWarmUpReport warmUp(Iterator<BVParameters> subjects) {
+    final BVConfigurationSnapshot snapshot =
+      BVConfigurationSnapshot.of(bvConfiguration);
+    final int parallelism = Math.max(1, snapshot.getWarmUpParallelism());
+    int rate = snapshot.getWarmUpRate();
+    long startInterval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) / rate : 0;
+
+    final Progress progress = new Progress();
+    final Semaphore slots = new Semaphore(parallelism);
+    ExecutorService executor = Executors.newFixedThreadPool(
+      parallelism,
+      new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(
+            runnable,
+            "bvseo-sdk-warm-up-" + threadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        }
+      }
+    );
+
+    long startTime = System.currentTimeMillis();
+    long nextStart = System.nanoTime();
+    boolean interrupted = false;
+    try {
+      while (subjects.hasNext()) {
+        final BVParameters bvParameters = subjects.next();
+        TimeUnit.NANOSECONDS.sleep(nextStart - System.nanoTime());
+        nextStart = Math.max(nextStart, System.nanoTime()) + startInterval;
+        slots.acquire();
+        executor.execute(new Runnable() {
+          public void run() {
+            try {
+              warmUp(bvParameters, snapshot, progress);
+            } finally {
+              slots.release();
+            }
+          }
+        });
+      }
+      // every slot is free again once the last load completed.
+      slots.acquire(parallelism);
+    } catch (InterruptedException e) {
+      interrupted = true;
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdownNow();
+    }
+
+    BVWarmUpReport report = progress.toReport(
+      System.currentTimeMillis() - startTime,
+      interrupted
+    );
+    LOGGER.info(MessageFormat.format(
+      BVMessageUtil.getMessage("MSG0011"),
+      new Object[]{report.getElapsedMillis(), report.getLoaded(), report.getFailed()}
+    ));
+    return report;
+  }
+
+  /**
+   * Loads the content of the pages listed in a sitemap file, optionally
+   * gzip compressed. The page uri of each subject is the location of its
+   * sitemap entry, and the other parameters are copied from the defaults,
+   * so pages without a bvstate or bvpage parameter need the subject id in
+   * the defaults. Sitemap index files are not followed.
+   *
+   * The sitemap is read as the warm-up proceeds, so pages listed before an
+   * error in the sitemap may already be loaded when the error is thrown.
+   *
+   * @param sitemap the sitemap file.
+   * @param defaults content type, subject type and other parameters shared
+   * by the pages.
+   * @return outcome of the warm-up.
+   * @throws BVSdkException ERR0030 when the sitemap cannot be read.
+   */
+  public BVWarmUpReport warmUp(File sitemap, BVParameters defaults) {
+    SitemapSubjects subjects = new SitemapSubjects(sitemap, defaults);
+    try {
+      return warmUp(subjects);
+    } finally {
+      subjects.close();
+    }
+  }
+
+  private void warmUp(
+    BVParameters bvParameters,
+    BVConfigurationSnapshot snapshot,
+    Progress progress
+  ) {
+    String subject = getSubjectName(bvParameters, null);
+    try {
+      // the url builder fills in the page number and the subject id of a
+      // page uri, which must not change the subject of the caller.
+      BVParameters warmUpParameters = copySubject(validate(bvParameters));
+      BVSeoSdkURLBuilder urlBuilder =
+        new BVSeoSdkURLBuilder(snapshot, warmUpParameters);
+      URI seoContentUri = urlBuilder.seoContentUri();
+      if (
+        StringUtils.isBlank(warmUpParameters.getSubjectId()) &&
+        !StringUtils.contains(warmUpParameters.getPageURI(), BV_PAGE)
+      ) {
+        // resolved without a subject id from the page uri.
+        throw new BVSdkException("ERR0014");
+      }
+      subject = getSubjectName(warmUpParameters, seoContentUri);
+
+      BVUIContentServiceProvider contentService = new BVUIContentServiceProvider(
+        bvConfiguration,
+        snapshot,
+        contentFetcher,
+        metrics
+      );
+      contentService.setBVParameters(warmUpParameters);
+      contentService.setBVSeoSdkUrl(urlBuilder);
+      contentService.setFetchUserAgent(WARM_UP_USER_AGENT);
+      contentService.warmUp(seoContentUri);
+      progress.loaded();
+      BVWarmUpListener currentListener = listener;
+      if (currentListener != null) {
+        currentListener.onLoaded(bvParameters, seoContentUri);
+      }
+    } catch (BVSdkException e) {
+      failed(bvParameters, subject, e.getMessage(), progress);
+    } catch (TimeoutException e) {
+      failed(bvParameters, subject, MessageFormat.format(
+        BVMessageUtil.getMessage("ERR0026"),
+        new Object[]{snapshot.getExecutionTimeoutBot()}
+      ), progress);
+    } catch (InterruptedException e) {
+      // the warm-up was stopped.
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void failed(
+    BVParameters bvParameters,
+    String subject,
+    String message,
+    Progress progress
+  ) {
+    progress.failed(subject, message);
+    BVWarmUpListener currentListener = listener;
+    if (currentListener != null) {
+      currentListener.onFailed(bvParameters, message);
+    }
+  }
+
+  private static BVParameters validate(BVParameters bvParameters) {
+    if (bvParameters == null) {
+      throw new BVSdkException("ERR0011");
+    }
+    if (bvParameters.getContentType() == null) {
+      throw new BVSdkException("ERR0015");
+    }
+    if (bvParameters.getSubjectType() == null) {
+      throw new BVSdkException("ERR0016");
+    }
+    return bvParameters;
+  }
+
+  private static String getSubjectName(BVParameters bvParameters, URI seoContentUri) {
+    if (seoContentUri != null) {
+      return seoContentUri.toString();
+    }
+    if (bvParameters == null) {
+      return null;
+    }
+    return StringUtils.isNotBlank(bvParameters.getPageURI()) ?
+      bvParameters.getPageURI() : bvParameters.getSubjectId();
+  }
+
+  private static BVParameters copySubject(BVParameters subject) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setContentType(subject.getContentType());
+    bvParameters.setSubjectType(subject.getSubjectType());
+    bvParameters.setSubjectId(subject.getSubjectId());
+    bvParameters.setContentSubType(subject.getContentSubType());
+    bvParameters.setPageNumber(subject.getPageNumber());
+    bvParameters.setBaseURI(subject.getBaseURI());
+    bvParameters.setPageURI(subject.getPageURI());
+    return bvParameters;
+  }
+
+  private static BVParameters newSubject(BVParameters defaults, String location) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setContentType(defaults.getContentType());
+    bvParameters.setSubjectType(defaults.getSubjectType());
+    bvParameters.setSubjectId(defaults.getSubjectId());
+    bvParameters.setContentSubType(defaults.getContentSubType());
+    bvParameters.setBaseURI(location);
+    bvParameters.setPageURI(location);
+    return bvParameters;
+  }
+
+  /**
+   * Page locations of a sitemap, read one at a time into parameters copied
+   * from the defaults. External entities are not resolved.
+   */
+  private static final class SitemapSubjects implements Iterator<BVParameters> {
+    private final BVParameters defaults;
+    private InputStream in;
+    private XMLStreamReader reader;
+    private BVParameters next;
+
+    SitemapSubjects(File sitemap, BVParameters defaults) {
+      this.defaults = defaults;
+      try {
+        in = new BufferedInputStream(new FileInputStream(sitemap));
+        if (sitemap.getName().endsWith(".gz")) {
+          in = new GZIPInputStream(in);
+        }
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        reader = factory.createXMLStreamReader(in);
+      } catch (IOException e) {
+        close();
+        throw new BVSdkException("ERR0030", e);
+      } catch (XMLStreamException e) {
+        close();
+        throw new BVSdkException("ERR0030", e);
+      }
+    }
+
+    public boolean hasNext() {
+      if (next == null && reader != null) {
+        next = read();
+      }
+      return next != null;
+    }
+
+    public BVParameters next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      BVParameters subject = next;
+      next = null;
+      return subject;
+    }
+
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the subject of the next page location, or null at the end of
+     * the sitemap.
+     */
+    private BVParameters read() {
+      try {
+        while (reader.hasNext()) {
+          if (
+            reader.next() == XMLStreamConstants.START_ELEMENT &&
+            SITEMAP_LOC.equals(reader.getLocalName())
+          ) {
+            String location = reader.getElementText().trim();
+            if (location.length() > 0) {
+              return newSubject(defaults, location);
+            }
+          }
+        }
+      } catch (XMLStreamException e) {
+        close();
+        throw new BVSdkException("ERR0030", e);
+      }
+      close();
+      return null;
+    }
+
+    void close() {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // the stream is closed below.
+        }
+        reader = null;
+      }
+      if (in != null) {
+        try {
+          in.close();
+        } catch (IOException e) {
+          // nothing left to read.
+        }
+        in = null;
+      }
+    }
+  }
+
+  /**
+   * Counts of a warm-up, updated by the warm-up threads. Only the first
+   * {@link #MAX_REPORTED_FAILURES} failed subjects are kept.
+   */
+  private static final class Progress {
+    private int loaded;
+    private int failed;
+    private int omittedFailures;
+    private final Map<String, String> failures = new LinkedHashMap<String, String>();
+
+    synchronized void loaded() {
+      loaded++;
+    }
+
+    synchronized void failed(String subject, String message) {
+      failed++;
+      if (failures.remove(subject) != null || failures.size() < MAX_REPORTED_FAILURES) {
+        failures.put(subject, message);
+      } else {
+        omittedFailures++;
+      }
+    }
+
+    synchronized BVWarmUpReport toReport(long elapsedMillis, boolean interrupted) {
+      return new BVWarmUpReport(
+        loaded,
+        failed,
+        new LinkedHashMap<String, String>(failures),
+        omittedFailures,
+        elapsedMillis,
+        interrupted
+      );
+    }
+  }
+}
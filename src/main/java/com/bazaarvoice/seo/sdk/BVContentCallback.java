@@ -0,0 +1,35 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+/**
+ * Callback of a {@link BVContentFuture}.
+ */
+public interface BVContentCallback {
+
+  /**
+   * Invoked once with the result of the asynchronous call, on the thread
+   * that completed it.
+   *
+   * @param content the content, or null if the call returned no content.
+   */
+  void onComplete(String content);
+}
@@ -0,0 +1,134 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous content call.
+ *
+ * The future completes on the thread that loaded the content, or on the
+ * timer thread when the execution timeout expires first, and then invokes
+ * its callbacks on that thread. Errors never fail the future: like the
+ * blocking calls they are reported in the footer of the content.
+ */
+public class BVContentFuture implements Future<String> {
+
+  private final static Logger LOGGER = LoggerFactory.getLogger(
+    BVContentFuture.class
+  );
+
+  private final CountDownLatch completed = new CountDownLatch(1);
+  private List<BVContentCallback> callbacks =
+    new ArrayList<BVContentCallback>();
+  private String content;
+
+  /**
+   * Adds a callback, invoking it right away if the future already
+   * completed.
+   *
+   * @param callback the callback.
+   */
+  public void addCallback(BVContentCallback callback) {
+    synchronized (this) {
+      if (callbacks != null) {
+        callbacks.add(callback);
+        return;
+      }
+    }
+    invoke(callback);
+  }
+
+  /**
+   * Completes the future unless it already completed.
+   *
+   * @param content the content.
+   * @return true if this call completed the future.
+   */
+  boolean complete(String content) {
+    List<BVContentCallback> toInvoke;
+    synchronized (this) {
+      if (callbacks == null) {
+        return false;
+      }
+      this.content = content;
+      toInvoke = callbacks;
+      callbacks = null;
+    }
+    completed.countDown();
+
+    for (BVContentCallback callback : toInvoke) {
+      invoke(callback);
+    }
+    return true;
+  }
+
+  private void invoke(BVContentCallback callback) {
+    try {
+      callback.onComplete(getContent());
+    } catch (RuntimeException e) {
+      LOGGER.error("Content callback failed.", e);
+    }
+  }
+
+  private synchronized String getContent() {
+    return content;
+  }
+
+  /**
+   * The call is not interrupted: it always completes within its execution
+   * timeout.
+   *
+   * @return false.
+   */
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  public boolean isCancelled() {
+    return false;
+  }
+
+  public boolean isDone() {
+    return completed.getCount() == 0;
+  }
+
+  public String get() throws InterruptedException {
+    completed.await();
+    return getContent();
+  }
+
+  public String get(long timeout, TimeUnit unit)
+    throws InterruptedException, TimeoutException {
+    if (!completed.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getContent();
+  }
+}
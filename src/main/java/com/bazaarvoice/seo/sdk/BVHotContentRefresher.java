@@ -0,0 +1,277 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+import com.bazaarvoice.seo.sdk.cache.BVFrequencySketch;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
+import com.bazaarvoice.seo.sdk.http.BVContentFetcher;
+import com.bazaarvoice.seo.sdk.metrics.BVMetrics;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the most accessed seo content in the cache by refreshing it before
+ * it expires, so crawlers asking for popular products never wait for the
+ * content host.
+ *
+ * Every cache lookup counts an access of its content uri in a
+ * {@link BVFrequencySketch}. Uris whose estimate reaches the least accessed
+ * of the current top uris become candidates, and a periodic pass keeps the
+ * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#HOT_KEY_REFRESH_COUNT}
+ * most accessed candidates. Their content is loaded again once it expires
+ * within
+ * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#HOT_KEY_REFRESH_AHEAD},
+ * at most once per that window, so the refresh traffic stays bounded by the
+ * number of hot uris.
+ *
+ * Refreshes run one at a time on a single minimum priority thread, separate
+ * from BVThreadPool, and are shared with request loads of the same content.
+ * Candidates keep the configuration, fetcher and metrics of the request that
+ * admitted them, never the request itself, and each refresh loads the content
+ * through a new service with its own user agent.
+ *
+ * Instances are shared across requests through {@link #getInstance(int, long)}.
+ */
+final class BVHotContentRefresher {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(
+    BVHotContentRefresher.class
+  );
+  private static final ConcurrentMap<String, BVHotContentRefresher> sharedRefreshers =
+    new ConcurrentHashMap<String, BVHotContentRefresher>();
+  private static final int SKETCH_WIDTH = 4096;
+  private static final int CANDIDATE_FACTOR = 4;
+  private static final long MIN_PASS_INTERVAL = 50;
+  private static final String REFRESH_USER_AGENT = "bvseo-sdk-hot-key-refresh";
+
+  private static volatile ScheduledExecutorService scheduler;
+
+  private final int refreshCount;
+  private final long refreshAhead;
+  private final BVFrequencySketch sketch = new BVFrequencySketch(SKETCH_WIDTH);
+  private final ConcurrentMap<String, Candidate> candidates =
+    new ConcurrentHashMap<String, Candidate>();
+  private volatile int admissionFrequency;
+
+  BVHotContentRefresher(int refreshCount, long refreshAhead) {
+    this.refreshCount = refreshCount;
+    this.refreshAhead = refreshAhead;
+  }
+
+  /**
+   * Gets the shared refresher for the settings, scheduling its passes on
+   * first use.
+   *
+   * @param refreshCount number of most accessed uris to refresh.
+   * @param refreshAhead how long before expiry content is refreshed.
+   * @return shared refresher instance.
+   */
+  static BVHotContentRefresher getInstance(int refreshCount, long refreshAhead) {
+    String refresherKey = refreshCount + ":" + refreshAhead;
+    BVHotContentRefresher refresher = sharedRefreshers.get(refresherKey);
+    if (refresher == null) {
+      BVHotContentRefresher newRefresher =
+        new BVHotContentRefresher(refreshCount, refreshAhead);
+      refresher = sharedRefreshers.putIfAbsent(refresherKey, newRefresher);
+      if (refresher == null) {
+        refresher = newRefresher;
+        final BVHotContentRefresher scheduled = newRefresher;
+        long interval = Math.max(MIN_PASS_INTERVAL, refreshAhead / 4);
+        getScheduler().scheduleWithFixedDelay(
+          new Runnable() {
+            public void run() {
+              scheduled.refresh();
+            }
+          },
+          interval,
+          interval,
+          TimeUnit.MILLISECONDS
+        );
+      }
+    }
+    return refresher;
+  }
+
+  /**
+   * Counts an access of the content.
+   *
+   * @param loadKey charset and content uri.
+   * @param path the content uri.
+   * @param contentService service accessing the content, which provides the
+   * source of the refreshes when the uri becomes a candidate.
+   */
+  void recordAccess(
+    String loadKey,
+    URI path,
+    BVUIContentServiceProvider contentService
+  ) {
+    int frequency = sketch.increment(loadKey);
+    if (
+      frequency >= admissionFrequency &&
+      candidates.size() < refreshCount * CANDIDATE_FACTOR &&
+      !candidates.containsKey(loadKey)
+    ) {
+      candidates.putIfAbsent(
+        loadKey,
+        new Candidate(path, contentService.newRefreshSource())
+      );
+    }
+  }
+
+  /**
+   * Keeps the most accessed candidates and refreshes those expiring soon.
+   */
+  void refresh() {
+    List<Map.Entry<String, Candidate>> ranked =
+      new ArrayList<Map.Entry<String, Candidate>>(candidates.entrySet());
+    final Map<String, Integer> frequencies = new HashMap<String, Integer>();
+    for (Map.Entry<String, Candidate> entry : ranked) {
+      frequencies.put(entry.getKey(), sketch.estimate(entry.getKey()));
+    }
+    Collections.sort(ranked, new Comparator<Map.Entry<String, Candidate>>() {
+      public int compare(Map.Entry<String, Candidate> a, Map.Entry<String, Candidate> b) {
+        return frequencies.get(b.getKey()).compareTo(frequencies.get(a.getKey()));
+      }
+    });
+
+    List<Map.Entry<String, Candidate>> hot =
+      ranked.subList(0, Math.min(refreshCount, ranked.size()));
+    for (Map.Entry<String, Candidate> entry : ranked.subList(hot.size(), ranked.size())) {
+      candidates.remove(entry.getKey(), entry.getValue());
+    }
+    admissionFrequency = hot.size() < refreshCount ?
+      0 : frequencies.get(hot.get(hot.size() - 1).getKey());
+
+    for (Map.Entry<String, Candidate> entry : hot) {
+      Candidate candidate = entry.getValue();
+      long now = System.currentTimeMillis();
+      if (now - candidate.lastRefresh < refreshAhead) {
+        continue;
+      }
+      try {
+        BVUIContentServiceProvider contentService =
+          candidate.source.newContentService();
+        if (contentService.refreshHotContent(candidate.path, refreshAhead)) {
+          candidate.lastRefresh = now;
+        }
+      } catch (RuntimeException e) {
+        // a failing pass must not cancel the following ones.
+        candidate.lastRefresh = now;
+        LOGGER.warn(MessageFormat.format(
+          BVMessageUtil.getMessage("MSG0008"),
+          new Object[]{candidate.path, e.getMessage()}
+        ));
+      }
+    }
+  }
+
+  private static ScheduledExecutorService getScheduler() {
+    if (scheduler == null) {
+      synchronized (BVHotContentRefresher.class) {
+        if (scheduler == null) {
+          scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "bvseo-sdk-hot-key-refresher");
+              thread.setDaemon(true);
+              thread.setPriority(Thread.MIN_PRIORITY);
+              return thread;
+            }
+          });
+        }
+      }
+    }
+    return scheduler;
+  }
+
+  /**
+   * Content uri being considered for refreshes.
+   */
+  private static final class Candidate {
+    private final URI path;
+    private final Source source;
+    private volatile long lastRefresh;
+
+    Candidate(URI path, Source source) {
+      this.path = path;
+      this.source = source;
+    }
+  }
+
+  /**
+   * Settings to load the content of a candidate again, without the
+   * parameters or the user agent of the request that admitted it.
+   */
+  static final class Source {
+    private final BVConfiguration bvConfiguration;
+    private final BVConfigurationSnapshot snapshot;
+    private final BVContentFetcher contentFetcher;
+    private final BVMetrics metrics;
+    private final ContentType contentType;
+
+    Source(
+      BVConfiguration bvConfiguration,
+      BVConfigurationSnapshot snapshot,
+      BVContentFetcher contentFetcher,
+      BVMetrics metrics,
+      ContentType contentType
+    ) {
+      this.bvConfiguration = bvConfiguration;
+      this.snapshot = snapshot;
+      this.contentFetcher = contentFetcher;
+      this.metrics = metrics;
+      this.contentType = contentType;
+    }
+
+    BVUIContentServiceProvider newContentService() {
+      BVParameters bvParameters = new BVParameters();
+      bvParameters.setContentType(contentType);
+
+      BVUIContentServiceProvider contentService = new BVUIContentServiceProvider(
+        bvConfiguration,
+        snapshot,
+        contentFetcher,
+        metrics
+      );
+      contentService.setBVParameters(bvParameters);
+      contentService.setFetchUserAgent(REFRESH_USER_AGENT);
+      return contentService;
+    }
+  }
+}
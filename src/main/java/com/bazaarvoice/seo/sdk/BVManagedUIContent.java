@@ -19,20 +19,31 @@
 
 package com.bazaarvoice.seo.sdk;
 
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import com.bazaarvoice.seo.sdk.content.BVContentView;
 import com.bazaarvoice.seo.sdk.footer.BVFooter;
 import com.bazaarvoice.seo.sdk.footer.BVHTMLFooter;
+import com.bazaarvoice.seo.sdk.http.BVContentFetcher;
+import com.bazaarvoice.seo.sdk.metrics.BVMetrics;
+import com.bazaarvoice.seo.sdk.metrics.BVNoOpMetrics;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.url.BVSeoSdkURLBuilder;
 import com.bazaarvoice.seo.sdk.url.BVSeoSdkUrl;
 import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
 import com.bazaarvoice.seo.sdk.validation.BVDefaultValidator;
-import com.bazaarvoice.seo.sdk.validation.BVValidator;
 
 /**
  * Implementation class for BVUIContent.
@@ -41,6 +52,14 @@ import com.bazaarvoice.seo.sdk.validation.BVValidator;
  * Based on the configurations that are set, the actual contents will be r
  * etrieved.
  *
+ * The write methods stream the content and the footer straight into a
+ * writer such as a JspWriter; the get methods build the same output as a
+ * String.
+ *
+ * Instances hold no per-request state: everything a call needs lives in a
+ * request-scoped object created by the call. A single instance per
+ * configuration can therefore be shared by all request threads.
+ *
  * @author Anandan Narayanaswamy
  */
 public class BVManagedUIContent implements BVUIContent {
@@ -48,16 +67,12 @@ public class BVManagedUIContent implements BVUIContent {
   private final static Logger _logger = LoggerFactory.getLogger(
     BVManagedUIContent.class
   );
+  // time for the footer of a call that timed out to be rendered.
+  private final static long COMPLETION_GRACE_MILLIS = 200;
 
-  private BVConfiguration _bvConfiguration;
-  private BVValidator bvParamValidator;
-
-  private BVSeoSdkUrl bvSeoSdkUrl;
-  private BVFooter bvFooter;
-  private StringBuilder message;
-  private BVParameters bvParameters;
-  private BVUIContentService bvUiContentService;
-  private String validationError;
+  private final BVConfiguration _bvConfiguration;
+  private final BVContentFetcher _bvContentFetcher;
+  private final BVMetrics _bvMetrics;
 
   /**
    * Default constructor.
@@ -74,11 +89,43 @@ public class BVManagedUIContent implements BVUIContent {
    * @param bvConfiguration The configuration instance.
    */
   public BVManagedUIContent(BVConfiguration bvConfiguration) {
-    this._bvConfiguration = bvConfiguration;
+    this(bvConfiguration, null);
+  }
 
-    if (bvConfiguration == null) {
-      this._bvConfiguration = new BVSdkConfiguration();
-    }
+  /**
+   * Constructor with BVConfiguration and BVContentFetcher arguments.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param bvContentFetcher Fetcher used to load http content. The shared
+   * pooled fetcher of the configuration is used when null.
+   */
+  public BVManagedUIContent(
+    BVConfiguration bvConfiguration,
+    BVContentFetcher bvContentFetcher
+  ) {
+    this(bvConfiguration, bvContentFetcher, null);
+  }
+
+  /**
+   * Constructor with BVConfiguration, BVContentFetcher and BVMetrics
+   * arguments.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param bvContentFetcher Fetcher used to load http content. The shared
+   * pooled fetcher of the configuration is used when null.
+   * @param bvMetrics Receiver of the performance events, such as
+   * {@link com.bazaarvoice.seo.sdk.metrics.BVJmxMetrics}. No events are
+   * recorded when null.
+   */
+  public BVManagedUIContent(
+    BVConfiguration bvConfiguration,
+    BVContentFetcher bvContentFetcher,
+    BVMetrics bvMetrics
+  ) {
+    this._bvConfiguration = bvConfiguration == null ?
+      new BVSdkConfiguration() : bvConfiguration;
+    this._bvContentFetcher = bvContentFetcher;
+    this._bvMetrics = bvMetrics == null ? BVNoOpMetrics.INSTANCE : bvMetrics;
   }
 
   /**
@@ -86,162 +133,276 @@ public class BVManagedUIContent implements BVUIContent {
    * passed.
    */
   public String getContent(BVParameters bvParameters) {
-    long startTime = System.currentTimeMillis();
-    postProcess(bvParameters);
-
-    StringBuilder uiContent = null;
-
-    if (StringUtils.isBlank(validationError)) {
-      if (bvUiContentService.isSdkEnabled()) {
-        uiContent = bvUiContentService.executeCall();
-      } else {
-        _logger.info(BVMessageUtil.getMessage("MSG0003"));
-        uiContent = new StringBuilder();
-      }
-      bvFooter.addMessage(bvUiContentService.getMessage().toString());
-    } else {
-      uiContent = new StringBuilder();
-      bvFooter.addMessage(validationError);
+    StringBuilder uiContent = new StringBuilder();
+    try {
+      writeContent(bvParameters, uiContent);
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
     }
-
-    bvFooter.setExecutionTime(System.currentTimeMillis() - startTime);
-
-    if (uiContent == null) {
-      uiContent = new StringBuilder();
-    }
-
-    uiContent.append(bvFooter.displayFooter("getContent"));
-
     return uiContent.toString();
   }
 
   public String getAggregateRating(BVParameters bvQueryParams) {
-    long startTime = System.currentTimeMillis();
-    postProcess(bvQueryParams);
-
-    StringBuilder uiContent = null;
-    if (StringUtils.isBlank(validationError)) {
-      if (bvUiContentService.isSdkEnabled()) {
-        uiContent = bvUiContentService.executeCall();
-      } else {
-        _logger.info(BVMessageUtil.getMessage("MSG0003"));
-        uiContent = new StringBuilder();
-      }
+    StringBuilder uiContent = new StringBuilder();
+    try {
+      writeAggregateRating(bvQueryParams, uiContent);
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
+    }
+    return uiContent.toString();
+  }
 
-      if (uiContent != null) {
-        int startIndex = uiContent.indexOf("<!--begin-reviews-->");
-        if (startIndex != -1) {
-          String endReviews = "<!--end-reviews-->";
-          int endIndex = uiContent.indexOf(endReviews) + endReviews.length();
-          uiContent.delete(startIndex, endIndex);
-
-          startIndex = uiContent.indexOf("<!--begin-pagination-->");
-          if (startIndex != -1) {
-            String endPagination = "<!--end-pagination-->";
-            endIndex = uiContent.indexOf(endPagination) + endPagination.length();
-            uiContent.delete(startIndex, endIndex);
-          }
-        }
+  public String getReviews(BVParameters bvQueryParams) {
+    StringBuilder uiContent = new StringBuilder();
+    try {
+      writeReviews(bvQueryParams, uiContent);
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
+    }
+    return uiContent.toString();
+  }
 
-        startIndex = uiContent.indexOf("<!--begin-aggregate-rating-->");
-        if (startIndex == -1 && bvUiContentService.getMessage().length() == 0) {
-          message.append(BVMessageUtil.getMessage("ERR0003"));
-        }
-      } else {
-        uiContent = new StringBuilder();
-      }
+  public void writeContent(BVParameters bvParameters, Appendable out)
+    throws IOException {
+    write(bvParameters, BVContentView.CONTENT, out);
+  }
 
-      bvFooter.addMessage(bvUiContentService.getMessage().toString());
-    } else {
-      uiContent = new StringBuilder();
-      bvFooter.addMessage(validationError);
-    }
+  public void writeAggregateRating(BVParameters bvQueryParams, Appendable out)
+    throws IOException {
+    // Leaves out the reviews and their pagination.
+    write(bvQueryParams, BVContentView.AGGREGATE_RATING, out);
+  }
 
+  public void writeReviews(BVParameters bvQueryParams, Appendable out)
+    throws IOException {
+    // Leaves out the aggregate rating and the schema.org product scope.
+    write(bvQueryParams, BVContentView.REVIEWS, out);
+  }
 
-    bvFooter.addMessage(message.toString());
-    bvFooter.setExecutionTime(System.currentTimeMillis() - startTime);
-    uiContent.append(bvFooter.displayFooter("getAggregateRating"));
+  public BVContentFuture getContentAsync(BVParameters bvParameters) {
+    return executeAsync(bvParameters, BVContentView.CONTENT);
+  }
 
-    return uiContent.toString();
+  public BVContentFuture getAggregateRatingAsync(BVParameters bvQueryParams) {
+    return executeAsync(bvQueryParams, BVContentView.AGGREGATE_RATING);
   }
 
-  public String getReviews(BVParameters bvQueryParams) {
-    long startTime = System.currentTimeMillis();
-    postProcess(bvQueryParams);
+  public BVContentFuture getReviewsAsync(BVParameters bvQueryParams) {
+    return executeAsync(bvQueryParams, BVContentView.REVIEWS);
+  }
 
-    StringBuilder uiContent = null;
-    if (StringUtils.isBlank(validationError)) {
+  /**
+   * Starts every call at once on BVThreadPool, then waits for all of them
+   * until a single deadline, the largest execution timeout after the start of
+   * the batch. Each call completes within its own execution timeout, so the
+   * deadline only cuts off calls whose completion failed; their content is
+   * empty.
+   */
+  public List<String> getContents(List<BVParameters> bvQueryParams) {
+    BVConfigurationSnapshot snapshot =
+      BVConfigurationSnapshot.of(_bvConfiguration);
+    long executionTimeout =
+      Math.max(snapshot.getExecutionTimeout(), snapshot.getExecutionTimeoutBot());
+    long deadline =
+      System.currentTimeMillis() + executionTimeout + COMPLETION_GRACE_MILLIS;
+
+    List<BVContentFuture> futures =
+      new ArrayList<BVContentFuture>(bvQueryParams.size());
+    for (BVParameters bvParameters : bvQueryParams) {
+      futures.add(getContentAsync(bvParameters));
+    }
 
-      if (bvUiContentService.isSdkEnabled()) {
-        uiContent = bvUiContentService.executeCall();
-      } else {
-        _logger.info(BVMessageUtil.getMessage("MSG0003"));
-        uiContent = new StringBuilder();
+    List<String> contents = new ArrayList<String>(futures.size());
+    for (BVContentFuture future : futures) {
+      long remaining = Math.max(0, deadline - System.currentTimeMillis());
+      try {
+        contents.add(future.get(remaining, TimeUnit.MILLISECONDS));
+      } catch (TimeoutException e) {
+        _logger.error(MessageFormat.format(
+          BVMessageUtil.getMessage("ERR0018"),
+          new Object[]{executionTimeout}
+        ));
+        contents.add("");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        contents.add("");
       }
+    }
+    return contents;
+  }
 
-      if (uiContent != null) {
-        int startIndex = uiContent.indexOf("<!--begin-aggregate-rating-->");
+  private void write(
+    BVParameters bvParameters,
+    BVContentView view,
+    Appendable out
+  ) throws IOException {
+    long startTime = System.currentTimeMillis();
+    ContentRequest request = postProcess(bvParameters);
 
-        if (startIndex != -1) {
-          String endReviews = "<!--end-aggregate-rating-->";
-          int endIndex = uiContent.indexOf(endReviews) + endReviews.length();
-          uiContent.delete(startIndex, endIndex);
-        }
+    boolean executed = true;
+    if (isExecutable(request)) {
+      executed = request.bvUiContentService.executeCall(view, out);
+    }
+    out.append(finish(request, view, executed, startTime));
+  }
 
-        startIndex = uiContent.indexOf("<!--begin-reviews-->");
-        if (startIndex == -1 && bvUiContentService.getMessage().length() == 0) {
-          message.append(BVMessageUtil.getMessage("ERR0013"));
+  private BVContentFuture executeAsync(
+    BVParameters bvParameters,
+    final BVContentView view
+  ) {
+    final long startTime = System.currentTimeMillis();
+    final ContentRequest request = postProcess(bvParameters);
+    final BVContentFuture result = new BVContentFuture();
+
+    if (!isExecutable(request)) {
+      result.complete(finish(request, view, true, startTime));
+      return result;
+    }
+
+    request.bvUiContentService.executeCallAsync(view).addCallback(
+      new BVContentCallback() {
+        public void onComplete(String content) {
+          StringBuilder uiContent = new StringBuilder();
+          if (content != null) {
+            uiContent.append(content);
+          }
+          try {
+            uiContent.append(
+              finish(request, view, content != null, startTime)
+            );
+          } finally {
+            // a failing footer must not leave the caller waiting.
+            result.complete(uiContent.toString());
+          }
         }
-      } else {
-        uiContent = new StringBuilder();
       }
+    );
+    return result;
+  }
+
+  private boolean isExecutable(ContentRequest request) {
+    if (!StringUtils.isBlank(request.validationError)) {
+      return false;
+    }
+    if (!request.bvUiContentService.isSdkEnabled()) {
+      _logger.info(BVMessageUtil.getMessage("MSG0003"));
+      return false;
+    }
+    return true;
+  }
 
+  /**
+   * Reports a missing section and builds the footer.
+   *
+   * @param executed false if the content service executed no call.
+   * @return the footer.
+   */
+  private String finish(
+    ContentRequest request,
+    BVContentView view,
+    boolean executed,
+    long startTime
+  ) {
+    BVFooter bvFooter = request.bvFooter;
+    BVUIContentService bvUiContentService = request.bvUiContentService;
+
+    if (StringUtils.isBlank(request.validationError)) {
+      String sectionError = getSectionError(view);
+      if (
+        sectionError != null &&
+        executed &&
+        !bvUiContentService.isSectionFound() &&
+        bvUiContentService.getMessage().length() == 0
+      ) {
+        request.message.append(BVMessageUtil.getMessage(sectionError));
+      }
       bvFooter.addMessage(bvUiContentService.getMessage().toString());
-      bvFooter.addMessage(message.toString());
     } else {
-      uiContent = new StringBuilder();
-      bvFooter.addMessage(validationError);
+      bvFooter.addMessage(request.validationError);
     }
 
-    /*
-     * Remove schema.org text from reviews if one exists
-     * itemscope itemtype="http://schema.org/Product"
-     */
-    String schemaOrg = "itemscope itemtype=\"http://schema.org/Product\"";
-    int startIndex = uiContent.indexOf(schemaOrg);
-    if (startIndex != -1) {
-      uiContent.delete(startIndex, startIndex + schemaOrg.length());
-    }
+    bvFooter.addMessage(request.message.toString());
+    long executionTime = System.currentTimeMillis() - startTime;
+    bvFooter.setExecutionTime(executionTime);
+    _bvMetrics.recordCall(getMethodName(view), executionTime);
+    return bvFooter.displayFooter(getMethodName(view));
+  }
 
-    bvFooter.setExecutionTime(System.currentTimeMillis() - startTime);
-    uiContent.append(bvFooter.displayFooter("getReviews"));
+  private static String getSectionError(BVContentView view) {
+    switch (view) {
+      case AGGREGATE_RATING:
+        return "ERR0003";
+      case REVIEWS:
+        return "ERR0013";
+      default:
+        return null;
+    }
+  }
 
-    return uiContent.toString();
+  private static String getMethodName(BVContentView view) {
+    switch (view) {
+      case AGGREGATE_RATING:
+        return "getAggregateRating";
+      case REVIEWS:
+        return "getReviews";
+      default:
+        return "getContent";
+    }
   }
 
-  private void postProcess(BVParameters bvParameters) {
-    bvFooter = new BVHTMLFooter(_bvConfiguration, bvParameters);
-    message = new StringBuilder();
+  private ContentRequest postProcess(BVParameters bvParameters) {
+    ContentRequest request = new ContentRequest();
+    request.snapshot = BVConfigurationSnapshot.of(_bvConfiguration);
+    request.bvFooter = new BVHTMLFooter(
+      _bvConfiguration,
+      request.snapshot,
+      bvParameters
+    );
+    request.message = new StringBuilder();
 
     /*
      * Validator to check if all the bvParameters are valid.
      */
-    bvParamValidator = new BVDefaultValidator();
-    validationError = bvParamValidator.validate(_bvConfiguration, bvParameters);
-
-    if (!StringUtils.isBlank(validationError)) {
-      return;
+    BVDefaultValidator bvParamValidator = new BVDefaultValidator();
+    request.validationError = bvParamValidator.validate(
+      _bvConfiguration,
+      request.snapshot,
+      bvParameters
+    );
+
+    if (!StringUtils.isBlank(request.validationError)) {
+      return request;
     }
 
-    this.bvParameters = bvParameters;
-
-    bvSeoSdkUrl = new BVSeoSdkURLBuilder(_bvConfiguration, bvParameters);
-
-    bvUiContentService = new BVUIContentServiceProvider(_bvConfiguration);
-    bvUiContentService.setBVParameters(this.bvParameters);
-    bvUiContentService.setBVSeoSdkUrl(bvSeoSdkUrl);
-    bvFooter.setBvSeoSdkUrl(bvSeoSdkUrl);
-
+    BVSeoSdkUrl bvSeoSdkUrl = new BVSeoSdkURLBuilder(
+      request.snapshot,
+      bvParameters
+    );
+
+    request.bvUiContentService = new BVUIContentServiceProvider(
+      _bvConfiguration,
+      request.snapshot,
+      _bvContentFetcher,
+      _bvMetrics
+    );
+    request.bvUiContentService.setBVParameters(bvParameters);
+    request.bvUiContentService.setBVSeoSdkUrl(bvSeoSdkUrl);
+    request.bvFooter.setBvSeoSdkUrl(bvSeoSdkUrl);
+
+    return request;
   }
 
+  /**
+   * State of a single getContent, getAggregateRating or getReviews call.
+   */
+  private static final class ContentRequest {
+    private BVConfigurationSnapshot snapshot;
+    private BVFooter bvFooter;
+    private StringBuilder message;
+    private BVUIContentService bvUiContentService;
+    private String validationError;
+  }
 }
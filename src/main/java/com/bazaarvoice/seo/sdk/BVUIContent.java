@@ -21,6 +21,9 @@ package com.bazaarvoice.seo.sdk;
 
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * @author Anandan Narayanaswamy
  */
@@ -50,4 +53,71 @@ public interface BVUIContent {
    */
   String getReviews(BVParameters bvQueryParams);
 
+  /**
+   * Writes the complete bazaarvoice seo content, such as to a JspWriter,
+   * without building it as a String first.
+   *
+   * @param bvQueryParams
+   * @param out the writer to write to.
+   * @throws IOException if writing fails.
+   */
+  void writeContent(BVParameters bvQueryParams, Appendable out)
+    throws IOException;
+
+  /**
+   * Writes only the aggregateRating.
+   *
+   * @param bvQueryParams
+   * @param out the writer to write to.
+   * @throws IOException if writing fails.
+   */
+  void writeAggregateRating(BVParameters bvQueryParams, Appendable out)
+    throws IOException;
+
+  /**
+   * Writes only the reviews.
+   *
+   * @param bvQueryParams
+   * @param out the writer to write to.
+   * @throws IOException if writing fails.
+   */
+  void writeReviews(BVParameters bvQueryParams, Appendable out)
+    throws IOException;
+
+  /**
+   * Gets the complete bazaarvoice seo content without blocking the caller.
+   * The execution timeouts apply as for {@link #getContent(BVParameters)}.
+   *
+   * @param bvQueryParams
+   * @return future seo content, footer included.
+   */
+  BVContentFuture getContentAsync(BVParameters bvQueryParams);
+
+  /**
+   * Gets only the aggregateRating without blocking the caller.
+   *
+   * @param bvQueryParams
+   * @return future aggregate content, footer included.
+   */
+  BVContentFuture getAggregateRatingAsync(BVParameters bvQueryParams);
+
+  /**
+   * Gets only the reviews without blocking the caller.
+   *
+   * @param bvQueryParams
+   * @return future reviews content, footer included.
+   */
+  BVContentFuture getReviewsAsync(BVParameters bvQueryParams);
+
+  /**
+   * Gets the complete bazaarvoice seo content for several parameters, such as
+   * the reviews, questions and stories of a product, loading them all in
+   * parallel. The call takes as long as the slowest content rather than the
+   * sum of all of them.
+   *
+   * @param bvQueryParams
+   * @return seo content of every parameter, in the same order.
+   */
+  List<String> getContents(List<BVParameters> bvQueryParams);
+
 }
@@ -19,9 +19,12 @@
 
 package com.bazaarvoice.seo.sdk;
 
+import com.bazaarvoice.seo.sdk.content.BVContentView;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.url.BVSeoSdkUrl;
 
+import java.io.IOException;
+
 /**
  * BVUIContentCaller an implementation class of Callable.
  *
@@ -50,6 +53,46 @@ public interface BVUIContentService {
    */
   StringBuilder executeCall();
 
+  /**
+   * Executes the call like {@link #executeCall()} and returns the part of the
+   * content shown for the view.
+   *
+   * @param view the part of the content to return.
+   * @return StringBuilder representation of the content.
+   */
+  StringBuilder executeCall(BVContentView view);
+
+  /**
+   * Executes the call like {@link #executeCall(BVContentView)} and writes the
+   * content to out instead of returning it.
+   *
+   * @param view the part of the content to write.
+   * @param out the writer to write to.
+   * @return false if no call was executed, in which case
+   * {@link #executeCall(BVContentView)} returns null.
+   * @throws IOException if writing fails.
+   */
+  boolean executeCall(BVContentView view, Appendable out) throws IOException;
+
+  /**
+   * Executes the call like {@link #executeCall(BVContentView)} without
+   * blocking the caller. The returned future completes with the content, or
+   * with null if no call was executed, once the content is loaded or the
+   * execution timeout expires.
+   *
+   * @param view the part of the content to return.
+   * @return the future content.
+   */
+  BVContentFuture executeCallAsync(BVContentView view);
+
+  /**
+   * Checks if the content returned by the last executeCall contains the
+   * section of its view.
+   *
+   * @return true if the section was found.
+   */
+  boolean isSectionFound();
+
   /**
    * @deprecated
    * Use executeCall() instead. reload parameter is no longer supported.
@@ -19,38 +19,57 @@
 
 package com.bazaarvoice.seo.sdk;
 
-import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.cache.BVCacheEntry;
+import com.bazaarvoice.seo.sdk.cache.BVContentCache;
+import com.bazaarvoice.seo.sdk.cache.BVDiskCache;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
+import com.bazaarvoice.seo.sdk.content.BVContentSelection;
+import com.bazaarvoice.seo.sdk.content.BVContentTemplate;
+import com.bazaarvoice.seo.sdk.content.BVContentView;
 import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.http.BVCircuitBreaker;
+import com.bazaarvoice.seo.sdk.http.BVContentFetcher;
+import com.bazaarvoice.seo.sdk.http.BVFetchException;
+import com.bazaarvoice.seo.sdk.http.BVFetchRequest;
+import com.bazaarvoice.seo.sdk.http.BVFetchResponse;
+import com.bazaarvoice.seo.sdk.http.BVHttpClientContentFetcher;
+import com.bazaarvoice.seo.sdk.metrics.BVMetrics;
+import com.bazaarvoice.seo.sdk.metrics.BVNoOpMetrics;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
 import com.bazaarvoice.seo.sdk.servlet.RequestContext;
 import com.bazaarvoice.seo.sdk.servlet.RequestFilter;
 import com.bazaarvoice.seo.sdk.url.BVSeoSdkUrl;
+import com.bazaarvoice.seo.sdk.util.BVConstant;
 import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
 import com.bazaarvoice.seo.sdk.util.BVThreadPool;
 import com.bazaarvoice.seo.sdk.util.BVUtility;
 import com.bazaarvoice.seo.sdk.util.Environment;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.*;
-import java.net.Proxy.Type;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.*;
-import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementation class for {@link BVUIContentService}. This class is a self
- * executable of Callable and Future and returns StringBuilder upon execution.
+ * executable of Callable and returns StringBuilder upon execution.
+ *
+ * {@link #executeCall()} loads the content on BVThreadPool and waits for it
+ * within the execution timeout. Concurrent calls for the same content uri
+ * share a single load. Loads are skipped while the circuit breaker of the
+ * content host is open.
  *
  * @author Anandan Narayanaswamy
  */
@@ -61,17 +80,80 @@ public class BVUIContentServiceProvider
     BVUIContentServiceProvider.class
   );
   private final static String HTTP_HEADER_USER_AGENT = "User-Agent";
-  private final static String HTTP_HEADER_ACCEPT_ENCODING = "Accept-Encoding";
-  private final static String HTTP_HEADER_ACCEPT_ENCODING_GZIP = "gzip";
+  private final static ConcurrentMap<LoadKey, InFlightLoad> inFlightLoads =
+    new ConcurrentHashMap<LoadKey, InFlightLoad>();
 
   private BVConfiguration bvConfiguration;
+  private final BVConfigurationSnapshot snapshot;
   private BVParameters bvParameters;
   private StringBuilder message;
   private BVSeoSdkUrl bvSeoSdkUrl;
   private Boolean sdkEnabled;
+  private BVContentFetcher contentFetcher;
+  private final BVMetrics metrics;
+  private String fetchUserAgent;
+  private boolean sectionFound;
 
   public BVUIContentServiceProvider(BVConfiguration bvConfiguration) {
+    this(bvConfiguration, null);
+  }
+
+  /**
+   * Constructor with a custom content fetcher.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param contentFetcher Fetcher for http content. The shared
+   * {@link BVHttpClientContentFetcher} of the configuration is used when null.
+   */
+  public BVUIContentServiceProvider(
+    BVConfiguration bvConfiguration,
+    BVContentFetcher contentFetcher
+  ) {
+    this(bvConfiguration, contentFetcher, null);
+  }
+
+  /**
+   * Constructor with a custom content fetcher and metrics.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param contentFetcher Fetcher for http content, the shared fetcher of the
+   * configuration when null.
+   * @param metrics Receiver of the performance events, none when null.
+   */
+  public BVUIContentServiceProvider(
+    BVConfiguration bvConfiguration,
+    BVContentFetcher contentFetcher,
+    BVMetrics metrics
+  ) {
+    this(
+      bvConfiguration,
+      bvConfiguration == null ? null : BVConfigurationSnapshot.of(bvConfiguration),
+      contentFetcher,
+      metrics
+    );
+  }
+
+  /**
+   * Constructor for a call whose configuration snapshot was already taken, so
+   * the snapshot is shared by the fetcher, the pool and the url builder of the
+   * call.
+   *
+   * @param bvConfiguration The configuration instance.
+   * @param snapshot Snapshot of the configuration.
+   * @param contentFetcher Fetcher for http content, the shared fetcher of the
+   * configuration when null.
+   * @param metrics Receiver of the performance events, none when null.
+   */
+  BVUIContentServiceProvider(
+    BVConfiguration bvConfiguration,
+    BVConfigurationSnapshot snapshot,
+    BVContentFetcher contentFetcher,
+    BVMetrics metrics
+  ) {
     this.bvConfiguration = bvConfiguration;
+    this.snapshot = snapshot;
+    this.contentFetcher = contentFetcher;
+    this.metrics = metrics == null ? BVNoOpMetrics.INSTANCE : metrics;
     message = new StringBuilder();
   }
 
@@ -105,6 +187,9 @@ public class BVUIContentServiceProvider
    */
   private String getUserAgent()
   {
+    if (fetchUserAgent != null) {
+      return String.format(USER_AGENT_FORMAT, fetchUserAgent);
+    }
     String requestUserAgent = getRequestUserAgent();
     String userAgent = requestUserAgent != null ? requestUserAgent : getParameterUserAgent();
     if (userAgent == null || userAgent.isEmpty())
@@ -139,133 +224,585 @@ public class BVUIContentServiceProvider
     URI seoContentUrl,
     String baseUri
   ) {
-    if (isContentFromFile()) {
-      sb.append(loadContentFromFile(seoContentUrl));
-    } else {
-      sb.append(loadContentFromHttp(seoContentUrl));
+    BVContentTemplate content = getCachedContent(seoContentUrl);
+    if (content == null) {
+      content = loadContentFromSource(
+        new BVFetchRequest(seoContentUrl, getUserAgent(), getCharset())
+      );
     }
+    String pageUri = BVUtility.getPageUri(baseUri);
+    BVUtility.replaceString(sb, BVConstant.INCLUDE_PAGE_URI, pageUri);
+    content.render(sb, pageUri);
+  }
 
-    BVUtility.replacePageURIFromContent(
-      sb,
-      baseUri
+  /**
+   * Writes the integration code followed by the part of the content shown for
+   * the view. The integration code gets its page uri replaced as well.
+   */
+  private void renderContent(
+    Appendable out,
+    StringBuilder integrationCode,
+    BVContentTemplate content,
+    String pageUri,
+    BVContentView view
+  ) throws IOException {
+    BVUtility.replaceString(
+      integrationCode,
+      BVConstant.INCLUDE_PAGE_URI,
+      pageUri
     );
+    BVContentSelection selection = content.getSections().select(view);
+    out.append(integrationCode);
+    content.render(out, pageUri, selection);
+    sectionFound = selection.isSectionFound();
+  }
+
+  private BVConfigurationSnapshot getConfigurationSnapshot() {
+    return snapshot;
   }
 
   private boolean isContentFromFile() {
-    return Boolean.parseBoolean(bvConfiguration.getProperty(
-      BVClientConfig.LOAD_SEO_FILES_LOCALLY.getPropertyName()
-    ));
+    return getConfigurationSnapshot().isLoadSeoFilesLocally();
   }
 
-  private String loadContentFromHttp(URI path) {
-    int connectionTimeout = Integer.parseInt(bvConfiguration.getProperty(
-      BVClientConfig.CONNECT_TIMEOUT.getPropertyName()
-    ));
-    int socketTimeout = Integer.parseInt(bvConfiguration.getProperty(
-      BVClientConfig.SOCKET_TIMEOUT.getPropertyName()
-    ));
-    String proxyHost = bvConfiguration.getProperty(
-      BVClientConfig.PROXY_HOST.getPropertyName()
-    );
-    String charsetConfig = bvConfiguration.getProperty(
-      BVClientConfig.CHARSET.getPropertyName()
-    );
-    Charset charset = null;
-    try {
-      charset = charsetConfig == null ?
-        Charset.defaultCharset() : Charset.forName(charsetConfig);
-    } catch (Exception e) {
-      LOGGER.error(BVMessageUtil.getMessage("ERR0024"));
-      charset = Charset.defaultCharset();
+  /**
+   * Gets the content from the shared content cache when caching is enabled
+   * and the content uri is cached.
+   *
+   * Expired content is still served right away while it is refreshed in the
+   * background. If the refresh fails the expired content keeps being served
+   * until its stale window ends.
+   *
+   * When caching is disabled the content of the last load can still be
+   * reused for
+   * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#CONTENT_MEMO_TTL},
+   * off by default, so the getAggregateRating and getReviews calls of a page
+   * share a single fetch.
+   *
+   * A cached failure is reported again until it expires, without reaching
+   * the content host.
+   *
+   * Content missing from the memory cache is looked up in the disk cache,
+   * when one is configured, and moved back into the memory cache.
+   *
+   * Every lookup counts as an access for the refresh of the most accessed
+   * content, see {@link BVHotContentRefresher}.
+   *
+   * @return cached content or null.
+   * @throws BVSdkException with the error of a cached failure.
+   */
+  private BVContentTemplate getCachedContent(URI path) {
+    boolean memoOnly = getCacheTtl() <= 0;
+    if (
+      isContentFromFile() ||
+      (memoOnly && getContentMemoTtl() <= 0 && !isFailureCacheEnabled())
+    ) {
+      return null;
     }
 
-    String content = null;
-    InputStream is = null;
-    HttpURLConnection httpUrlConnection = null;
+    if (!memoOnly) {
+      recordAccess(path);
+    }
+    BVCacheEntry cacheEntry = getContentCache().get(path.toString());
+    if (cacheEntry == null && !memoOnly) {
+      cacheEntry = getDiskCachedEntry(path);
+    }
+    if (
+      cacheEntry == null ||
+      !getCharset().name().equals(cacheEntry.getCharset())
+    ) {
+      metrics.recordCacheLookup(false);
+      return null;
+    }
+
+    if (cacheEntry.isFailure()) {
+      // the cache drops failures once they expire.
+      metrics.recordCacheLookup(true);
+      throw new BVSdkException(cacheEntry.getErrorCode());
+    }
+
+    if (cacheEntry.isExpired(System.currentTimeMillis())) {
+      if (memoOnly) {
+        metrics.recordCacheLookup(false);
+        return null;
+      }
+      try {
+        loadContentInFlight(path, true);
+      } catch (BVSdkException e) {
+        // an open circuit breaker was logged when it opened.
+        if (!"ERR0029".equals(e.getErrorCode())) {
+          LOGGER.warn(MessageFormat.format(
+            BVMessageUtil.getMessage("MSG0008"),
+            new Object[]{path, e.getMessage()}
+          ));
+        }
+      }
+    }
+    metrics.recordCacheLookup(true);
+    return cacheEntry.getTemplate();
+  }
+
+  /**
+   * Loads the content from the local file system or over http, caching http
+   * content when caching is enabled.
+   *
+   * Cached content with an ETag or Last-Modified is revalidated, and a not
+   * modified answer renews the cached content instead of downloading it
+   * again.
+   */
+  private BVContentTemplate loadContentFromSource(
+    BVFetchRequest fetchRequest
+  ) {
+    URI path = fetchRequest.getUri();
+    if (isContentFromFile()) {
+      return BVContentTemplate.parse(loadContentFromFile(path));
+    }
+
+    BVCacheEntry cachedEntry = getRevalidationEntry(path);
+    if (cachedEntry != null) {
+      fetchRequest.setValidators(
+        cachedEntry.getEtag(),
+        cachedEntry.getLastModified()
+      );
+    }
+    BVFetchResponse response;
     try {
-      URL url = path.toURL();
+      response = loadContentFromHttp(fetchRequest);
+    } catch (BVSdkException e) {
+      if (!fetchRequest.isAborted()) {
+        cacheFailure(path, e);
+      }
+      throw e;
+    }
 
+    BVContentTemplate content;
+    String etag = response.getEtag();
+    String lastModified = response.getLastModified();
+    if (response.isNotModified()) {
+      content = cachedEntry.getTemplate();
+      // a not modified answer need not repeat the validators.
+      etag = etag == null ? cachedEntry.getEtag() : etag;
+      lastModified =
+        lastModified == null ? cachedEntry.getLastModified() : lastModified;
+    } else {
+      content = BVContentTemplate.parse(response.getContent());
+    }
 
-      if (
-        !StringUtils.isBlank(proxyHost) &&
-          !"none".equalsIgnoreCase(proxyHost)
-        ) {
-        int proxyPort = Integer.parseInt(bvConfiguration.getProperty(
-          BVClientConfig.PROXY_PORT.getPropertyName()
-        ));
-        SocketAddress socketAddress = new InetSocketAddress(
-          proxyHost,
-          proxyPort
-        );
-        Proxy proxy = new Proxy(Type.HTTP, socketAddress);
-        httpUrlConnection = (HttpURLConnection) url.openConnection(proxy);
-      } else {
-        httpUrlConnection = (HttpURLConnection) url.openConnection();
+    long cacheTtl = getCacheTtl();
+    long maxStale = getConfigurationSnapshot().getCacheMaxStale();
+    if (cacheTtl <= 0) {
+      // memoized only, never served stale.
+      cacheTtl = getContentMemoTtl();
+      maxStale = 0;
+    }
+    if (cacheTtl > 0) {
+      long now = System.currentTimeMillis();
+      BVCacheEntry cacheEntry = new BVCacheEntry(
+        content,
+        getCharset().name(),
+        now,
+        now + cacheTtl,
+        now + cacheTtl + maxStale,
+        etag,
+        lastModified
+      );
+      getContentCache().put(path.toString(), cacheEntry);
+      BVDiskCache diskCache = getDiskCache();
+      if (diskCache != null && getCacheTtl() > 0) {
+        diskCache.put(path.toString(), cacheEntry);
       }
+    }
+    return content;
+  }
+
+  private void recordAccess(URI path) {
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    if (snapshot.getHotKeyRefreshCount() <= 0) {
+      return;
+    }
+    BVHotContentRefresher.getInstance(
+      snapshot.getHotKeyRefreshCount(),
+      snapshot.getHotKeyRefreshAhead()
+    ).recordAccess(getCharset().name() + " " + path, path, this);
+  }
+
+  /**
+   * @return the settings {@link BVHotContentRefresher} keeps to load content
+   * of this call again, without the parameters of the call.
+   */
+  BVHotContentRefresher.Source newRefreshSource() {
+    return new BVHotContentRefresher.Source(
+      bvConfiguration,
+      snapshot,
+      contentFetcher,
+      metrics,
+      bvParameters.getContentType()
+    );
+  }
+
+  /**
+   * Sets the user agent sent to the content host in place of the user agent
+   * of the request, for loads that are not made on behalf of a visitor.
+   *
+   * @param fetchUserAgent the user agent.
+   */
+  void setFetchUserAgent(String fetchUserAgent) {
+    this.fetchUserAgent = fetchUserAgent;
+  }
+
+  /**
+   * Loads the content again on the calling thread if its cached copy is
+   * missing or expires within refreshAhead. Used by
+   * {@link BVHotContentRefresher}, whose thread runs the load instead of
+   * BVThreadPool. Nothing is loaded when the content is already being
+   * loaded, when a failure is cached or when the circuit breaker is open.
+   *
+   * @param path the content uri.
+   * @param refreshAhead how long before expiry the content is refreshed.
+   * @return true if the content was loaded.
+   */
+  boolean refreshHotContent(URI path, long refreshAhead) {
+    if (isContentFromFile() || getCacheTtl() <= 0) {
+      return false;
+    }
+    long now = System.currentTimeMillis();
+    BVCacheEntry cacheEntry = getContentCache().get(path.toString());
+    if (
+      cacheEntry != null &&
+      (cacheEntry.isFailure() || cacheEntry.getExpiresAt() - refreshAhead > now)
+    ) {
+      return false;
+    }
+    BVCircuitBreaker circuitBreaker = getCircuitBreaker(path);
+    if (circuitBreaker != null && !circuitBreaker.allowRequest(now)) {
+      return false;
+    }
 
-      httpUrlConnection.setConnectTimeout(connectionTimeout);
-      httpUrlConnection.setReadTimeout(socketTimeout);
-      httpUrlConnection.setRequestProperty(HTTP_HEADER_USER_AGENT, getUserAgent());
-      httpUrlConnection.setRequestProperty(HTTP_HEADER_ACCEPT_ENCODING, HTTP_HEADER_ACCEPT_ENCODING_GZIP);
+    LoadKey loadKey = newLoadKey(path);
+    InFlightLoad load = newLoad(loadKey, path);
+    if (inFlightLoads.putIfAbsent(loadKey, load) != null) {
+      return false;
+    }
+    // a detached load logs its failure once done.
+    load.join(true);
+    load.run();
+    return true;
+  }
 
-      is = httpUrlConnection.getInputStream();
-      String contentEncoding = httpUrlConnection.getContentEncoding();
-      if(contentEncoding != null && contentEncoding.equalsIgnoreCase(HTTP_HEADER_ACCEPT_ENCODING_GZIP)){
-        is = new GZIPInputStream(is);
+  /**
+   * @return the disk cache entry of the uri, moved into the memory cache, or
+   * null.
+   */
+  private BVCacheEntry getDiskCachedEntry(URI path) {
+    BVDiskCache diskCache = getDiskCache();
+    if (diskCache == null) {
+      return null;
+    }
+    BVCacheEntry cacheEntry = diskCache.get(path.toString());
+    if (cacheEntry != null) {
+      getContentCache().put(path.toString(), cacheEntry);
+    }
+    return cacheEntry;
+  }
+
+  /**
+   * @return the cached content of the uri if it has validators to revalidate
+   * it with, or null.
+   */
+  private BVCacheEntry getRevalidationEntry(URI path) {
+    BVCacheEntry cacheEntry = getContentCache().get(path.toString());
+    if (
+      cacheEntry == null ||
+      !cacheEntry.hasValidators() ||
+      !getCharset().name().equals(cacheEntry.getCharset())
+    ) {
+      return null;
+    }
+    return cacheEntry;
+  }
+
+  /**
+   * Caches a failed http load, for
+   * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#CACHE_NOT_FOUND_TTL}
+   * when the content host answered that the content does not exist and for
+   * {@link com.bazaarvoice.seo.sdk.config.BVClientConfig#CACHE_ERROR_TTL}
+   * otherwise. Content that is still served, such as expired content being
+   * refreshed, is not replaced by the failure.
+   */
+  private void cacheFailure(URI path, BVSdkException failure) {
+    boolean notFound =
+      failure instanceof BVFetchException &&
+      !((BVFetchException) failure).isHostFailure();
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    long failureTtl = notFound ?
+      snapshot.getCacheNotFoundTtl() : snapshot.getCacheErrorTtl();
+    String errorCode = failure.getErrorCode();
+    if (failureTtl <= 0 || StringUtils.isBlank(errorCode)) {
+      return;
+    }
+
+    BVContentCache contentCache = getContentCache();
+    BVCacheEntry cacheEntry = contentCache.get(path.toString());
+    if (cacheEntry != null && !cacheEntry.isFailure()) {
+      return;
+    }
+    long now = System.currentTimeMillis();
+    contentCache.put(path.toString(), BVCacheEntry.failure(
+      errorCode,
+      getCharset().name(),
+      now,
+      now + failureTtl
+    ));
+  }
+
+  private boolean isFailureCacheEnabled() {
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    return snapshot.getCacheNotFoundTtl() > 0 || snapshot.getCacheErrorTtl() > 0;
+  }
+
+  /**
+   * Loads the content on BVThreadPool. Concurrent callers asking for the same
+   * content uri share a single load and all receive its result.
+   *
+   * A caller waiting for the result joins the load and must leave it once it
+   * stops waiting. A load left by all its callers before it completes is
+   * cancelled, unless a background refresh joined it.
+   *
+   * @param path the content uri.
+   * @param backgroundRefresh true if no caller waits for the result.
+   * @return the shared load.
+   * @throws BVSdkException ERR0027 when the thread pool is saturated, ERR0029
+   * when the circuit breaker of the content host is open.
+   */
+  private InFlightLoad loadContentInFlight(
+    URI path,
+    boolean backgroundRefresh
+  ) {
+    LoadKey loadKey = newLoadKey(path);
+    while (true) {
+      InFlightLoad load = inFlightLoads.get(loadKey);
+      if (load == null) {
+        BVCircuitBreaker circuitBreaker = getCircuitBreaker(path);
+        if (
+          circuitBreaker != null &&
+          !circuitBreaker.allowRequest(System.currentTimeMillis())
+        ) {
+          metrics.recordShortCircuit(
+            bvParameters.getContentType(),
+            showUserAgentSEOContent()
+          );
+          throw new BVSdkException("ERR0029");
+        }
+        InFlightLoad newLoad = newLoad(loadKey, path);
+        load = inFlightLoads.putIfAbsent(loadKey, newLoad);
+        if (load == null) {
+          newLoad.join(backgroundRefresh);
+          try {
+            ThreadPoolExecutor executorService =
+              BVThreadPool.getThreadPoolExecutor(getConfigurationSnapshot());
+            newLoad.setExecutor(executorService);
+            executorService.execute(newLoad);
+            metrics.recordQueueDepth(executorService.getQueue().size());
+          } catch (RejectedExecutionException e) {
+            inFlightLoads.remove(loadKey, newLoad);
+            throw new BVSdkException("ERR0027");
+          }
+          return newLoad;
+        }
       }
 
-      byte[] byteArray = IOUtils.toByteArray(is);
-      is.close();
+      if (load.join(backgroundRefresh)) {
+        return load;
+      }
+      // a completed or cancelled load may still be registered until its
+      // done() runs.
+      inFlightLoads.remove(loadKey, load);
+    }
+  }
+
+  /**
+   * Loads are only shared by callers with the same configuration, fetcher
+   * and metrics, which therefore see the same caches, circuit breaker and
+   * events.
+   */
+  private LoadKey newLoadKey(URI path) {
+    return new LoadKey(
+      getCharset().name() + " " + path,
+      bvConfiguration,
+      contentFetcher,
+      metrics
+    );
+  }
 
-      if (byteArray == null) {
-        throw new BVSdkException("ERR0025");
+  private InFlightLoad newLoad(LoadKey loadKey, URI path) {
+    final BVFetchRequest fetchRequest =
+      new BVFetchRequest(path, getUserAgent(), getCharset());
+    return new InFlightLoad(
+      loadKey,
+      fetchRequest,
+      new Callable<BVContentTemplate>() {
+        public BVContentTemplate call() {
+          return loadContentFromSource(fetchRequest);
+        }
       }
+    );
+  }
 
-      content = new String(byteArray, charset.name());
-    } catch (MalformedURLException e) {
-      // TODO: handle this.
-    } catch (IOException e) {
-      // Error stream needs to be read fully to keep the connection persistent on exceptions
-      handleErrorStream(httpUrlConnection);
-      if (e instanceof SocketTimeoutException) {
-        throw new BVSdkException(e.getMessage());
+  /**
+   * @return the shared circuit breaker of the content host, or null if the
+   * breaker is disabled or the content is not loaded over http.
+   */
+  private BVCircuitBreaker getCircuitBreaker(URI path) {
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    if (
+      snapshot.getCircuitBreakerFailures() <= 0 ||
+      path.getAuthority() == null ||
+      isContentFromFile()
+    ) {
+      return null;
+    }
+    return BVCircuitBreaker.getInstance(
+      path.getAuthority(),
+      snapshot.getCircuitBreakerFailures(),
+      snapshot.getCircuitBreakerCoolDown()
+    );
+  }
+
+  /**
+   * Reports the outcome of a fetch to the circuit breaker of its host. A
+   * {@link BVFetchException} tells whether the host answered, other failures
+   * are not counted either way.
+   *
+   * @param failure the failure of the fetch, or null if it succeeded.
+   */
+  private void recordFetchOutcome(URI path, BVSdkException failure) {
+    BVCircuitBreaker circuitBreaker = getCircuitBreaker(path);
+    if (circuitBreaker == null) {
+      return;
+    }
+    if (failure == null) {
+      circuitBreaker.recordSuccess();
+    } else if (failure instanceof BVFetchException) {
+      if (((BVFetchException) failure).isHostFailure()) {
+        recordHostFailure(path);
       } else {
-        throw new BVSdkException("ERR0012");
+        circuitBreaker.recordSuccess();
       }
-    } catch (BVSdkException bve) {
-      throw bve;
-    } finally {
-      IOUtils.closeQuietly(is);
     }
+  }
 
-    boolean isValidContent = BVUtility.validateBVContent(content);
-    if (!isValidContent) {
-      throw new BVSdkException("ERR0025");
+  /**
+   * Counts a failure or a timeout against the circuit breaker of the host.
+   */
+  private void recordHostFailure(URI path) {
+    BVCircuitBreaker circuitBreaker = getCircuitBreaker(path);
+    if (
+      circuitBreaker != null &&
+      circuitBreaker.recordFailure(System.currentTimeMillis())
+    ) {
+      BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+      LOGGER.warn(MessageFormat.format(
+        BVMessageUtil.getMessage("MSG0009"),
+        new Object[]{
+          path.getAuthority(),
+          snapshot.getCircuitBreakerFailures(),
+          String.valueOf(snapshot.getCircuitBreakerCoolDown())
+        }
+      ));
     }
+  }
 
-    return content;
+  /**
+   * Counts a caller giving up on a load as a host failure, once per load.
+   */
+  private void recordLoadTimeout(InFlightLoad load) {
+    if (load.markTimedOut()) {
+      recordHostFailure(load.getUri());
+    }
+  }
+
+  private long getCacheTtl() {
+    return getConfigurationSnapshot().getCacheTtl();
+  }
+
+  private long getContentMemoTtl() {
+    return getConfigurationSnapshot().getContentMemoTtl();
+  }
+
+  private BVContentCache getContentCache() {
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    return BVContentCache.getInstance(
+      snapshot.getCacheMaxEntries(),
+      snapshot.getCacheMaxBytes()
+    );
   }
 
   /**
-   * Handle errorStream on httpConnection to help with Keep-Alive.
-   * In order to help with Keep-Alive, we need to call getErrorStream()
-   * and get the response body. This method needs to be called when IOException occurs.
-   * http://docs.oracle.com/javase/7/docs/technotes/guides/net/http-keepalive.html
-   *
-   * @param httpUrlConnection the connection to get the error stream
+   * @return the disk cache of the configured directory, or null when the
+   * disk cache is disabled.
+   */
+  private BVDiskCache getDiskCache() {
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    String directory = snapshot.getDiskCacheDirectory();
+    if (StringUtils.isBlank(directory) || "none".equalsIgnoreCase(directory)) {
+      return null;
+    }
+    return BVDiskCache.getInstance(
+      new File(directory),
+      snapshot.getDiskCacheMaxBytes()
+    );
+  }
+
+  private Charset getCharset() {
+    return getConfigurationSnapshot().getCharset();
+  }
+
+  /**
+   * Fetches the content and validates it. A not modified response is only
+   * accepted for a request with validators.
    */
-  private void handleErrorStream(final HttpURLConnection httpUrlConnection) {
-    InputStream es = null;
+  private BVFetchResponse loadContentFromHttp(BVFetchRequest fetchRequest) {
+    ContentType contentType = bvParameters.getContentType();
+    boolean isSearchBot = showUserAgentSEOContent();
+    long startTime = System.currentTimeMillis();
+    BVFetchResponse response;
     try {
-      es = httpUrlConnection.getErrorStream();
-      if (es != null) {
-        IOUtils.toByteArray(es);
+      response = getContentFetcher().fetch(fetchRequest);
+    } catch (BVSdkException e) {
+      if (!fetchRequest.isAborted()) {
+        metrics.recordFetchError(contentType, isSearchBot, e.getErrorCode());
+        recordFetchOutcome(fetchRequest.getUri(), e);
       }
-    } catch (IOException ioe) {
-      // Swallow any errors.
-    } finally {
-      IOUtils.closeQuietly(es);
+      throw e;
     }
+    recordFetchOutcome(fetchRequest.getUri(), null);
+    metrics.recordFetch(
+      contentType,
+      isSearchBot,
+      System.currentTimeMillis() - startTime,
+      response.getContentLength()
+    );
+
+    if (response.isNotModified() && fetchRequest.hasValidators()) {
+      return response;
+    }
+
+    boolean isValidContent =
+      response.getContent() != null &&
+      BVUtility.validateBVContent(response.getContent());
+    if (!isValidContent) {
+      metrics.recordFetchError(contentType, isSearchBot, "ERR0025");
+      throw new BVSdkException("ERR0025");
+    }
+
+    return response;
+  }
+
+  private BVContentFetcher getContentFetcher() {
+    if (contentFetcher == null) {
+      contentFetcher = BVHttpClientContentFetcher.getInstance(getConfigurationSnapshot());
+    }
+    return contentFetcher;
   }
 
   private String loadContentFromFile(URI path) {
@@ -274,7 +811,7 @@ public class BVUIContentServiceProvider
       File file = new File(path);
       content = FileUtils.readFileToString(
         file,
-        bvConfiguration.getProperty(BVClientConfig.CHARSET.getPropertyName())
+        getConfigurationSnapshot().getCharsetName()
       );
     } catch (IOException e) {
       throw new BVSdkException("ERR0012");
@@ -284,10 +821,8 @@ public class BVUIContentServiceProvider
   }
 
   private void includeIntegrationCode(StringBuilder uiContent) {
-    String includeScriptStr = bvConfiguration.getProperty(
-      BVClientConfig.INCLUDE_DISPLAY_INTEGRATION_CODE.getPropertyName()
-    );
-    boolean includeIntegrationScript = Boolean.parseBoolean(includeScriptStr);
+    boolean includeIntegrationScript =
+      getConfigurationSnapshot().isIncludeDisplayIntegrationCode();
 
     if (!includeIntegrationScript) {
       return;
@@ -313,21 +848,10 @@ public class BVUIContentServiceProvider
       return false;
     }
 
-    String crawlerAgentPattern = bvConfiguration.getProperty(
-      BVClientConfig.CRAWLER_AGENT_PATTERN.getPropertyName()
-    );
-    if (!StringUtils.isBlank(crawlerAgentPattern)) {
-      crawlerAgentPattern = ".*(" + crawlerAgentPattern + ").*";
-    }
-    Pattern pattern = Pattern.compile(
-      crawlerAgentPattern,
-      Pattern.CASE_INSENSITIVE
-    );
     LOGGER.debug("userAgent is : " + bvParameters.getUserAgent());
 
-    return (
-      pattern.matcher(bvParameters.getUserAgent()).matches() ||
-        bvParameters.getUserAgent().toLowerCase().contains("google")
+    return getConfigurationSnapshot().getCrawlerAgentMatcher().isCrawler(
+      bvParameters.getUserAgent()
     );
   }
 
@@ -341,9 +865,7 @@ public class BVUIContentServiceProvider
 
   public boolean isSdkEnabled() {
     if (sdkEnabled == null) {
-      sdkEnabled = Boolean.parseBoolean(bvConfiguration.getProperty(
-        BVClientConfig.SEO_SDK_ENABLED.getPropertyName()
-      ));
+      sdkEnabled = getConfigurationSnapshot().isSeoSdkEnabled();
       sdkEnabled = sdkEnabled || BVUtility.isRevealDebugEnabled(bvParameters);
     }
 
@@ -360,19 +882,35 @@ public class BVUIContentServiceProvider
    * @return
    */
   public StringBuilder executeCall() {
+    return executeCall(BVContentView.CONTENT);
+  }
+
+  public boolean isSectionFound() {
+    return sectionFound;
+  }
+
+  public StringBuilder executeCall(BVContentView view) {
+    StringBuilder uiContent = new StringBuilder();
+    try {
+      return executeCall(view, uiContent) ? uiContent : null;
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public boolean executeCall(BVContentView view, Appendable out)
+    throws IOException {
+    sectionFound = false;
 
     boolean isSearchBot = showUserAgentSEOContent();
-    long executionTimeout = isSearchBot ? Long.parseLong(
-      bvConfiguration.getProperty(
-        BVClientConfig.EXECUTION_TIMEOUT_BOT.getPropertyName()
-      )
-    ) : Long.parseLong(bvConfiguration.getProperty(
-      BVClientConfig.EXECUTION_TIMEOUT.getPropertyName()
-    ));
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    long executionTimeout = isSearchBot ?
+      snapshot.getExecutionTimeoutBot() : snapshot.getExecutionTimeout();
 
     if (!isSearchBot && executionTimeout == 0) {
       message.append(BVMessageUtil.getMessage("MSG0004"));
-      return null;
+      return false;
     }
 
     if (isSearchBot && executionTimeout < 100) {
@@ -380,18 +918,43 @@ public class BVUIContentServiceProvider
       message.append(BVMessageUtil.getMessage("MSG0005"));
     }
 
-    ExecutorService executorService = BVThreadPool.getExecutorService();
-    Future<StringBuilder> future = executorService.submit(this);
-
+    // Nothing is written until the content is loaded, so a timeout leaves the
+    // output untouched.
+    StringBuilder integrationCode = new StringBuilder();
     try {
-      return future.get(executionTimeout, TimeUnit.MILLISECONDS);
+      // Includes integration script if one is enabled.
+      includeIntegrationCode(integrationCode);
+      URI seoContentUrl = bvSeoSdkUrl.seoContentUri();
+      BVContentTemplate content = getCachedContent(seoContentUrl);
+      if (content == null) {
+        InFlightLoad load = loadContentInFlight(seoContentUrl, false);
+        try {
+          content = load.get(executionTimeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+          recordLoadTimeout(load);
+          throw e;
+        } finally {
+          // Cancels the load and aborts its fetch if nobody else waits for it.
+          load.leave();
+        }
+      }
+      String pageUri = BVUtility.getPageUri(bvSeoSdkUrl.correctedBaseUri());
+      renderContent(out, integrationCode, content, pageUri, view);
+      return true;
+    } catch (BVSdkException e) {
+      message.append(e.getMessage());
+      out.append(integrationCode);
+      return true;
     } catch (InterruptedException e) {
-      // TODO: handle this.
+      Thread.currentThread().interrupt();
     } catch (ExecutionException e) {
       if (e.getCause() instanceof BVSdkException) {
-        throw new BVSdkException(e.getCause().getMessage());
+        message.append(e.getCause().getMessage());
+        out.append(integrationCode);
+        return true;
       }
     } catch (TimeoutException e) {
+      metrics.recordTimeout(bvParameters.getContentType(), isSearchBot);
       String err = isSearchBot ? "ERR0026" : "ERR0018";
       message.append(MessageFormat.format(
         BVMessageUtil.getMessage(err),
@@ -399,15 +962,357 @@ public class BVUIContentServiceProvider
       ));
     }
     /*
-     * Returning empty StringBuilder in error case to provide backwards compatibility
+     * Writing no content in error case to provide backwards compatibility
      * after removing size 1 cache for SEO-1194. This is a slight change in behavior in
      * that previously the previous uiContent value would have been returned.
      */
 
-    return new StringBuilder();
+    return true;
+  }
+
+  /**
+   * Loads the content into the cache, replacing content that is already
+   * cached, and waits for it up to the search bot execution timeout. A load
+   * already running for the content is joined instead.
+   *
+   * @param seoContentUrl the content uri of the parameters.
+   * @throws BVSdkException when the content could not be loaded.
+   * @throws TimeoutException when the load did not complete in time.
+   * @see BVCacheWarmer
+   */
+  void warmUp(URI seoContentUrl)
+    throws TimeoutException, InterruptedException {
+    long executionTimeout = getConfigurationSnapshot().getExecutionTimeoutBot();
+    InFlightLoad load = loadContentInFlight(seoContentUrl, false);
+    try {
+      load.get(executionTimeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      recordLoadTimeout(load);
+      throw e;
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof BVSdkException) {
+        throw (BVSdkException) e.getCause();
+      }
+      throw new BVSdkException("ERR0012");
+    } finally {
+      load.leave();
+    }
+  }
+
+  /**
+   * Asynchronous variant of {@link #executeCall(BVContentView)}.
+   *
+   * The content load runs on BVThreadPool and the returned future completes
+   * on the loading thread. When the execution timeout expires first, the
+   * future completes on the BVThreadPool timer thread with no content and
+   * the timeout message, and the load is cancelled if nobody else waits for
+   * it.
+   */
+  public BVContentFuture executeCallAsync(final BVContentView view) {
+    sectionFound = false;
+    final BVContentFuture result = new BVContentFuture();
+
+    final boolean isSearchBot = showUserAgentSEOContent();
+    BVConfigurationSnapshot snapshot = getConfigurationSnapshot();
+    long timeout = isSearchBot ?
+      snapshot.getExecutionTimeoutBot() : snapshot.getExecutionTimeout();
+
+    if (!isSearchBot && timeout == 0) {
+      message.append(BVMessageUtil.getMessage("MSG0004"));
+      result.complete(null);
+      return result;
+    }
+
+    if (isSearchBot && timeout < 100) {
+      timeout = 100;
+      message.append(BVMessageUtil.getMessage("MSG0005"));
+    }
+    final long executionTimeout = timeout;
+
+    final StringBuilder integrationCode = new StringBuilder();
+    final InFlightLoad load;
+    try {
+      // Includes integration script if one is enabled.
+      includeIntegrationCode(integrationCode);
+      URI seoContentUrl = bvSeoSdkUrl.seoContentUri();
+      BVContentTemplate content = getCachedContent(seoContentUrl);
+      if (content != null) {
+        result.complete(render(integrationCode, content, view));
+        return result;
+      }
+      load = loadContentInFlight(seoContentUrl, false);
+    } catch (BVSdkException e) {
+      message.append(e.getMessage());
+      result.complete(integrationCode.toString());
+      return result;
+    }
+
+    // Either the load or the timeout completes the call, whichever is first.
+    final AtomicBoolean finished = new AtomicBoolean();
+    final ScheduledFuture<?> timer = BVThreadPool.getScheduler().schedule(
+      new Runnable() {
+        public void run() {
+          if (!finished.compareAndSet(false, true)) {
+            return;
+          }
+          recordLoadTimeout(load);
+          // Cancels the load and aborts its fetch if nobody else waits for it.
+          load.leave();
+          metrics.recordTimeout(bvParameters.getContentType(), isSearchBot);
+          String err = isSearchBot ? "ERR0026" : "ERR0018";
+          message.append(MessageFormat.format(
+            BVMessageUtil.getMessage(err),
+            new Object[]{executionTimeout}
+          ));
+          result.complete("");
+        }
+      },
+      executionTimeout,
+      TimeUnit.MILLISECONDS
+    );
+    load.addListener(new Runnable() {
+      public void run() {
+        if (!finished.compareAndSet(false, true)) {
+          return;
+        }
+        timer.cancel(false);
+        // Java 6 keeps cancelled tasks queued until their delay passes, and
+        // the timer holds on to the rendered content.
+        BVThreadPool.getScheduler().remove((Runnable) timer);
+        load.leave();
+        result.complete(renderLoaded(load, integrationCode, view));
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Renders the result of a completed load the way executeCall does.
+   */
+  private String renderLoaded(
+    InFlightLoad load,
+    StringBuilder integrationCode,
+    BVContentView view
+  ) {
+    try {
+      return render(integrationCode, load.get(), view);
+    } catch (BVSdkException e) {
+      message.append(e.getMessage());
+      return integrationCode.toString();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof BVSdkException) {
+        message.append(e.getCause().getMessage());
+        return integrationCode.toString();
+      }
+    } catch (CancellationException e) {
+      // cancelled by a timed out caller while this call was finishing.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return "";
+  }
+
+  private String render(
+    StringBuilder integrationCode,
+    BVContentTemplate content,
+    BVContentView view
+  ) {
+    StringBuilder uiContent = new StringBuilder();
+    String pageUri = BVUtility.getPageUri(bvSeoSdkUrl.correctedBaseUri());
+    try {
+      renderContent(uiContent, integrationCode, content, pageUri, view);
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
+    }
+    return uiContent.toString();
   }
 
   public StringBuilder getMessage() {
     return message;
   }
+
+  /**
+   * Load of a content uri shared by every caller asking for the same content
+   * uri while it runs. The load unregisters itself once it is done.
+   */
+  private static final class InFlightLoad
+    extends FutureTask<BVContentTemplate> {
+
+    private final LoadKey loadKey;
+    private final BVFetchRequest fetchRequest;
+    private int waiters;
+    private boolean detached;
+    private boolean abandoned;
+    private boolean timedOut;
+    private volatile ThreadPoolExecutor executor;
+    private List<Runnable> listeners = new ArrayList<Runnable>();
+
+    InFlightLoad(
+      LoadKey loadKey,
+      BVFetchRequest fetchRequest,
+      Callable<BVContentTemplate> callable
+    ) {
+      super(callable);
+      this.loadKey = loadKey;
+      this.fetchRequest = fetchRequest;
+    }
+
+    /**
+     * Joins the load.
+     *
+     * @param backgroundRefresh true if the caller does not wait for the
+     * result, which keeps the load running until it completes.
+     * @return false if the load already completed or was cancelled.
+     */
+    synchronized boolean join(boolean backgroundRefresh) {
+      if (isDone() || abandoned) {
+        return false;
+      }
+      if (backgroundRefresh) {
+        detached = true;
+      } else {
+        waiters++;
+      }
+      return true;
+    }
+
+    /**
+     * Leaves the load, cancelling it when the last waiting caller leaves.
+     */
+    synchronized void leave() {
+      waiters--;
+      if (waiters == 0 && !detached) {
+        abandoned = true;
+        cancel(true);
+      }
+    }
+
+    /**
+     * @param executor pool the load is queued on, which a cancelled load is
+     * removed from so that it no longer takes a queue slot.
+     */
+    void setExecutor(ThreadPoolExecutor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      boolean cancelled = super.cancel(mayInterruptIfRunning);
+      if (cancelled) {
+        fetchRequest.abort();
+        ThreadPoolExecutor queuedOn = executor;
+        if (queuedOn != null) {
+          queuedOn.remove(this);
+        }
+      }
+      return cancelled;
+    }
+
+    /**
+     * Marks that a caller gave up waiting for the load.
+     *
+     * @return true for the first caller giving up.
+     */
+    synchronized boolean markTimedOut() {
+      if (timedOut) {
+        return false;
+      }
+      timedOut = true;
+      return true;
+    }
+
+    URI getUri() {
+      return fetchRequest.getUri();
+    }
+
+    /**
+     * Runs the listener once the load is done, right away if it already is.
+     */
+    void addListener(Runnable listener) {
+      synchronized (this) {
+        if (listeners != null) {
+          listeners.add(listener);
+          return;
+        }
+      }
+      listener.run();
+    }
+
+    @Override
+    protected void done() {
+      inFlightLoads.remove(loadKey, this);
+      List<Runnable> toRun;
+      synchronized (this) {
+        toRun = listeners;
+        listeners = null;
+      }
+      for (Runnable listener : toRun) {
+        listener.run();
+      }
+      if (!isDetached() || isCancelled()) {
+        return;
+      }
+
+      try {
+        get();
+      } catch (ExecutionException e) {
+        LOGGER.warn(MessageFormat.format(
+          BVMessageUtil.getMessage("MSG0008"),
+          new Object[]{loadKey, e.getCause().getMessage()}
+        ));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private synchronized boolean isDetached() {
+      return detached;
+    }
+  }
+
+  /**
+   * Content uri and charset of a load with the identity of the configuration,
+   * fetcher and metrics of the caller which started it.
+   */
+  private static final class LoadKey {
+    private final String path;
+    private final BVConfiguration bvConfiguration;
+    private final BVContentFetcher contentFetcher;
+    private final BVMetrics metrics;
+
+    LoadKey(
+      String path,
+      BVConfiguration bvConfiguration,
+      BVContentFetcher contentFetcher,
+      BVMetrics metrics
+    ) {
+      this.path = path;
+      this.bvConfiguration = bvConfiguration;
+      this.contentFetcher = contentFetcher;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof LoadKey)) {
+        return false;
+      }
+      LoadKey other = (LoadKey) obj;
+      return path.equals(other.path) &&
+        bvConfiguration == other.bvConfiguration &&
+        contentFetcher == other.contentFetcher &&
+        metrics == other.metrics;
+    }
+
+    @Override
+    public int hashCode() {
+      return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return path;
+    }
+  }
 }
@@ -0,0 +1,48 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+
+import java.net.URI;
+
+/**
+ * Progress callback of a {@link BVCacheWarmer}. Methods are invoked on the
+ * warm-up threads and must be thread safe.
+ */
+public interface BVWarmUpListener {
+
+  /**
+   * Invoked once the content of a subject is in the cache.
+   *
+   * @param bvParameters the subject.
+   * @param seoContentUri the loaded content uri.
+   */
+  void onLoaded(BVParameters bvParameters, URI seoContentUri);
+
+  /**
+   * Invoked when the content of a subject could not be loaded.
+   *
+   * @param bvParameters the subject.
+   * @param message the reason.
+   */
+  void onFailed(BVParameters bvParameters, String message);
+}
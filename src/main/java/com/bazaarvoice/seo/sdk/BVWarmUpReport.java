@@ -0,0 +1,94 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link BVCacheWarmer} run.
+ */
+public final class BVWarmUpReport {
+
+  private final int loaded;
+  private final int failed;
+  private final Map<String, String> failures;
+  private final int omittedFailures;
+  private final long elapsedMillis;
+  private final boolean interrupted;
+
+  BVWarmUpReport(
+    int loaded,
+    int failed,
+    Map<String, String> failures,
+    int omittedFailures,
+    long elapsedMillis,
+    boolean interrupted
+  ) {
+    this.loaded = loaded;
+    this.failed = failed;
+    this.failures = Collections.unmodifiableMap(failures);
+    this.omittedFailures = omittedFailures;
+    this.elapsedMillis = elapsedMillis;
+    this.interrupted = interrupted;
+  }
+
+  /**
+   * @return number of subjects whose content was loaded into the cache.
+   */
+  public int getLoaded() {
+    return loaded;
+  }
+
+  public int getFailed() {
+    return failed;
+  }
+
+  /**
+   * @return reason of every failed subject, keyed by its content uri, or by
+   * its page uri or subject id when it has no content uri, in the order the
+   * failures happened. A subject failing more than once keeps its last
+   * reason. Only the first 100 failed subjects are kept.
+   */
+  public Map<String, String> getFailures() {
+    return failures;
+  }
+
+  /**
+   * @return number of failures left out of {@link #getFailures()} once it
+   * was full.
+   */
+  public int getOmittedFailures() {
+    return omittedFailures;
+  }
+
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * @return true if the warm-up was interrupted before every subject was
+   * loaded.
+   */
+  public boolean isInterrupted() {
+    return interrupted;
+  }
+}
@@ -0,0 +1,240 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import com.bazaarvoice.seo.sdk.content.BVContentTemplate;
+
+/**
+ * Immutable entry of {@link BVContentCache}.
+ *
+ * Holds the seo content of a single content uri along with the charset it
+ * was decoded with, the time it expires and the time until which it may still
+ * be served while it is being refreshed or while the content host is failing.
+ * The content is held as a {@link BVContentTemplate} so it is split only once
+ * no matter how many times it is rendered. The ETag and Last-Modified
+ * validators of the content are kept to revalidate it once it expires.
+ *
+ * A failure entry, see {@link #failure(String, String, long, long)}, holds
+ * the error code of a failed load instead of content so the failure is
+ * reported again without reaching the content host. It is never served
+ * stale.
+ */
+public final class BVCacheEntry {
+
+  private final BVContentTemplate template;
+  private final String errorCode;
+  private final String charset;
+  private final String etag;
+  private final String lastModified;
+  private final long cachedAt;
+  private final long expiresAt;
+  private final long staleUntil;
+
+  public BVCacheEntry(
+    String content,
+    String charset,
+    long cachedAt,
+    long expiresAt
+  ) {
+    this(content, charset, cachedAt, expiresAt, expiresAt);
+  }
+
+  public BVCacheEntry(
+    String content,
+    String charset,
+    long cachedAt,
+    long expiresAt,
+    long staleUntil
+  ) {
+    this(
+      BVContentTemplate.parse(content),
+      charset,
+      cachedAt,
+      expiresAt,
+      staleUntil
+    );
+  }
+
+  public BVCacheEntry(
+    BVContentTemplate template,
+    String charset,
+    long cachedAt,
+    long expiresAt,
+    long staleUntil
+  ) {
+    this(template, charset, cachedAt, expiresAt, staleUntil, null, null);
+  }
+
+  /**
+   * @param etag ETag of the content, or null.
+   * @param lastModified Last-Modified of the content, or null.
+   */
+  public BVCacheEntry(
+    BVContentTemplate template,
+    String charset,
+    long cachedAt,
+    long expiresAt,
+    long staleUntil,
+    String etag,
+    String lastModified
+  ) {
+    this(
+      template,
+      null,
+      charset,
+      cachedAt,
+      expiresAt,
+      staleUntil,
+      etag,
+      lastModified
+    );
+  }
+
+  private BVCacheEntry(
+    BVContentTemplate template,
+    String errorCode,
+    String charset,
+    long cachedAt,
+    long expiresAt,
+    long staleUntil,
+    String etag,
+    String lastModified
+  ) {
+    this.template = template;
+    this.errorCode = errorCode;
+    this.charset = charset;
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.cachedAt = cachedAt;
+    this.expiresAt = expiresAt;
+    this.staleUntil = Math.max(expiresAt, staleUntil);
+  }
+
+  /**
+   * Creates an entry for a failed load.
+   *
+   * @param errorCode error code of the failure, such as ERR0012.
+   * @param charset charset of the failed load.
+   * @param cachedAt time the load failed.
+   * @param expiresAt time until which the failure is reported again.
+   * @return failure entry.
+   */
+  public static BVCacheEntry failure(
+    String errorCode,
+    String charset,
+    long cachedAt,
+    long expiresAt
+  ) {
+    return new BVCacheEntry(
+      null,
+      errorCode,
+      charset,
+      cachedAt,
+      expiresAt,
+      expiresAt,
+      null,
+      null
+    );
+  }
+
+  /**
+   * @return content, or null for a failure entry.
+   */
+  public String getContent() {
+    return template == null ? null : template.getContent();
+  }
+
+  public BVContentTemplate getTemplate() {
+    return template;
+  }
+
+  public boolean isFailure() {
+    return template == null;
+  }
+
+  /**
+   * @return error code of a failure entry, or null.
+   */
+  public String getErrorCode() {
+    return errorCode;
+  }
+
+  public String getCharset() {
+    return charset;
+  }
+
+  /**
+   * @return ETag of the content, or null.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * @return Last-Modified of the content, or null.
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  /**
+   * @return true if the content can be revalidated with the content host.
+   */
+  public boolean hasValidators() {
+    return !isFailure() && (etag != null || lastModified != null);
+  }
+
+  public long getCachedAt() {
+    return cachedAt;
+  }
+
+  public long getExpiresAt() {
+    return expiresAt;
+  }
+
+  public long getStaleUntil() {
+    return staleUntil;
+  }
+
+  public boolean isExpired(long now) {
+    return now >= expiresAt;
+  }
+
+  /**
+   * Checks if the entry may still be served, either because it is fresh or
+   * because it is expired but still within its stale window.
+   *
+   * @param now current time in milliseconds.
+   * @return true if the entry may be served.
+   */
+  public boolean isServable(long now) {
+    return now < staleUntil;
+  }
+
+  /**
+   * Approximate number of bytes the entry occupies on the heap.
+   *
+   * @return two bytes for every character of the content or error code.
+   */
+  public long getWeight() {
+    String content = isFailure() ? errorCode : template.getContent();
+    return content == null ? 0 : 2L * content.length();
+  }
+}
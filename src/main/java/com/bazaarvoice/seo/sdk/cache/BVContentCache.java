@@ -0,0 +1,192 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread safe, in memory cache of seo content keyed on the resolved content
+ * uri.
+ *
+ * The cache is bounded both by the number of entries and by the total size of
+ * the cached content. When either bound is exceeded the least recently used
+ * entries are evicted. Expired entries are retained for their stale window so
+ * that they can be served while they are refreshed and are dropped when they
+ * are looked up past that window.
+ *
+ * Lookups take no lock: entries live in a ConcurrentHashMap and a lookup only
+ * stamps the entry with a tick of an access counter. Puts and removals are
+ * serialized, and an eviction scans the entries for the oldest stamp, which
+ * keeps the eviction order least recently used at a cost that only writes
+ * pay.
+ *
+ * Instances are shared across requests through {@link #getInstance(int, long)}
+ * so that every BVUIContentServiceProvider with the same bounds uses the same
+ * cache.
+ */
+public class BVContentCache {
+
+  private static final ConcurrentMap<String, BVContentCache> sharedCaches =
+    new ConcurrentHashMap<String, BVContentCache>();
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final ConcurrentMap<String, Node> entries =
+    new ConcurrentHashMap<String, Node>();
+  private final AtomicLong accessClock = new AtomicLong();
+  private final Object writeLock = new Object();
+  private volatile long totalBytes;
+
+  public BVContentCache(int maxEntries, long maxBytes) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * Gets the shared cache for the given bounds, creating it on first use.
+   *
+   * @param maxEntries maximum number of entries held by the cache.
+   * @param maxBytes maximum total size of the cached content in bytes.
+   * @return shared cache instance.
+   */
+  public static BVContentCache getInstance(int maxEntries, long maxBytes) {
+    String cacheKey = maxEntries + ":" + maxBytes;
+    BVContentCache cache = sharedCaches.get(cacheKey);
+    if (cache == null) {
+      BVContentCache newCache = new BVContentCache(maxEntries, maxBytes);
+      cache = sharedCaches.putIfAbsent(cacheKey, newCache);
+      if (cache == null) {
+        cache = newCache;
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Gets the entry for the key if there is one which may still be served.
+   * The entry may be expired, callers check {@link BVCacheEntry#isExpired(long)}
+   * to decide whether it needs to be refreshed.
+   *
+   * @param key the content uri.
+   * @return cached entry or null.
+   */
+  public BVCacheEntry get(String key) {
+    Node node = entries.get(key);
+    if (node == null) {
+      return null;
+    }
+
+    if (!node.entry.isServable(System.currentTimeMillis())) {
+      remove(key, node);
+      return null;
+    }
+    node.lastAccess = accessClock.incrementAndGet();
+    return node.entry;
+  }
+
+  /**
+   * Adds or replaces the entry for the key and evicts the least recently used
+   * entries until the cache is within its bounds again. Entries which are
+   * bigger than the whole cache are not stored.
+   *
+   * @param key the content uri.
+   * @param entry entry to cache.
+   */
+  public void put(String key, BVCacheEntry entry) {
+    synchronized (writeLock) {
+      remove(key);
+      if (entry.getWeight() > maxBytes) {
+        return;
+      }
+
+      Node node = new Node(key, entry);
+      node.lastAccess = accessClock.incrementAndGet();
+      entries.put(key, node);
+      totalBytes += entry.getWeight();
+      evict();
+    }
+  }
+
+  public BVCacheEntry remove(String key) {
+    synchronized (writeLock) {
+      Node node = entries.remove(key);
+      if (node == null) {
+        return null;
+      }
+      totalBytes -= node.entry.getWeight();
+      return node.entry;
+    }
+  }
+
+  public void clear() {
+    synchronized (writeLock) {
+      entries.clear();
+      totalBytes = 0;
+    }
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  private void remove(String key, Node node) {
+    synchronized (writeLock) {
+      if (entries.remove(key, node)) {
+        totalBytes -= node.entry.getWeight();
+      }
+    }
+  }
+
+  private void evict() {
+    while (entries.size() > maxEntries || totalBytes > maxBytes) {
+      Node oldest = null;
+      for (Node node : entries.values()) {
+        if (oldest == null || node.lastAccess < oldest.lastAccess) {
+          oldest = node;
+        }
+      }
+      if (oldest == null) {
+        return;
+      }
+      entries.remove(oldest.key);
+      totalBytes -= oldest.entry.getWeight();
+    }
+  }
+
+  /**
+   * Cached entry with the tick of its latest access.
+   */
+  private static final class Node {
+    private final String key;
+    private final BVCacheEntry entry;
+    private volatile long lastAccess;
+
+    Node(String key, BVCacheEntry entry) {
+      this.key = key;
+      this.entry = entry;
+    }
+  }
+}
@@ -0,0 +1,658 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import com.bazaarvoice.seo.sdk.content.BVContentTemplate;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Second level seo content cache on the local disk, kept across restarts.
+ *
+ * Entries are appended gzip compressed to segment files in the cache
+ * directory, and an in-memory index maps every content uri to its latest
+ * record. Opening the cache rebuilds the index from the record headers
+ * without reading the content, so a restarted node serves its cached content
+ * right away instead of fetching every product from the content host. Reads
+ * use positional {@link FileChannel} reads and are not serialized. Entries
+ * are compressed and appended on a writer thread of the cache, which nobody
+ * interrupts, so a cancelled content load cannot close a segment file; when
+ * the writer falls behind new entries are dropped.
+ *
+ * Once the segments exceed the size bound the oldest segment is deleted
+ * along with the entries it holds. A record that was cut short, such as by a
+ * crash during a write, ends the scan of its segment, and a record whose
+ * checksum does not match is dropped when it is read. I/O failures are
+ * logged and treated as misses.
+ *
+ * Instances are shared across requests through
+ * {@link #getInstance(File, long)}, one for every directory.
+ */
+public class BVDiskCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BVDiskCache.class);
+  private static final ConcurrentMap<String, BVDiskCache> sharedCaches =
+    new ConcurrentHashMap<String, BVDiskCache>();
+
+  private static final int RECORD_MAGIC = 0xB5E0C0DE;
+  private static final int RECORD_PREFIX_LENGTH = 12;
+  private static final int RECORD_CHECKSUM_LENGTH = 4;
+  private static final long MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+  private static final String SEGMENT_PREFIX = "bvseo-";
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String CONTENT_CHARSET = "UTF-8";
+  private static final int MAX_PENDING_WRITES = 1000;
+
+  private final File directory;
+  private final long maxBytes;
+  private final long segmentBytes;
+  private final ConcurrentMap<String, Location> index =
+    new ConcurrentHashMap<String, Location>();
+  private final ConcurrentSkipListMap<Long, Segment> segments =
+    new ConcurrentSkipListMap<Long, Segment>();
+  private final ThreadPoolExecutor writer;
+  private Segment activeSegment;
+  private long totalBytes;
+  private volatile boolean open;
+
+  /**
+   * Opens the cache in the directory, creating the directory if needed. If
+   * the directory cannot be used the failure is logged and the cache stays
+   * empty.
+   *
+   * @param directory directory of the segment files.
+   * @param maxBytes maximum total size of the segment files.
+   */
+  public BVDiskCache(File directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.segmentBytes = Math.max(1, Math.min(MAX_SEGMENT_BYTES, maxBytes / 4));
+    this.writer = new ThreadPoolExecutor(
+      1,
+      1,
+      0,
+      TimeUnit.MILLISECONDS,
+      new LinkedBlockingQueue<Runnable>(MAX_PENDING_WRITES),
+      new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "bvseo-sdk-disk-cache-writer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      },
+      new RejectedExecutionHandler() {
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+          // the writer is behind or closed, the entry is not stored.
+          if (runnable instanceof Future) {
+            ((Future<?>) runnable).cancel(false);
+          }
+        }
+      }
+    );
+    try {
+      openSegments();
+      open = true;
+    } catch (IOException e) {
+      logFailure(e);
+      close();
+    }
+  }
+
+  /**
+   * Gets the shared cache of the directory, opening it on first use.
+   *
+   * @param directory directory of the segment files.
+   * @param maxBytes maximum total size of the segment files.
+   * @return shared cache instance.
+   */
+  public static BVDiskCache getInstance(File directory, long maxBytes) {
+    String cacheKey = directory.getAbsolutePath();
+    BVDiskCache cache = sharedCaches.get(cacheKey);
+    if (cache == null) {
+      synchronized (sharedCaches) {
+        cache = sharedCaches.get(cacheKey);
+        if (cache == null) {
+          // opened once, two instances must not append to the same files.
+          cache = new BVDiskCache(directory, maxBytes);
+          sharedCaches.put(cacheKey, cache);
+        }
+      }
+    }
+    return cache;
+  }
+
+  /**
+   * Gets the entry for the key if there is one which may still be served.
+   *
+   * @param key the content uri.
+   * @return cached entry or null.
+   */
+  public BVCacheEntry get(String key) {
+    Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    if (!location.header.isServable(System.currentTimeMillis())) {
+      index.remove(key, location);
+      return null;
+    }
+
+    try {
+      String content = readContent(location);
+      RecordHeader header = location.header;
+      return new BVCacheEntry(
+        BVContentTemplate.parse(content),
+        header.charset,
+        header.cachedAt,
+        header.expiresAt,
+        header.staleUntil,
+        header.etag,
+        header.lastModified
+      );
+    } catch (ClosedChannelException e) {
+      // closed by an interrupt of this thread or by eviction, the segment is
+      // reopened by the next read.
+      return null;
+    } catch (IOException e) {
+      index.remove(key, location);
+      logFailure(e);
+      return null;
+    }
+  }
+
+  /**
+   * Queues the entry to be appended, replacing the previous entry of the key.
+   * Failure entries are not stored.
+   *
+   * @param key the content uri.
+   * @param entry entry to cache.
+   */
+  public void put(final String key, final BVCacheEntry entry) {
+    if (!open || entry.isFailure()) {
+      return;
+    }
+    writer.execute(new Runnable() {
+      public void run() {
+        append(key, entry);
+      }
+    });
+  }
+
+  /**
+   * Waits until the entries queued so far are written.
+   */
+  public void flush() {
+    try {
+      writer.submit(new Runnable() {
+        public void run() {
+        }
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (CancellationException e) {
+      // the writer is closed.
+    } catch (ExecutionException e) {
+      // the empty task does not fail.
+    }
+  }
+
+  private void append(String key, BVCacheEntry entry) {
+    try {
+      RecordHeader header = new RecordHeader(key, entry);
+      ByteBuffer record = newRecord(header.toBytes(), compress(entry.getContent()));
+      synchronized (this) {
+        if (!open) {
+          return;
+        }
+        if (
+          activeSegment.size > 0 &&
+          activeSegment.size + record.remaining() > segmentBytes
+        ) {
+          activeSegment = newSegment(activeSegment.id + 1);
+        }
+        long position = activeSegment.size;
+        int recordLength = record.remaining();
+        writeFully(activeSegment.getWriteChannel(), record, position);
+        activeSegment.size += recordLength;
+        totalBytes += recordLength;
+        index.put(key, new Location(activeSegment, position, recordLength, header));
+        evict();
+      }
+    } catch (IOException e) {
+      logFailure(e);
+    }
+  }
+
+  public int size() {
+    return index.size();
+  }
+
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Closes the segment files. The cache is empty afterwards and ignores
+   * further entries.
+   */
+  public void close() {
+    writer.shutdown();
+    synchronized (this) {
+      open = false;
+      index.clear();
+      for (Segment segment : segments.values()) {
+        segment.close();
+      }
+      segments.clear();
+      totalBytes = 0;
+    }
+    sharedCaches.remove(directory.getAbsolutePath(), this);
+  }
+
+  private void openSegments() throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Unable to create " + directory);
+    }
+
+    List<Long> segmentIds = new ArrayList<Long>();
+    String[] names = directory.list(new FilenameFilter() {
+      public boolean accept(File dir, String name) {
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+      }
+    });
+    for (String name : names == null ? new String[0] : names) {
+      try {
+        segmentIds.add(Long.valueOf(name.substring(
+          SEGMENT_PREFIX.length(),
+          name.length() - SEGMENT_SUFFIX.length()
+        )));
+      } catch (NumberFormatException e) {
+        // not a segment of this cache.
+      }
+    }
+    Collections.sort(segmentIds);
+
+    long now = System.currentTimeMillis();
+    for (Long segmentId : segmentIds) {
+      scan(openSegment(segmentId, false), now);
+    }
+    // earlier segments may end in a partial record, so every run appends
+    // to a new segment.
+    long nextId = segmentIds.isEmpty() ? 0 : segmentIds.get(segmentIds.size() - 1) + 1;
+    activeSegment = newSegment(nextId);
+    evict();
+  }
+
+  private Segment newSegment(long id) throws IOException {
+    if (activeSegment != null) {
+      activeSegment.closeWriteChannel();
+    }
+    return openSegment(id, true);
+  }
+
+  private Segment openSegment(long id, boolean writable) throws IOException {
+    File file = new File(
+      directory,
+      String.format("%s%016d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)
+    );
+    Segment segment = new Segment(id, file, writable);
+    segments.put(id, segment);
+    totalBytes += segment.size;
+    return segment;
+  }
+
+  /**
+   * Indexes the records of a segment, later records replacing earlier ones.
+   */
+  private void scan(Segment segment, long now) throws IOException {
+    ByteBuffer prefix = ByteBuffer.allocate(RECORD_PREFIX_LENGTH);
+    long position = 0;
+    while (position + RECORD_PREFIX_LENGTH <= segment.size) {
+      prefix.clear();
+      readFully(segment.getReadChannel(), prefix, position);
+      prefix.flip();
+      int magic = prefix.getInt();
+      int headerLength = prefix.getInt();
+      int contentLength = prefix.getInt();
+      long recordLength = (long) RECORD_PREFIX_LENGTH + headerLength +
+        contentLength + RECORD_CHECKSUM_LENGTH;
+      if (
+        magic != RECORD_MAGIC ||
+        headerLength < 0 ||
+        contentLength < 0 ||
+        position + recordLength > segment.size
+      ) {
+        return;
+      }
+
+      ByteBuffer headerBytes = ByteBuffer.allocate(headerLength);
+      readFully(segment.getReadChannel(), headerBytes, position + RECORD_PREFIX_LENGTH);
+      RecordHeader header;
+      try {
+        header = RecordHeader.fromBytes(headerBytes.array());
+      } catch (IOException e) {
+        return;
+      }
+      if (header.isServable(now)) {
+        index.put(header.key, new Location(segment, position, (int) recordLength, header));
+      } else {
+        index.remove(header.key);
+      }
+      position += recordLength;
+    }
+  }
+
+  /**
+   * Deletes the oldest segments until the cache is within its size bound
+   * again. The segment being appended to is kept.
+   */
+  private void evict() {
+    while (totalBytes > maxBytes && segments.size() > 1) {
+      Segment oldest = segments.pollFirstEntry().getValue();
+      totalBytes -= oldest.size;
+      Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next().getValue().segment == oldest) {
+          iterator.remove();
+        }
+      }
+      oldest.close();
+      if (!oldest.path.delete()) {
+        LOGGER.warn(MessageFormat.format(
+          BVMessageUtil.getMessage("MSG0010"),
+          new Object[]{directory, "unable to delete " + oldest.path}
+        ));
+      }
+    }
+  }
+
+  private String readContent(Location location) throws IOException {
+    ByteBuffer record = ByteBuffer.allocate(location.length);
+    readFully(location.segment.getReadChannel(), record, location.position);
+    byte[] bytes = record.array();
+
+    int checksumOffset = location.length - RECORD_CHECKSUM_LENGTH;
+    CRC32 crc = new CRC32();
+    crc.update(bytes, RECORD_PREFIX_LENGTH, checksumOffset - RECORD_PREFIX_LENGTH);
+    if ((int) crc.getValue() != record.getInt(checksumOffset)) {
+      throw new IOException("Checksum mismatch in " + location.segment.path);
+    }
+
+    int headerLength = record.getInt(4);
+    int contentOffset = RECORD_PREFIX_LENGTH + headerLength;
+    GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(
+      bytes,
+      contentOffset,
+      checksumOffset - contentOffset
+    ));
+    try {
+      return new String(IOUtils.toByteArray(in), CONTENT_CHARSET);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static ByteBuffer newRecord(byte[] header, byte[] content) {
+    ByteBuffer record = ByteBuffer.allocate(
+      RECORD_PREFIX_LENGTH + header.length + content.length + RECORD_CHECKSUM_LENGTH
+    );
+    record.putInt(RECORD_MAGIC);
+    record.putInt(header.length);
+    record.putInt(content.length);
+    record.put(header);
+    record.put(content);
+    CRC32 crc = new CRC32();
+    crc.update(record.array(), RECORD_PREFIX_LENGTH, header.length + content.length);
+    record.putInt((int) crc.getValue());
+    record.flip();
+    return record;
+  }
+
+  private static byte[] compress(String content) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(compressed);
+    out.write(content.getBytes(CONTENT_CHARSET));
+    out.close();
+    return compressed.toByteArray();
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position + buffer.position());
+      if (read < 0) {
+        throw new EOFException();
+      }
+    }
+  }
+
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+    throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
+    }
+  }
+
+  private void logFailure(IOException e) {
+    LOGGER.warn(MessageFormat.format(
+      BVMessageUtil.getMessage("MSG0010"),
+      new Object[]{directory, e.getMessage()}
+    ));
+  }
+
+  /**
+   * Segment file, appended to only while it is the active segment.
+   */
+  private static final class Segment {
+    private final long id;
+    private final File path;
+    private RandomAccessFile writeFile;
+    private RandomAccessFile readFile;
+    private boolean closed;
+    private long size;
+
+    Segment(long id, File path, boolean writable) throws IOException {
+      this.id = id;
+      this.path = path;
+      if (writable) {
+        writeFile = new RandomAccessFile(path, "rw");
+      }
+      this.size = path.length();
+    }
+
+    FileChannel getWriteChannel() {
+      return writeFile.getChannel();
+    }
+
+    void closeWriteChannel() {
+      closeQuietly(writeFile);
+    }
+
+    /**
+     * @return channel for positional reads, reopened if it was closed.
+     */
+    synchronized FileChannel getReadChannel() throws IOException {
+      if (closed) {
+        throw new ClosedChannelException();
+      }
+      if (readFile == null || !readFile.getChannel().isOpen()) {
+        closeQuietly(readFile);
+        readFile = new RandomAccessFile(path, "r");
+      }
+      return readFile.getChannel();
+    }
+
+    synchronized void close() {
+      closed = true;
+      closeQuietly(writeFile);
+      closeQuietly(readFile);
+    }
+
+    private static void closeQuietly(RandomAccessFile file) {
+      if (file == null) {
+        return;
+      }
+      try {
+        file.close();
+      } catch (IOException e) {
+        // nothing left to release.
+      }
+    }
+  }
+
+  /**
+   * Position of the latest record of a key.
+   */
+  private static final class Location {
+    private final Segment segment;
+    private final long position;
+    private final int length;
+    private final RecordHeader header;
+
+    Location(Segment segment, long position, int length, RecordHeader header) {
+      this.segment = segment;
+      this.position = position;
+      this.length = length;
+      this.header = header;
+    }
+  }
+
+  /**
+   * Key and metadata of a record, everything but the content.
+   */
+  private static final class RecordHeader {
+    private final String key;
+    private final String charset;
+    private final long cachedAt;
+    private final long expiresAt;
+    private final long staleUntil;
+    private final String etag;
+    private final String lastModified;
+
+    RecordHeader(String key, BVCacheEntry entry) {
+      this(
+        key,
+        entry.getCharset(),
+        entry.getCachedAt(),
+        entry.getExpiresAt(),
+        entry.getStaleUntil(),
+        entry.getEtag(),
+        entry.getLastModified()
+      );
+    }
+
+    RecordHeader(
+      String key,
+      String charset,
+      long cachedAt,
+      long expiresAt,
+      long staleUntil,
+      String etag,
+      String lastModified
+    ) {
+      this.key = key;
+      this.charset = charset;
+      this.cachedAt = cachedAt;
+      this.expiresAt = expiresAt;
+      this.staleUntil = staleUntil;
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+
+    boolean isServable(long now) {
+      return now < staleUntil;
+    }
+
+    byte[] toBytes() throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      out.writeUTF(key);
+      out.writeUTF(charset);
+      out.writeLong(cachedAt);
+      out.writeLong(expiresAt);
+      out.writeLong(staleUntil);
+      writeOptionalUTF(out, etag);
+      writeOptionalUTF(out, lastModified);
+      out.close();
+      return bytes.toByteArray();
+    }
+
+    static RecordHeader fromBytes(byte[] bytes) throws IOException {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      return new RecordHeader(
+        in.readUTF(),
+        in.readUTF(),
+        in.readLong(),
+        in.readLong(),
+        in.readLong(),
+        readOptionalUTF(in),
+        readOptionalUTF(in)
+      );
+    }
+
+    private static void writeOptionalUTF(DataOutputStream out, String value)
+      throws IOException {
+      out.writeBoolean(value != null);
+      if (value != null) {
+        out.writeUTF(value);
+      }
+    }
+
+    private static String readOptionalUTF(DataInputStream in) throws IOException {
+      return in.readBoolean() ? in.readUTF() : null;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Count-min sketch estimating how often each key was accessed, in constant
+ * memory however many keys there are.
+ *
+ * Every key increments one counter in each of four rows and its estimate is
+ * the smallest of them, which never underestimates and overestimates only
+ * through collisions. Once the number of increments reaches ten times the
+ * row width all counters are halved, so the estimates follow recent
+ * popularity instead of growing forever. Increments are lock free and may
+ * race with halving, which only makes the estimates slightly less exact.
+ */
+public class BVFrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int[] SEEDS = {
+    0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F
+  };
+  private static final int SAMPLE_FACTOR = 10;
+
+  private final AtomicIntegerArray counters;
+  private final int width;
+  private final int sampleSize;
+  private final AtomicInteger additions = new AtomicInteger();
+
+  /**
+   * @param width counters per row, rounded up to a power of two.
+   */
+  public BVFrequencySketch(int width) {
+    int rowWidth = Integer.highestOneBit(Math.max(16, width) - 1) << 1;
+    this.width = rowWidth;
+    this.sampleSize = rowWidth * SAMPLE_FACTOR;
+    this.counters = new AtomicIntegerArray(DEPTH * rowWidth);
+  }
+
+  /**
+   * Counts an access of the key.
+   *
+   * @param key the accessed key.
+   * @return estimated accesses of the key, including this one.
+   */
+  public int increment(String key) {
+    int hash = spread(key.hashCode());
+    int frequency = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      frequency = Math.min(frequency, counters.incrementAndGet(indexOf(hash, row)));
+    }
+    if (additions.incrementAndGet() >= sampleSize) {
+      age();
+    }
+    return frequency;
+  }
+
+  /**
+   * @param key the key.
+   * @return estimated recent accesses of the key.
+   */
+  public int estimate(String key) {
+    int hash = spread(key.hashCode());
+    int frequency = Integer.MAX_VALUE;
+    for (int row = 0; row < DEPTH; row++) {
+      frequency = Math.min(frequency, counters.get(indexOf(hash, row)));
+    }
+    return frequency;
+  }
+
+  private synchronized void age() {
+    if (additions.get() < sampleSize) {
+      // halved by another thread meanwhile.
+      return;
+    }
+    for (int i = 0; i < counters.length(); i++) {
+      counters.set(i, counters.get(i) >>> 1);
+    }
+    additions.set(additions.get() >>> 1);
+  }
+
+  private int indexOf(int hash, int row) {
+    int h = hash * SEEDS[row];
+    h ^= h >>> 16;
+    return row * width + (h & (width - 1));
+  }
+
+  private static int spread(int hash) {
+    int h = hash * 0x9E3779B9;
+    return h ^ (h >>> 15);
+  }
+}
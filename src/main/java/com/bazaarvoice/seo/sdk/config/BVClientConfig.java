@@ -44,7 +44,28 @@ public enum BVClientConfig {
   PROXY_HOST("seo.sdk.http.proxy.host"),
   PROXY_PORT("seo.sdk.http.proxy.port"),
   CHARSET("seo.sdk.charset"),
-  SSL_ENABLED("seo.sdk.ssl.enabled");
+  SSL_ENABLED("seo.sdk.ssl.enabled"),
+  CACHE_TTL("seo.sdk.cache.ttl"),
+  CACHE_MAX_ENTRIES("seo.sdk.cache.max.entries"),
+  CACHE_MAX_BYTES("seo.sdk.cache.max.bytes"),
+  CACHE_MAX_STALE("seo.sdk.cache.max.stale"),
+  HTTP_MAX_CONNECTIONS("seo.sdk.http.max.connections"),
+  HTTP_MAX_CONNECTIONS_PER_ROUTE("seo.sdk.http.max.connections.per.route"),
+  HTTP_IDLE_TIMEOUT("seo.sdk.http.idle.timeout"),
+  THREAD_POOL_CORE_SIZE("seo.sdk.thread.pool.core.size"),
+  THREAD_POOL_MAX_SIZE("seo.sdk.thread.pool.max.size"),
+  THREAD_POOL_QUEUE_SIZE("seo.sdk.thread.pool.queue.size"),
+  CONTENT_MEMO_TTL("seo.sdk.content.memo.ttl"),
+  CIRCUIT_BREAKER_FAILURES("seo.sdk.circuit.breaker.failures"),
+  CIRCUIT_BREAKER_COOL_DOWN("seo.sdk.circuit.breaker.cool.down"),
+  CACHE_NOT_FOUND_TTL("seo.sdk.cache.not.found.ttl"),
+  CACHE_ERROR_TTL("seo.sdk.cache.error.ttl"),
+  DISK_CACHE_DIRECTORY("seo.sdk.disk.cache.directory"),
+  DISK_CACHE_MAX_BYTES("seo.sdk.disk.cache.max.bytes"),
+  WARM_UP_PARALLELISM("seo.sdk.warm.up.parallelism"),
+  WARM_UP_RATE("seo.sdk.warm.up.rate"),
+  HOT_KEY_REFRESH_COUNT("seo.sdk.hot.key.refresh.count"),
+  HOT_KEY_REFRESH_AHEAD("seo.sdk.hot.key.refresh.ahead");
 
   private String propertyName;
 
@@ -0,0 +1,450 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.config;
+
+import com.bazaarvoice.seo.sdk.util.BVConstant;
+import com.bazaarvoice.seo.sdk.util.BVCrawlerAgentMatcher;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Immutable, pre-parsed view of a {@link BVConfiguration}.
+ *
+ * The request path reads its settings from a snapshot instead of parsing
+ * configuration strings on every request. Blank or invalid values fall back
+ * to the defaults in {@link BVConstant}.
+ *
+ * Snapshots of {@link BVSdkConfiguration} are cached by the configuration and
+ * rebuilt after {@link BVConfiguration#addProperty(BVClientConfig, String)}.
+ * Snapshots of other configuration implementations are built on every call to
+ * {@link #of(BVConfiguration)}, so callers take one snapshot per request and
+ * pass it along. Crawler agent matchers are shared between snapshots with the
+ * same pattern, so their automaton is not compiled again for every request.
+ */
+public final class BVConfigurationSnapshot {
+
+  private static final Logger _logger = LoggerFactory.getLogger(
+    BVConfigurationSnapshot.class
+  );
+  private static final int MAX_SHARED_MATCHERS = 16;
+  private static final ConcurrentMap<String, BVCrawlerAgentMatcher> sharedMatchers =
+    new ConcurrentHashMap<String, BVCrawlerAgentMatcher>();
+
+  private final long executionTimeout;
+  private final long executionTimeoutBot;
+  private final int connectTimeout;
+  private final int socketTimeout;
+  private final BVCrawlerAgentMatcher crawlerAgentMatcher;
+  private final boolean seoSdkEnabled;
+  private final boolean includeDisplayIntegrationCode;
+  private final boolean loadSeoFilesLocally;
+  private final String localSeoFileRoot;
+  private final String cloudKey;
+  private final String bvRootFolder;
+  private final boolean staging;
+  private final boolean testing;
+  private final String scheme;
+  private final String s3Hostname;
+  private final String charsetName;
+  private final Charset charset;
+  private final String proxyHost;
+  private final int proxyPort;
+  private final long cacheTtl;
+  private final int cacheMaxEntries;
+  private final long cacheMaxBytes;
+  private final long cacheMaxStale;
+  private final int httpMaxConnections;
+  private final int httpMaxConnectionsPerRoute;
+  private final long httpIdleTimeout;
+  private final int threadPoolCoreSize;
+  private final int threadPoolMaxSize;
+  private final int threadPoolQueueSize;
+  private final long contentMemoTtl;
+  private final int circuitBreakerFailures;
+  private final long circuitBreakerCoolDown;
+  private final long cacheNotFoundTtl;
+  private final long cacheErrorTtl;
+  private final String diskCacheDirectory;
+  private final long diskCacheMaxBytes;
+  private final int warmUpParallelism;
+  private final int warmUpRate;
+  private final int hotKeyRefreshCount;
+  private final long hotKeyRefreshAhead;
+
+  BVConfigurationSnapshot(BVConfiguration bvConfiguration) {
+    executionTimeout = getLong(bvConfiguration, BVClientConfig.EXECUTION_TIMEOUT, BVConstant.EXECUTION_TIMEOUT);
+    executionTimeoutBot = getLong(bvConfiguration, BVClientConfig.EXECUTION_TIMEOUT_BOT, BVConstant.EXECUTION_TIMEOUT_BOT);
+    connectTimeout = getInt(bvConfiguration, BVClientConfig.CONNECT_TIMEOUT, BVConstant.CONNECT_TIMEOUT);
+    socketTimeout = getInt(bvConfiguration, BVClientConfig.SOCKET_TIMEOUT, BVConstant.SOCKET_TIMEOUT);
+    crawlerAgentMatcher = newCrawlerAgentMatcher(bvConfiguration.getProperty(
+      BVClientConfig.CRAWLER_AGENT_PATTERN.getPropertyName()
+    ));
+    seoSdkEnabled = getBoolean(bvConfiguration, BVClientConfig.SEO_SDK_ENABLED);
+    includeDisplayIntegrationCode = getBoolean(bvConfiguration, BVClientConfig.INCLUDE_DISPLAY_INTEGRATION_CODE);
+    loadSeoFilesLocally = getBoolean(bvConfiguration, BVClientConfig.LOAD_SEO_FILES_LOCALLY);
+    localSeoFileRoot = bvConfiguration.getProperty(BVClientConfig.LOCAL_SEO_FILE_ROOT.getPropertyName());
+    cloudKey = bvConfiguration.getProperty(BVClientConfig.CLOUD_KEY.getPropertyName());
+    bvRootFolder = bvConfiguration.getProperty(BVClientConfig.BV_ROOT_FOLDER.getPropertyName());
+    staging = getBoolean(bvConfiguration, BVClientConfig.STAGING);
+    testing = getBoolean(bvConfiguration, BVClientConfig.TESTING);
+    scheme = getBoolean(bvConfiguration, BVClientConfig.SSL_ENABLED) ? "https" : "http";
+
+    BVCoreConfig s3HostnameConfig;
+    if (testing) {
+      s3HostnameConfig = staging ?
+        BVCoreConfig.TESTING_STAGING_S3_HOSTNAME :
+        BVCoreConfig.TESTING_PRODUCTION_S3_HOSTNAME;
+    } else {
+      s3HostnameConfig = staging ?
+        BVCoreConfig.STAGING_S3_HOSTNAME :
+        BVCoreConfig.PRODUCTION_S3_HOSTNAME;
+    }
+    s3Hostname = bvConfiguration.getProperty(s3HostnameConfig.getPropertyName());
+
+    charsetName = bvConfiguration.getProperty(BVClientConfig.CHARSET.getPropertyName());
+    charset = resolveCharset(charsetName);
+    proxyHost = bvConfiguration.getProperty(BVClientConfig.PROXY_HOST.getPropertyName());
+    proxyPort = getInt(bvConfiguration, BVClientConfig.PROXY_PORT, BVConstant.PROXY_PORT);
+    cacheTtl = getLong(bvConfiguration, BVClientConfig.CACHE_TTL, BVConstant.CACHE_TTL);
+    cacheMaxEntries = getInt(bvConfiguration, BVClientConfig.CACHE_MAX_ENTRIES, BVConstant.CACHE_MAX_ENTRIES);
+    cacheMaxBytes = getLong(bvConfiguration, BVClientConfig.CACHE_MAX_BYTES, BVConstant.CACHE_MAX_BYTES);
+    cacheMaxStale = getLong(bvConfiguration, BVClientConfig.CACHE_MAX_STALE, BVConstant.CACHE_MAX_STALE);
+    httpMaxConnections = getInt(bvConfiguration, BVClientConfig.HTTP_MAX_CONNECTIONS, BVConstant.HTTP_MAX_CONNECTIONS);
+    httpMaxConnectionsPerRoute = getInt(bvConfiguration, BVClientConfig.HTTP_MAX_CONNECTIONS_PER_ROUTE, BVConstant.HTTP_MAX_CONNECTIONS_PER_ROUTE);
+    httpIdleTimeout = getLong(bvConfiguration, BVClientConfig.HTTP_IDLE_TIMEOUT, BVConstant.HTTP_IDLE_TIMEOUT);
+    threadPoolCoreSize = getInt(bvConfiguration, BVClientConfig.THREAD_POOL_CORE_SIZE, BVConstant.THREAD_POOL_CORE_SIZE);
+    threadPoolMaxSize = getInt(bvConfiguration, BVClientConfig.THREAD_POOL_MAX_SIZE, BVConstant.THREAD_POOL_MAX_SIZE);
+    threadPoolQueueSize = getInt(bvConfiguration, BVClientConfig.THREAD_POOL_QUEUE_SIZE, BVConstant.THREAD_POOL_QUEUE_SIZE);
+    contentMemoTtl = getLong(bvConfiguration, BVClientConfig.CONTENT_MEMO_TTL, BVConstant.CONTENT_MEMO_TTL);
+    circuitBreakerFailures = getInt(bvConfiguration, BVClientConfig.CIRCUIT_BREAKER_FAILURES, BVConstant.CIRCUIT_BREAKER_FAILURES);
+    circuitBreakerCoolDown = getLong(bvConfiguration, BVClientConfig.CIRCUIT_BREAKER_COOL_DOWN, BVConstant.CIRCUIT_BREAKER_COOL_DOWN);
+    cacheNotFoundTtl = getLong(bvConfiguration, BVClientConfig.CACHE_NOT_FOUND_TTL, BVConstant.CACHE_NOT_FOUND_TTL);
+    cacheErrorTtl = getLong(bvConfiguration, BVClientConfig.CACHE_ERROR_TTL, BVConstant.CACHE_ERROR_TTL);
+    diskCacheDirectory = bvConfiguration.getProperty(BVClientConfig.DISK_CACHE_DIRECTORY.getPropertyName());
+    diskCacheMaxBytes = getLong(bvConfiguration, BVClientConfig.DISK_CACHE_MAX_BYTES, BVConstant.DISK_CACHE_MAX_BYTES);
+    warmUpParallelism = getInt(bvConfiguration, BVClientConfig.WARM_UP_PARALLELISM, BVConstant.WARM_UP_PARALLELISM);
+    warmUpRate = getInt(bvConfiguration, BVClientConfig.WARM_UP_RATE, BVConstant.WARM_UP_RATE);
+    hotKeyRefreshCount = getInt(bvConfiguration, BVClientConfig.HOT_KEY_REFRESH_COUNT, BVConstant.HOT_KEY_REFRESH_COUNT);
+    hotKeyRefreshAhead = getLong(bvConfiguration, BVClientConfig.HOT_KEY_REFRESH_AHEAD, BVConstant.HOT_KEY_REFRESH_AHEAD);
+  }
+
+  /**
+   * @param bvConfiguration the configuration.
+   * @return snapshot of the current values of the configuration.
+   */
+  public static BVConfigurationSnapshot of(BVConfiguration bvConfiguration) {
+    if (bvConfiguration instanceof BVSdkConfiguration) {
+      return ((BVSdkConfiguration) bvConfiguration).snapshot();
+    }
+    return new BVConfigurationSnapshot(bvConfiguration);
+  }
+
+  public long getExecutionTimeout() {
+    return executionTimeout;
+  }
+
+  public long getExecutionTimeoutBot() {
+    return executionTimeoutBot;
+  }
+
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public int getSocketTimeout() {
+    return socketTimeout;
+  }
+
+  /**
+   * @return matcher detecting crawler user agents.
+   */
+  public BVCrawlerAgentMatcher getCrawlerAgentMatcher() {
+    return crawlerAgentMatcher;
+  }
+
+  public boolean isSeoSdkEnabled() {
+    return seoSdkEnabled;
+  }
+
+  public boolean isIncludeDisplayIntegrationCode() {
+    return includeDisplayIntegrationCode;
+  }
+
+  public boolean isLoadSeoFilesLocally() {
+    return loadSeoFilesLocally;
+  }
+
+  public String getLocalSeoFileRoot() {
+    return localSeoFileRoot;
+  }
+
+  public String getCloudKey() {
+    return cloudKey;
+  }
+
+  public String getBvRootFolder() {
+    return bvRootFolder;
+  }
+
+  public boolean isStaging() {
+    return staging;
+  }
+
+  public boolean isTesting() {
+    return testing;
+  }
+
+  /**
+   * @return http or https depending on {@link BVClientConfig#SSL_ENABLED}.
+   */
+  public String getScheme() {
+    return scheme;
+  }
+
+  /**
+   * @return seo content host for the staging and testing combination.
+   */
+  public String getS3Hostname() {
+    return s3Hostname;
+  }
+
+  /**
+   * @return configured charset name, null when not configured.
+   */
+  public String getCharsetName() {
+    return charsetName;
+  }
+
+  /**
+   * @return configured charset, or the default charset when it is not
+   * configured or not supported.
+   */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  public String getProxyHost() {
+    return proxyHost;
+  }
+
+  public int getProxyPort() {
+    return proxyPort;
+  }
+
+  public long getCacheTtl() {
+    return cacheTtl;
+  }
+
+  public int getCacheMaxEntries() {
+    return cacheMaxEntries;
+  }
+
+  public long getCacheMaxBytes() {
+    return cacheMaxBytes;
+  }
+
+  public long getCacheMaxStale() {
+    return cacheMaxStale;
+  }
+
+  public int getHttpMaxConnections() {
+    return httpMaxConnections;
+  }
+
+  public int getHttpMaxConnectionsPerRoute() {
+    return httpMaxConnectionsPerRoute;
+  }
+
+  public long getHttpIdleTimeout() {
+    return httpIdleTimeout;
+  }
+
+  public int getThreadPoolCoreSize() {
+    return threadPoolCoreSize;
+  }
+
+  public int getThreadPoolMaxSize() {
+    return threadPoolMaxSize;
+  }
+
+  public int getThreadPoolQueueSize() {
+    return threadPoolQueueSize;
+  }
+
+  public long getContentMemoTtl() {
+    return contentMemoTtl;
+  }
+
+  public int getCircuitBreakerFailures() {
+    return circuitBreakerFailures;
+  }
+
+  public long getCircuitBreakerCoolDown() {
+    return circuitBreakerCoolDown;
+  }
+
+  public long getCacheNotFoundTtl() {
+    return cacheNotFoundTtl;
+  }
+
+  public long getCacheErrorTtl() {
+    return cacheErrorTtl;
+  }
+
+  /**
+   * @return configured disk cache directory, "none" or blank when the disk
+   * cache is disabled.
+   */
+  public String getDiskCacheDirectory() {
+    return diskCacheDirectory;
+  }
+
+  public long getDiskCacheMaxBytes() {
+    return diskCacheMaxBytes;
+  }
+
+  public int getWarmUpParallelism() {
+    return warmUpParallelism;
+  }
+
+  /**
+   * @return maximum number of content loads started per second by a cache
+   * warm-up, 0 when unlimited.
+   */
+  public int getWarmUpRate() {
+    return warmUpRate;
+  }
+
+  /**
+   * @return number of most accessed content uris refreshed before they
+   * expire, 0 when disabled.
+   */
+  public int getHotKeyRefreshCount() {
+    return hotKeyRefreshCount;
+  }
+
+  public long getHotKeyRefreshAhead() {
+    return hotKeyRefreshAhead;
+  }
+
+  private static boolean getBoolean(
+    BVConfiguration bvConfiguration,
+    BVClientConfig bvClientConfig
+  ) {
+    return Boolean.parseBoolean(bvConfiguration.getProperty(
+      bvClientConfig.getPropertyName()
+    ));
+  }
+
+  private static int getInt(
+    BVConfiguration bvConfiguration,
+    BVClientConfig bvClientConfig,
+    String defaultValue
+  ) {
+    String value = bvConfiguration.getProperty(bvClientConfig.getPropertyName());
+    if (StringUtils.isBlank(value)) {
+      return Integer.parseInt(defaultValue);
+    }
+
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      _logger.warn(
+        "Invalid value " + value + " for " + bvClientConfig.getPropertyName() +
+        ", using " + defaultValue + " instead."
+      );
+      return Integer.parseInt(defaultValue);
+    }
+  }
+
+  private static long getLong(
+    BVConfiguration bvConfiguration,
+    BVClientConfig bvClientConfig,
+    String defaultValue
+  ) {
+    String value = bvConfiguration.getProperty(bvClientConfig.getPropertyName());
+    if (StringUtils.isBlank(value)) {
+      return Long.parseLong(defaultValue);
+    }
+
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      _logger.warn(
+        "Invalid value " + value + " for " + bvClientConfig.getPropertyName() +
+        ", using " + defaultValue + " instead."
+      );
+      return Long.parseLong(defaultValue);
+    }
+  }
+
+  private static BVCrawlerAgentMatcher newCrawlerAgentMatcher(
+    String crawlerAgentPattern
+  ) {
+    if (StringUtils.isBlank(crawlerAgentPattern)) {
+      crawlerAgentPattern = BVConstant.CRAWLER_AGENT_PATTERN;
+    }
+
+    BVCrawlerAgentMatcher matcher = sharedMatchers.get(crawlerAgentPattern);
+    if (matcher != null) {
+      return matcher;
+    }
+
+    try {
+      matcher = new BVCrawlerAgentMatcher(crawlerAgentPattern);
+    } catch (PatternSyntaxException e) {
+      _logger.warn(
+        "Invalid crawler agent pattern " + crawlerAgentPattern +
+        ", using " + BVConstant.CRAWLER_AGENT_PATTERN + " instead."
+      );
+      return newCrawlerAgentMatcher(BVConstant.CRAWLER_AGENT_PATTERN);
+    }
+
+    // patterns that keep changing are not worth keeping.
+    if (sharedMatchers.size() < MAX_SHARED_MATCHERS) {
+      BVCrawlerAgentMatcher sharedMatcher =
+        sharedMatchers.putIfAbsent(crawlerAgentPattern, matcher);
+      if (sharedMatcher != null) {
+        matcher = sharedMatcher;
+      }
+    }
+    return matcher;
+  }
+
+  private static Charset resolveCharset(String charsetName) {
+    if (charsetName == null) {
+      return Charset.defaultCharset();
+    }
+
+    try {
+      return Charset.forName(charsetName);
+    } catch (Exception e) {
+      _logger.error(BVMessageUtil.getMessage("ERR0024"));
+      return Charset.defaultCharset();
+    }
+  }
+}
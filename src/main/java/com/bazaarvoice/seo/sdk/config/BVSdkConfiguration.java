@@ -40,6 +40,7 @@ public class BVSdkConfiguration implements BVConfiguration {
     BVSdkConfiguration.class
   );
   private Map<String, String> _instanceConfiguration;
+  private volatile BVConfigurationSnapshot _snapshot;
 
   /**
    * Default constructor. If configuration should be overwritten or if you
@@ -107,11 +108,95 @@ public class BVSdkConfiguration implements BVConfiguration {
       BVClientConfig.PROXY_PORT,
       BVConstant.PROXY_PORT
     );
+    addProperty(
+      BVClientConfig.CACHE_TTL,
+      BVConstant.CACHE_TTL
+    );
+    addProperty(
+      BVClientConfig.CACHE_MAX_ENTRIES,
+      BVConstant.CACHE_MAX_ENTRIES
+    );
+    addProperty(
+      BVClientConfig.CACHE_MAX_BYTES,
+      BVConstant.CACHE_MAX_BYTES
+    );
+    addProperty(
+      BVClientConfig.CACHE_MAX_STALE,
+      BVConstant.CACHE_MAX_STALE
+    );
+    addProperty(
+      BVClientConfig.HTTP_MAX_CONNECTIONS,
+      BVConstant.HTTP_MAX_CONNECTIONS
+    );
+    addProperty(
+      BVClientConfig.HTTP_MAX_CONNECTIONS_PER_ROUTE,
+      BVConstant.HTTP_MAX_CONNECTIONS_PER_ROUTE
+    );
+    addProperty(
+      BVClientConfig.HTTP_IDLE_TIMEOUT,
+      BVConstant.HTTP_IDLE_TIMEOUT
+    );
+    addProperty(
+      BVClientConfig.THREAD_POOL_CORE_SIZE,
+      BVConstant.THREAD_POOL_CORE_SIZE
+    );
+    addProperty(
+      BVClientConfig.THREAD_POOL_MAX_SIZE,
+      BVConstant.THREAD_POOL_MAX_SIZE
+    );
+    addProperty(
+      BVClientConfig.THREAD_POOL_QUEUE_SIZE,
+      BVConstant.THREAD_POOL_QUEUE_SIZE
+    );
+    addProperty(
+      BVClientConfig.CONTENT_MEMO_TTL,
+      BVConstant.CONTENT_MEMO_TTL
+    );
+    addProperty(
+      BVClientConfig.CIRCUIT_BREAKER_FAILURES,
+      BVConstant.CIRCUIT_BREAKER_FAILURES
+    );
+    addProperty(
+      BVClientConfig.CIRCUIT_BREAKER_COOL_DOWN,
+      BVConstant.CIRCUIT_BREAKER_COOL_DOWN
+    );
+    addProperty(
+      BVClientConfig.CACHE_NOT_FOUND_TTL,
+      BVConstant.CACHE_NOT_FOUND_TTL
+    );
+    addProperty(
+      BVClientConfig.CACHE_ERROR_TTL,
+      BVConstant.CACHE_ERROR_TTL
+    );
+    addProperty(
+      BVClientConfig.DISK_CACHE_DIRECTORY,
+      BVConstant.DISK_CACHE_DIRECTORY
+    );
+    addProperty(
+      BVClientConfig.DISK_CACHE_MAX_BYTES,
+      BVConstant.DISK_CACHE_MAX_BYTES
+    );
+    addProperty(
+      BVClientConfig.WARM_UP_PARALLELISM,
+      BVConstant.WARM_UP_PARALLELISM
+    );
+    addProperty(
+      BVClientConfig.WARM_UP_RATE,
+      BVConstant.WARM_UP_RATE
+    );
+    addProperty(
+      BVClientConfig.HOT_KEY_REFRESH_COUNT,
+      BVConstant.HOT_KEY_REFRESH_COUNT
+    );
+    addProperty(
+      BVClientConfig.HOT_KEY_REFRESH_AHEAD,
+      BVConstant.HOT_KEY_REFRESH_AHEAD
+    );
 
     _logger.debug("Completed default properties in BVSdkConfiguration.");
   }
 
-  public BVConfiguration addProperty(
+  public synchronized BVConfiguration addProperty(
     BVClientConfig bvConfig,
     String propertyValue
   ) {
@@ -120,10 +205,31 @@ public class BVSdkConfiguration implements BVConfiguration {
     }
 
     this._instanceConfiguration.put(bvConfig.getPropertyName(), propertyValue);
+    _snapshot = null;
     return this;
   }
 
   public String getProperty(String propertyName) {
     return this._instanceConfiguration.get(propertyName);
   }
+
+  /**
+   * Pre-parsed view of the current configuration. The snapshot is built once
+   * and reused until a property is added.
+   *
+   * @return snapshot of this configuration.
+   */
+  public BVConfigurationSnapshot snapshot() {
+    BVConfigurationSnapshot snapshot = _snapshot;
+    if (snapshot == null) {
+      synchronized (this) {
+        snapshot = _snapshot;
+        if (snapshot == null) {
+          snapshot = new BVConfigurationSnapshot(this);
+          _snapshot = snapshot;
+        }
+      }
+    }
+    return snapshot;
+  }
 }
@@ -0,0 +1,185 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the section markers of seo content, built once when the content is
+ * loaded.
+ *
+ * Holds the offsets of every occurrence of the begin/end markers of the
+ * aggregate rating, reviews and pagination sections and of the schema.org
+ * product scope, so a {@link BVContentView} is selected without searching
+ * the content again.
+ */
+public final class BVContentSections {
+
+  public static final String BEGIN_AGGREGATE_RATING =
+    "<!--begin-aggregate-rating-->";
+  public static final String END_AGGREGATE_RATING =
+    "<!--end-aggregate-rating-->";
+  public static final String BEGIN_REVIEWS = "<!--begin-reviews-->";
+  public static final String END_REVIEWS = "<!--end-reviews-->";
+  public static final String BEGIN_PAGINATION = "<!--begin-pagination-->";
+  public static final String END_PAGINATION = "<!--end-pagination-->";
+  public static final String SCHEMA_ORG_PRODUCT =
+    "itemscope itemtype=\"http://schema.org/Product\"";
+
+  private static final String[] MARKERS = {
+    BEGIN_AGGREGATE_RATING,
+    END_AGGREGATE_RATING,
+    BEGIN_REVIEWS,
+    END_REVIEWS,
+    BEGIN_PAGINATION,
+    END_PAGINATION,
+    SCHEMA_ORG_PRODUCT
+  };
+
+  // Indexes of the markers in MARKERS.
+  private static final int AGGREGATE_RATING_BEGIN = 0;
+  private static final int AGGREGATE_RATING_END = 1;
+  private static final int REVIEWS_BEGIN = 2;
+  private static final int REVIEWS_END = 3;
+  private static final int PAGINATION_BEGIN = 4;
+  private static final int PAGINATION_END = 5;
+  private static final int SCHEMA_ORG = 6;
+
+  private static final int[] NONE = new int[0];
+
+  private final int[][] offsets;
+
+  private BVContentSections(int[][] offsets) {
+    this.offsets = offsets;
+  }
+
+  /**
+   * Indexes the section markers of the content.
+   *
+   * @param content the seo content.
+   * @return the index.
+   */
+  public static BVContentSections index(String content) {
+    int[][] offsets = new int[MARKERS.length][];
+    for (int i = 0; i < MARKERS.length; i++) {
+      offsets[i] = content == null ? NONE : occurrences(content, MARKERS[i]);
+    }
+    return new BVContentSections(offsets);
+  }
+
+  private static int[] occurrences(String content, String marker) {
+    int index = content.indexOf(marker);
+    if (index == -1) {
+      return NONE;
+    }
+
+    int[] found = new int[1];
+    int count = 0;
+    while (index != -1) {
+      if (count == found.length) {
+        found = Arrays.copyOf(found, count * 2);
+      }
+      found[count++] = index;
+      index = content.indexOf(marker, index + marker.length());
+    }
+    return Arrays.copyOf(found, count);
+  }
+
+  /**
+   * Selects the part of the content shown for a view.
+   *
+   * The sections are removed in the order and with the same marker matching
+   * the page methods always used: a marker is looked up only outside the
+   * sections already removed, and an end marker is matched to the first
+   * remaining occurrence.
+   *
+   * @param view the view.
+   * @return the ranges of the content to leave out.
+   */
+  public BVContentSelection select(BVContentView view) {
+    List<int[]> excluded = new ArrayList<int[]>();
+    switch (view) {
+      case AGGREGATE_RATING:
+        if (exclude(excluded, REVIEWS_BEGIN, REVIEWS_END)) {
+          exclude(excluded, PAGINATION_BEGIN, PAGINATION_END);
+        }
+        return new BVContentSelection(
+          excluded,
+          find(AGGREGATE_RATING_BEGIN, excluded) != -1
+        );
+      case REVIEWS:
+        exclude(excluded, AGGREGATE_RATING_BEGIN, AGGREGATE_RATING_END);
+        boolean sectionFound = find(REVIEWS_BEGIN, excluded) != -1;
+        int schemaOrg = find(SCHEMA_ORG, excluded);
+        if (schemaOrg != -1) {
+          excluded.add(
+            new int[]{schemaOrg, schemaOrg + SCHEMA_ORG_PRODUCT.length()}
+          );
+        }
+        return new BVContentSelection(excluded, sectionFound);
+      default:
+        return new BVContentSelection(excluded, true);
+    }
+  }
+
+  /**
+   * Leaves out the section between the begin marker and the end of the end
+   * marker. A section without a matching end marker is kept.
+   *
+   * @return true if the begin marker was found.
+   */
+  private boolean exclude(List<int[]> excluded, int begin, int end) {
+    int start = find(begin, excluded);
+    if (start == -1) {
+      return false;
+    }
+
+    int endIndex = find(end, excluded);
+    if (endIndex >= start) {
+      excluded.add(new int[]{start, endIndex + MARKERS[end].length()});
+    }
+    return true;
+  }
+
+  /**
+   * Finds the first occurrence of the marker outside of the excluded ranges.
+   */
+  private int find(int marker, List<int[]> excluded) {
+    int length = MARKERS[marker].length();
+    for (int offset : offsets[marker]) {
+      if (!overlaps(offset, offset + length, excluded)) {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  private static boolean overlaps(int start, int end, List<int[]> excluded) {
+    for (int[] range : excluded) {
+      if (start < range[1] && range[0] < end) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Part of the seo content selected for a {@link BVContentView}: the sorted,
+ * non overlapping ranges of the content left out and whether the section the
+ * view is about is present.
+ */
+public final class BVContentSelection {
+
+  /**
+   * Selection of the whole content.
+   */
+  public static final BVContentSelection ALL =
+    new BVContentSelection(new int[0], true);
+
+  private final int[] excluded;
+  private final boolean sectionFound;
+
+  BVContentSelection(List<int[]> ranges, boolean sectionFound) {
+    this(merge(ranges), sectionFound);
+  }
+
+  private BVContentSelection(int[] excluded, boolean sectionFound) {
+    this.excluded = excluded;
+    this.sectionFound = sectionFound;
+  }
+
+  private static int[] merge(List<int[]> ranges) {
+    int[][] sorted = ranges.toArray(new int[ranges.size()][]);
+    Arrays.sort(sorted, new Comparator<int[]>() {
+      public int compare(int[] a, int[] b) {
+        return a[0] < b[0] ? -1 : (a[0] == b[0] ? 0 : 1);
+      }
+    });
+
+    int[] merged = new int[sorted.length * 2];
+    int count = 0;
+    for (int[] range : sorted) {
+      if (count > 0 && range[0] <= merged[count - 1]) {
+        merged[count - 1] = Math.max(merged[count - 1], range[1]);
+      } else {
+        merged[count++] = range[0];
+        merged[count++] = range[1];
+      }
+    }
+    return Arrays.copyOf(merged, count);
+  }
+
+  /**
+   * @return the number of excluded ranges.
+   */
+  public int getExcludedCount() {
+    return excluded.length / 2;
+  }
+
+  /**
+   * @param i index of the range.
+   * @return offset of the first character left out.
+   */
+  public int getExcludedStart(int i) {
+    return excluded[2 * i];
+  }
+
+  /**
+   * @param i index of the range.
+   * @return offset after the last character left out.
+   */
+  public int getExcludedEnd(int i) {
+    return excluded[2 * i + 1];
+  }
+
+  /**
+   * @return true if the section of the view is present in the selection.
+   */
+  public boolean isSectionFound() {
+    return sectionFound;
+  }
+}
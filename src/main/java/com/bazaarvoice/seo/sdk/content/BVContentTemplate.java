@@ -0,0 +1,203 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+import com.bazaarvoice.seo.sdk.util.BVConstant;
+
+import java.io.IOException;
+
+/**
+ * Seo content split once into literal segments and the
+ * {@link BVConstant#INCLUDE_PAGE_URI} slots between them.
+ *
+ * Rendering the template for a page uri is a single sequential write of a
+ * known total length, so the content is neither rescanned nor shifted for
+ * every slot. The template also carries the {@link BVContentSections} index of
+ * the content. Templates are immutable and may be shared between threads.
+ */
+public final class BVContentTemplate {
+
+  private static final String PLACEHOLDER = BVConstant.INCLUDE_PAGE_URI;
+
+  private final String content;
+  private final int[] slots;
+  private final BVContentSections sections;
+
+  private BVContentTemplate(String content, int[] slots) {
+    this.content = content;
+    this.slots = slots;
+    this.sections = BVContentSections.index(content);
+  }
+
+  /**
+   * Splits the content on {@link BVConstant#INCLUDE_PAGE_URI}.
+   *
+   * @param content the seo content.
+   * @return the template of the content.
+   */
+  public static BVContentTemplate parse(String content) {
+    if (content == null) {
+      return new BVContentTemplate(null, new int[0]);
+    }
+
+    int count = 0;
+    int index = content.indexOf(PLACEHOLDER);
+    while (index != -1) {
+      count++;
+      index = content.indexOf(PLACEHOLDER, index + PLACEHOLDER.length());
+    }
+
+    int[] slots = new int[count];
+    index = content.indexOf(PLACEHOLDER);
+    for (int i = 0; i < count; i++) {
+      slots[i] = index;
+      index = content.indexOf(PLACEHOLDER, index + PLACEHOLDER.length());
+    }
+    return new BVContentTemplate(content, slots);
+  }
+
+  /**
+   * @return the content the template was parsed from.
+   */
+  public String getContent() {
+    return content;
+  }
+
+  /**
+   * @return the section index of the content.
+   */
+  public BVContentSections getSections() {
+    return sections;
+  }
+
+  /**
+   * @return the number of page uri slots.
+   */
+  public int getSlotCount() {
+    return slots.length;
+  }
+
+  /**
+   * Length of the content rendered for a page uri.
+   *
+   * @param pageUriLength length of the page uri.
+   * @return the rendered length.
+   */
+  public int getRenderedLength(int pageUriLength) {
+    if (content == null) {
+      return 0;
+    }
+    return content.length() +
+      slots.length * (pageUriLength - PLACEHOLDER.length());
+  }
+
+  /**
+   * Appends the content with every slot replaced by the page uri.
+   *
+   * @param out the builder to append to.
+   * @param pageUri the page uri, see
+   * {@link com.bazaarvoice.seo.sdk.util.BVUtility#getPageUri(String)}.
+   */
+  public void render(StringBuilder out, String pageUri) {
+    render(out, pageUri, BVContentSelection.ALL);
+  }
+
+  /**
+   * Appends the selected part of the content with every slot replaced by the
+   * page uri.
+   *
+   * @param out the builder to append to.
+   * @param pageUri the page uri.
+   * @param selection the ranges of the content to leave out, see
+   * {@link BVContentSections#select(BVContentView)}.
+   */
+  public void render(
+    StringBuilder out,
+    String pageUri,
+    BVContentSelection selection
+  ) {
+    if (content != null) {
+      out.ensureCapacity(out.length() + getRenderedLength(pageUri.length()));
+    }
+    try {
+      render((Appendable) out, pageUri, selection);
+    } catch (IOException e) {
+      // a StringBuilder never throws IOException.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Writes the selected part of the content with every slot replaced by the
+   * page uri, segment by segment, without building the whole content first.
+   *
+   * @param out the writer to write to.
+   * @param pageUri the page uri.
+   * @param selection the ranges of the content to leave out.
+   * @throws IOException if writing fails.
+   */
+  public void render(
+    Appendable out,
+    String pageUri,
+    BVContentSelection selection
+  ) throws IOException {
+    if (content == null) {
+      out.append((String) null);
+      return;
+    }
+
+    int start = 0;
+    int slot = 0;
+    for (int i = 0; i < selection.getExcludedCount(); i++) {
+      int end = Math.min(selection.getExcludedStart(i), content.length());
+      slot = renderRange(out, pageUri, start, end, slot);
+      start = Math.max(start, selection.getExcludedEnd(i));
+    }
+    renderRange(out, pageUri, start, content.length(), slot);
+  }
+
+  /**
+   * Writes the content between start and end, skipping the slots before
+   * start.
+   *
+   * @return index of the first slot after end.
+   */
+  private int renderRange(
+    Appendable out,
+    String pageUri,
+    int start,
+    int end,
+    int slot
+  ) throws IOException {
+    while (slot < slots.length && slots[slot] < start) {
+      slot++;
+    }
+    while (slot < slots.length && slots[slot] + PLACEHOLDER.length() <= end) {
+      out.append(content, start, slots[slot]).append(pageUri);
+      start = slots[slot] + PLACEHOLDER.length();
+      slot++;
+    }
+    if (start < end) {
+      out.append(content, start, end);
+    }
+    return slot;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+/**
+ * Part of the seo content returned to the page.
+ */
+public enum BVContentView {
+
+  /**
+   * The whole seo content.
+   */
+  CONTENT,
+
+  /**
+   * The seo content without the reviews and their pagination.
+   */
+  AGGREGATE_RATING,
+
+  /**
+   * The seo content without the aggregate rating and the schema.org product
+   * scope.
+   */
+  REVIEWS
+}
@@ -46,6 +46,18 @@ public class BVSdkException extends RuntimeException {
     this.errorCode = errorCode;
   }
 
+  public BVSdkException(String errorCode, Throwable cause) {
+    super(cause);
+    this.errorCode = errorCode;
+  }
+
+  /**
+   * @return the error code, such as ERR0012, or null.
+   */
+  public String getErrorCode() {
+    return errorCode;
+  }
+
   @Override
   public String getMessage() {
     if (StringUtils.isNotBlank(errorCode)) {
@@ -21,6 +21,7 @@ package com.bazaarvoice.seo.sdk.footer;
 
 import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.config.BVCoreConfig;
 import com.bazaarvoice.seo.sdk.exception.BVSdkException;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
@@ -45,6 +46,7 @@ public class BVHTMLFooter implements BVFooter {
   private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
   private BVConfiguration _bvConfiguration;
+  private BVConfigurationSnapshot _snapshot;
   private BVParameters _bvParameters;
   private BVSeoSdkUrl _bvSeoSdkUrl;
 
@@ -54,12 +56,22 @@ public class BVHTMLFooter implements BVFooter {
   public BVHTMLFooter(
     BVConfiguration bvConfiguration,
     BVParameters bvParameters
+  ) {
+    this(bvConfiguration, null, bvParameters);
+  }
+
+  public BVHTMLFooter(
+    BVConfiguration bvConfiguration,
+    BVConfigurationSnapshot snapshot,
+    BVParameters bvParameters
   ) {
     if (bvConfiguration == null) {
       throw new BVSdkException("ERR0007");
     }
 
     _bvConfiguration = bvConfiguration;
+    _snapshot = snapshot == null ?
+      BVConfigurationSnapshot.of(bvConfiguration) : snapshot;
     _bvParameters = bvParameters;
 
     messageList = new ArrayList<String>();
@@ -75,9 +87,7 @@ public class BVHTMLFooter implements BVFooter {
 
 
 
-    String methodType = Boolean.parseBoolean(_bvConfiguration.getProperty(
-      BVClientConfig.LOAD_SEO_FILES_LOCALLY.getPropertyName()
-    )) ? "LOCAL" : "CLOUD";
+    String methodType = _snapshot.isLoadSeoFilesLocally() ? "LOCAL" : "CLOUD";
 
     metaDataContext.put("sdk", StringUtils.join(new Object[]{
             "bvseo_sdk",
@@ -163,9 +173,7 @@ public class BVHTMLFooter implements BVFooter {
 
   private String getUrl() {
     String url = null;
-    boolean loadFilesLocally = Boolean.valueOf(_bvConfiguration.getProperty(
-            BVClientConfig.LOAD_SEO_FILES_LOCALLY.getPropertyName()
-    ));
+    boolean loadFilesLocally = _snapshot.isLoadSeoFilesLocally();
     if (!loadFilesLocally && _bvSeoSdkUrl != null) {
       url = _bvSeoSdkUrl.seoContentUri().toString();
     }
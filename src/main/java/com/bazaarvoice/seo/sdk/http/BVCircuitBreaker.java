@@ -0,0 +1,139 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.http;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Circuit breaker of a content host.
+ *
+ * The breaker opens after a number of consecutive host failures and then
+ * refuses every new fetch for a cool down period, so that an unreachable
+ * host does not tie up a thread per request until the fetch times out. Once
+ * the cool down is over a single probe fetch is let through, and the other
+ * fetches are refused for another cool down. The first success closes the
+ * breaker, the first failure keeps it open.
+ *
+ * Instances are shared across requests through
+ * {@link #getInstance(String, int, long)} so that every
+ * BVUIContentServiceProvider fetching from a host uses the same breaker.
+ */
+public class BVCircuitBreaker {
+
+  private static final ConcurrentMap<String, BVCircuitBreaker> sharedBreakers =
+    new ConcurrentHashMap<String, BVCircuitBreaker>();
+
+  private final int failureThreshold;
+  private final long coolDownMillis;
+  private int failures;
+  private long openUntil;
+
+  /**
+   * @param failureThreshold consecutive failures that open the breaker.
+   * @param coolDownMillis time the breaker refuses fetches once open.
+   */
+  public BVCircuitBreaker(int failureThreshold, long coolDownMillis) {
+    this.failureThreshold = failureThreshold;
+    this.coolDownMillis = coolDownMillis;
+  }
+
+  /**
+   * Gets the shared breaker of a host, creating it on first use.
+   *
+   * @param host host and port of the content host.
+   * @param failureThreshold consecutive failures that open the breaker.
+   * @param coolDownMillis time the breaker refuses fetches once open.
+   * @return shared breaker instance.
+   */
+  public static BVCircuitBreaker getInstance(
+    String host,
+    int failureThreshold,
+    long coolDownMillis
+  ) {
+    String breakerKey = host + ":" + failureThreshold + ":" + coolDownMillis;
+    BVCircuitBreaker breaker = sharedBreakers.get(breakerKey);
+    if (breaker == null) {
+      BVCircuitBreaker newBreaker =
+        new BVCircuitBreaker(failureThreshold, coolDownMillis);
+      breaker = sharedBreakers.putIfAbsent(breakerKey, newBreaker);
+      if (breaker == null) {
+        breaker = newBreaker;
+      }
+    }
+    return breaker;
+  }
+
+  /**
+   * Asks to start a fetch. Once the cool down is over the caller is let
+   * through as the probe.
+   *
+   * @param now current time in milliseconds.
+   * @return false if the breaker is open and the fetch must be skipped.
+   */
+  public synchronized boolean allowRequest(long now) {
+    if (openUntil == 0) {
+      return true;
+    }
+    if (now < openUntil) {
+      return false;
+    }
+    // holds the other fetches back while the probe runs, or until the next
+    // probe if this one never reports back.
+    openUntil = now + coolDownMillis;
+    return true;
+  }
+
+  /**
+   * The host answered, which closes the breaker.
+   */
+  public synchronized void recordSuccess() {
+    failures = 0;
+    openUntil = 0;
+  }
+
+  /**
+   * The host failed or did not answer in time.
+   *
+   * @param now current time in milliseconds.
+   * @return true if the failure opened the breaker.
+   */
+  public synchronized boolean recordFailure(long now) {
+    failures++;
+    if (openUntil != 0) {
+      openUntil = now + coolDownMillis;
+      return false;
+    }
+    if (failures >= failureThreshold) {
+      openUntil = now + coolDownMillis;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @param now current time in milliseconds.
+   * @return true if fetches are refused at the given time.
+   */
+  public synchronized boolean isOpen(long now) {
+    return openUntil != 0 && now < openUntil;
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.http;
+
+/**
+ * Fetches seo content from the Bazaarvoice content host.
+ *
+ * {@link com.bazaarvoice.seo.sdk.BVUIContentServiceProvider} delegates every
+ * http request to an implementation of this interface. The default
+ * implementation is {@link BVHttpClientContentFetcher}; a custom
+ * implementation can be passed to
+ * {@link com.bazaarvoice.seo.sdk.BVManagedUIContent}.
+ *
+ * Implementations are shared across requests and must be thread safe. They
+ * should register an abort handler on the request, see
+ * {@link BVFetchRequest#setAbortHandler(Runnable)}, so a fetch nobody waits
+ * for anymore releases its connection right away.
+ */
+public interface BVContentFetcher {
+
+  /**
+   * Fetches the content of the request uri.
+   *
+   * @param request the uri, user agent and charset of the content.
+   * @return the decoded content.
+   * @throws com.bazaarvoice.seo.sdk.exception.BVSdkException with ERR0012 when
+   * the content is unavailable, or with the timeout message when the host
+   * does not answer in time. Throwing a {@link BVFetchException} tells the
+   * circuit breaker whether the host itself failed, other exceptions do not
+   * count as host failures.
+   */
+  BVFetchResponse fetch(BVFetchRequest request);
+}
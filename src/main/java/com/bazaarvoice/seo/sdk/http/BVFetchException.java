@@ -0,0 +1,75 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.http;
+
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+
+import java.io.IOException;
+
+/**
+ * Failure of a {@link BVContentFetcher} fetch that tells whether the content
+ * host answered, and with which http status.
+ *
+ * A host that answers with a client error such as 403 or 404 is healthy, the
+ * content is just missing. Server errors, throttling and failures without a
+ * response mean the host or the way to it is in trouble.
+ */
+public class BVFetchException extends BVSdkException {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Status of a fetch that got no response.
+   */
+  public static final int NO_RESPONSE = 0;
+
+  private final int statusCode;
+
+  /**
+   * @param errorCode error code of the failure.
+   * @param statusCode http status of the response, or {@link #NO_RESPONSE}.
+   */
+  public BVFetchException(String errorCode, int statusCode) {
+    super(errorCode);
+    this.statusCode = statusCode;
+  }
+
+  /**
+   * @param errorCode error code of the failure.
+   * @param e the failure that prevented a response.
+   */
+  public BVFetchException(String errorCode, IOException e) {
+    super(errorCode, e);
+    this.statusCode = NO_RESPONSE;
+  }
+
+  public int getStatusCode() {
+    return statusCode;
+  }
+
+  /**
+   * @return true if the content host failed to answer, answered with a
+   * server error or throttled the request.
+   */
+  public boolean isHostFailure() {
+    return statusCode == NO_RESPONSE || statusCode >= 500 || statusCode == 429;
+  }
+}
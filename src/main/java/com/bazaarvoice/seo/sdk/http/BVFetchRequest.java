@@ -0,0 +1,136 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.http;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+
+/**
+ * Request handed to {@link BVContentFetcher}.
+ *
+ * A request can be aborted by the caller once nobody waits for its content
+ * anymore. Fetchers register an abort handler that releases the underlying
+ * connection, which runs right away if the request was already aborted.
+ *
+ * A request that refreshes cached content carries the validators of the
+ * cached copy, see {@link #setValidators(String, String)}.
+ */
+public class BVFetchRequest {
+
+  private final URI uri;
+  private final String userAgent;
+  private final Charset charset;
+  private String etag;
+  private String lastModified;
+  private Runnable abortHandler;
+  private boolean aborted;
+
+  public BVFetchRequest(URI uri, String userAgent, Charset charset) {
+    this.uri = uri;
+    this.userAgent = userAgent;
+    this.charset = charset;
+  }
+
+  public URI getUri() {
+    return uri;
+  }
+
+  /**
+   * @return User-Agent header value to send to the content host.
+   */
+  public String getUserAgent() {
+    return userAgent;
+  }
+
+  /**
+   * @return charset to decode the content with.
+   */
+  public Charset getCharset() {
+    return charset;
+  }
+
+  /**
+   * Sets the validators of the cached copy of the content. Fetchers send them
+   * as If-None-Match and If-Modified-Since headers and answer with
+   * {@link BVFetchResponse#notModified(String, String)} when the content did
+   * not change.
+   *
+   * @param etag ETag of the cached copy, or null.
+   * @param lastModified Last-Modified of the cached copy, or null.
+   */
+  public void setValidators(String etag, String lastModified) {
+    this.etag = etag;
+    this.lastModified = lastModified;
+  }
+
+  /**
+   * @return ETag of the cached copy, or null.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * @return Last-Modified of the cached copy, or null.
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  public boolean hasValidators() {
+    return etag != null || lastModified != null;
+  }
+
+  /**
+   * Registers the handler to run when the request is aborted. The handler
+   * runs right away if the request was already aborted.
+   */
+  public void setAbortHandler(Runnable abortHandler) {
+    boolean abortNow;
+    synchronized (this) {
+      this.abortHandler = abortHandler;
+      abortNow = aborted;
+    }
+    if (abortNow && abortHandler != null) {
+      abortHandler.run();
+    }
+  }
+
+  /**
+   * Aborts the request, releasing the connection of a running fetch.
+   */
+  public void abort() {
+    Runnable handler;
+    synchronized (this) {
+      if (aborted) {
+        return;
+      }
+      aborted = true;
+      handler = abortHandler;
+    }
+    if (handler != null) {
+      handler.run();
+    }
+  }
+
+  public synchronized boolean isAborted() {
+    return aborted;
+  }
+}
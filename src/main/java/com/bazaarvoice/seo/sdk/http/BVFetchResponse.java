@@ -0,0 +1,114 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.http;
+
+/**
+ * Response returned by {@link BVContentFetcher}.
+ *
+ * Besides the content it carries the ETag and Last-Modified validators of the
+ * content, used to revalidate the cached copy once it expires. A request with
+ * validators may be answered with {@link #notModified(String, String)}, which
+ * has no content.
+ */
+public class BVFetchResponse {
+
+  private final String content;
+  private final long contentLength;
+  private final String etag;
+  private final String lastModified;
+  private final boolean notModified;
+
+  /**
+   * @param content the decoded content.
+   * @param contentLength number of bytes read from the content host.
+   */
+  public BVFetchResponse(String content, long contentLength) {
+    this(content, contentLength, null, null);
+  }
+
+  /**
+   * @param content the decoded content.
+   * @param contentLength number of bytes read from the content host.
+   * @param etag ETag of the content, or null.
+   * @param lastModified Last-Modified of the content, or null.
+   */
+  public BVFetchResponse(
+    String content,
+    long contentLength,
+    String etag,
+    String lastModified
+  ) {
+    this(content, contentLength, etag, lastModified, false);
+  }
+
+  private BVFetchResponse(
+    String content,
+    long contentLength,
+    String etag,
+    String lastModified,
+    boolean notModified
+  ) {
+    this.content = content;
+    this.contentLength = contentLength;
+    this.etag = etag;
+    this.lastModified = lastModified;
+    this.notModified = notModified;
+  }
+
+  /**
+   * Response telling that the cached copy of the content is still current.
+   *
+   * @param etag ETag sent with the response, or null.
+   * @param lastModified Last-Modified sent with the response, or null.
+   * @return response without content.
+   */
+  public static BVFetchResponse notModified(String etag, String lastModified) {
+    return new BVFetchResponse(null, 0, etag, lastModified, true);
+  }
+
+  /**
+   * @return the decoded content, or null if not modified.
+   */
+  public String getContent() {
+    return content;
+  }
+
+  public long getContentLength() {
+    return contentLength;
+  }
+
+  /**
+   * @return ETag of the content, or null.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * @return Last-Modified of the content, or null.
+   */
+  public String getLastModified() {
+    return lastModified;
+  }
+
+  public boolean isNotModified() {
+    return notModified;
+  }
+}
@@ -0,0 +1,298 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.http;
+
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.ProxySelectorRoutePlanner;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Default {@link BVContentFetcher} backed by Apache HttpClient.
+ *
+ * Connections are kept alive in a bounded pool with a limit per route, so
+ * consecutive requests to the content host reuse connections instead of
+ * opening a new socket for every request. Idle and expired connections are
+ * closed by a background evictor.
+ *
+ * Instances are shared across requests through
+ * {@link #getInstance(BVConfiguration)}, one for every distinct combination of
+ * timeouts, proxy and pool settings.
+ */
+public class BVHttpClientContentFetcher implements BVContentFetcher {
+
+  private final static String HTTP_HEADER_USER_AGENT = "User-Agent";
+  private final static String HTTP_HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+  private final static String HTTP_HEADER_ACCEPT_ENCODING_GZIP = "gzip";
+  private final static String HTTP_HEADER_ETAG = "ETag";
+  private final static String HTTP_HEADER_LAST_MODIFIED = "Last-Modified";
+  private final static String HTTP_HEADER_IF_NONE_MATCH = "If-None-Match";
+  private final static String HTTP_HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+  private static final ConcurrentMap<String, BVHttpClientContentFetcher> sharedFetchers =
+    new ConcurrentHashMap<String, BVHttpClientContentFetcher>();
+  private static final ScheduledExecutorService idleConnectionEvictor =
+    Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "bvseo-sdk-idle-connection-evictor");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+  private final PoolingClientConnectionManager connectionManager;
+  private final DefaultHttpClient httpClient;
+  private final ScheduledFuture<?> evictionTask;
+
+  public BVHttpClientContentFetcher(BVConfiguration bvConfiguration) {
+    this(BVConfigurationSnapshot.of(bvConfiguration));
+  }
+
+  // The httpcore 4.3 params classes are deprecated, but are the only way to
+  // configure the httpclient 4.2 DefaultHttpClient. They are referenced by
+  // their full names because imports of deprecated types are not suppressed.
+  @SuppressWarnings("deprecation")
+  public BVHttpClientContentFetcher(BVConfigurationSnapshot snapshot) {
+    final long idleTimeout = snapshot.getHttpIdleTimeout();
+
+    connectionManager = new PoolingClientConnectionManager();
+    connectionManager.setMaxTotal(snapshot.getHttpMaxConnections());
+    connectionManager.setDefaultMaxPerRoute(
+      snapshot.getHttpMaxConnectionsPerRoute()
+    );
+
+    org.apache.http.params.HttpParams httpParams =
+      new org.apache.http.params.BasicHttpParams();
+    org.apache.http.params.HttpConnectionParams.setConnectionTimeout(
+      httpParams,
+      snapshot.getConnectTimeout()
+    );
+    org.apache.http.params.HttpConnectionParams.setSoTimeout(
+      httpParams,
+      snapshot.getSocketTimeout()
+    );
+
+    String proxyHost = snapshot.getProxyHost();
+    boolean sdkProxy =
+      !StringUtils.isBlank(proxyHost) && !"none".equalsIgnoreCase(proxyHost);
+    if (sdkProxy) {
+      httpParams.setParameter(
+        ConnRoutePNames.DEFAULT_PROXY,
+        new HttpHost(proxyHost, snapshot.getProxyPort())
+      );
+    }
+
+    httpClient = new DefaultHttpClient(connectionManager, httpParams);
+    if (!sdkProxy) {
+      // honour the http(s).proxyHost system properties and ProxySelector of
+      // the JVM, as URLConnection did.
+      httpClient.setRoutePlanner(new ProxySelectorRoutePlanner(
+        connectionManager.getSchemeRegistry(),
+        ProxySelector.getDefault()
+      ));
+    }
+    // A single retry covers pooled connections the host closed in between.
+    httpClient.setHttpRequestRetryHandler(
+      new DefaultHttpRequestRetryHandler(1, false)
+    );
+
+    long evictionInterval = Math.max(idleTimeout / 2, 1000);
+    evictionTask = idleConnectionEvictor.scheduleWithFixedDelay(
+      new Runnable() {
+        public void run() {
+          connectionManager.closeExpiredConnections();
+          connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }
+      },
+      evictionInterval,
+      evictionInterval,
+      TimeUnit.MILLISECONDS
+    );
+  }
+
+  /**
+   * Gets the shared fetcher for the transport settings of the configuration,
+   * creating it on first use.
+   *
+   * @param bvConfiguration the configuration.
+   * @return shared fetcher instance.
+   */
+  public static BVHttpClientContentFetcher getInstance(
+    BVConfiguration bvConfiguration
+  ) {
+    return getInstance(BVConfigurationSnapshot.of(bvConfiguration));
+  }
+
+  /**
+   * Gets the shared fetcher for the transport settings of the snapshot,
+   * creating it on first use.
+   *
+   * @param snapshot snapshot of the configuration.
+   * @return shared fetcher instance.
+   */
+  public static BVHttpClientContentFetcher getInstance(
+    BVConfigurationSnapshot snapshot
+  ) {
+    String fetcherKey = StringUtils.join(new Object[]{
+      snapshot.getConnectTimeout(),
+      snapshot.getSocketTimeout(),
+      snapshot.getProxyHost(),
+      snapshot.getProxyPort(),
+      snapshot.getHttpMaxConnections(),
+      snapshot.getHttpMaxConnectionsPerRoute(),
+      snapshot.getHttpIdleTimeout()
+    }, "|");
+
+    BVHttpClientContentFetcher fetcher = sharedFetchers.get(fetcherKey);
+    if (fetcher == null) {
+      BVHttpClientContentFetcher newFetcher =
+        new BVHttpClientContentFetcher(snapshot);
+      fetcher = sharedFetchers.putIfAbsent(fetcherKey, newFetcher);
+      if (fetcher == null) {
+        fetcher = newFetcher;
+      } else {
+        newFetcher.shutdown();
+      }
+    }
+    return fetcher;
+  }
+
+  public BVFetchResponse fetch(BVFetchRequest request) {
+    final HttpGet httpGet = new HttpGet(request.getUri());
+    httpGet.setHeader(HTTP_HEADER_USER_AGENT, request.getUserAgent());
+    httpGet.setHeader(HTTP_HEADER_ACCEPT_ENCODING, HTTP_HEADER_ACCEPT_ENCODING_GZIP);
+    if (request.getEtag() != null) {
+      httpGet.setHeader(HTTP_HEADER_IF_NONE_MATCH, request.getEtag());
+    }
+    if (request.getLastModified() != null) {
+      httpGet.setHeader(HTTP_HEADER_IF_MODIFIED_SINCE, request.getLastModified());
+    }
+    // Aborting closes the connection, unblocking a pending connect or read.
+    request.setAbortHandler(new Runnable() {
+      public void run() {
+        httpGet.abort();
+      }
+    });
+
+    InputStream is = null;
+    try {
+      HttpResponse response = httpClient.execute(httpGet);
+      HttpEntity entity = response.getEntity();
+      String etag = getHeader(response, HTTP_HEADER_ETAG);
+      String lastModified = getHeader(response, HTTP_HEADER_LAST_MODIFIED);
+      if (
+        response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED &&
+        request.hasValidators()
+      ) {
+        EntityUtils.consume(entity);
+        return BVFetchResponse.notModified(etag, lastModified);
+      }
+      if (response.getStatusLine().getStatusCode() >= 400) {
+        // Consuming the error body keeps the connection reusable.
+        EntityUtils.consume(entity);
+        throw new BVFetchException(
+          "ERR0012",
+          response.getStatusLine().getStatusCode()
+        );
+      }
+      if (entity == null) {
+        return new BVFetchResponse("", 0, etag, lastModified);
+      }
+
+      is = entity.getContent();
+      Header contentEncoding = entity.getContentEncoding();
+      if (
+        contentEncoding != null &&
+        HTTP_HEADER_ACCEPT_ENCODING_GZIP.equalsIgnoreCase(contentEncoding.getValue())
+      ) {
+        is = new GZIPInputStream(is);
+      }
+
+      byte[] byteArray = IOUtils.toByteArray(is);
+      return new BVFetchResponse(
+        new String(byteArray, request.getCharset().name()),
+        byteArray.length,
+        etag,
+        lastModified
+      );
+    } catch (IOException e) {
+      // The connection is in an unknown state and must not go back to the pool.
+      httpGet.abort();
+      if (
+        e instanceof SocketTimeoutException ||
+        e instanceof ConnectTimeoutException
+      ) {
+        throw new BVFetchException(e.getMessage(), e);
+      }
+      throw new BVFetchException("ERR0012", e);
+    } finally {
+      IOUtils.closeQuietly(is);
+    }
+  }
+
+  private static String getHeader(HttpResponse response, String name) {
+    Header header = response.getFirstHeader(name);
+    return header == null ? null : header.getValue();
+  }
+
+  /**
+   * @return leased, pending, available and maximum connections of the pool.
+   */
+  public PoolStats getConnectionStats() {
+    return connectionManager.getTotalStats();
+  }
+
+  /**
+   * Closes all pooled connections and stops evicting idle ones. The fetcher
+   * cannot be used afterwards.
+   */
+  public void shutdown() {
+    evictionTask.cancel(false);
+    sharedFetchers.values().remove(this);
+    connectionManager.shutdown();
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.metrics;
+
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link BVMetrics} that keeps counters and latency histograms in memory and
+ * exposes them as an MBean.
+ *
+ * Fetch latencies are kept per content type and per search bot or human
+ * call. {@link #register()} publishes the MBean on the platform MBean server
+ * as {@code com.bazaarvoice.seo.sdk:type=BVMetrics,name=<name>}.
+ */
+public class BVJmxMetrics implements BVMetrics, BVJmxMetricsMBean {
+
+  private final String name;
+  private final AtomicReference<State> state =
+    new AtomicReference<State>(new State());
+
+  public BVJmxMetrics() {
+    this("default");
+  }
+
+  /**
+   * @param name name of the MBean, to tell several configurations apart.
+   */
+  public BVJmxMetrics(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Registers the MBean on the platform MBean server.
+   *
+   * @return this.
+   * @throws BVSdkException ERR0028 if the MBean cannot be registered.
+   */
+  public BVJmxMetrics register() {
+    try {
+      getMBeanServer().registerMBean(this, getObjectName());
+    } catch (JMException e) {
+      throw new BVSdkException("ERR0028", e);
+    }
+    return this;
+  }
+
+  /**
+   * Unregisters the MBean if it is registered.
+   */
+  public void unregister() {
+    try {
+      if (getMBeanServer().isRegistered(getObjectName())) {
+        getMBeanServer().unregisterMBean(getObjectName());
+      }
+    } catch (JMException e) {
+      throw new BVSdkException("ERR0028", e);
+    }
+  }
+
+  private ObjectName getObjectName() throws JMException {
+    return new ObjectName(
+      "com.bazaarvoice.seo.sdk:type=BVMetrics,name=" + ObjectName.quote(name)
+    );
+  }
+
+  private static MBeanServer getMBeanServer() {
+    return ManagementFactory.getPlatformMBeanServer();
+  }
+
+  public void recordFetch(
+    ContentType contentType,
+    boolean bot,
+    long latencyMillis,
+    long bytes
+  ) {
+    State current = state.get();
+    current.fetches.incrementAndGet();
+    current.bytesDownloaded.addAndGet(Math.max(0, bytes));
+    histogram(current.fetchLatencies, key(contentType, bot))
+      .record(latencyMillis);
+  }
+
+  public void recordFetchError(
+    ContentType contentType,
+    boolean bot,
+    String errorCode
+  ) {
+    state.get().fetchErrors.incrementAndGet();
+  }
+
+  public void recordTimeout(ContentType contentType, boolean bot) {
+    State current = state.get();
+    (bot ? current.botTimeouts : current.timeouts).incrementAndGet();
+  }
+
+  public void recordShortCircuit(ContentType contentType, boolean bot) {
+    state.get().shortCircuits.incrementAndGet();
+  }
+
+  public void recordCacheLookup(boolean hit) {
+    State current = state.get();
+    (hit ? current.cacheHits : current.cacheMisses).incrementAndGet();
+  }
+
+  public void recordQueueDepth(int queueDepth) {
+    State current = state.get();
+    current.queueDepth.set(queueDepth);
+    int max = current.maxQueueDepth.get();
+    while (
+      queueDepth > max &&
+      !current.maxQueueDepth.compareAndSet(max, queueDepth)
+    ) {
+      max = current.maxQueueDepth.get();
+    }
+  }
+
+  public void recordCall(String method, long executionTimeMillis) {
+    histogram(state.get().callLatencies, method).record(executionTimeMillis);
+  }
+
+  public long getFetchCount() {
+    return state.get().fetches.get();
+  }
+
+  public long getFetchErrorCount() {
+    return state.get().fetchErrors.get();
+  }
+
+  public long getBytesDownloaded() {
+    return state.get().bytesDownloaded.get();
+  }
+
+  public long getTimeoutCount() {
+    return state.get().timeouts.get();
+  }
+
+  public long getBotTimeoutCount() {
+    return state.get().botTimeouts.get();
+  }
+
+  public long getShortCircuitCount() {
+    return state.get().shortCircuits.get();
+  }
+
+  public long getCacheHitCount() {
+    return state.get().cacheHits.get();
+  }
+
+  public long getCacheMissCount() {
+    return state.get().cacheMisses.get();
+  }
+
+  public double getCacheHitRatio() {
+    long hits = getCacheHitCount();
+    long lookups = hits + getCacheMissCount();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  public int getQueueDepth() {
+    return state.get().queueDepth.get();
+  }
+
+  public int getMaxQueueDepth() {
+    return state.get().maxQueueDepth.get();
+  }
+
+  public String[] getFetchLatencySummary() {
+    return summary(state.get().fetchLatencies);
+  }
+
+  public String[] getCallLatencySummary() {
+    return summary(state.get().callLatencies);
+  }
+
+  public long getFetchLatencyPercentile(
+    String contentType,
+    boolean bot,
+    double percentile
+  ) {
+    BVLatencyHistogram histogram =
+      state.get().fetchLatencies.get(key(contentType, bot));
+    return histogram == null ? 0 : histogram.getPercentile(percentile);
+  }
+
+  /**
+   * @return the fetch latency histogram of a content type and user kind, or
+   * null if nothing was recorded for it.
+   */
+  public BVLatencyHistogram getFetchLatencies(
+    ContentType contentType,
+    boolean bot
+  ) {
+    return state.get().fetchLatencies.get(key(contentType, bot));
+  }
+
+  public void reset() {
+    state.set(new State());
+  }
+
+  private static String key(ContentType contentType, boolean bot) {
+    return key(contentType == null ? "UNKNOWN" : contentType.name(), bot);
+  }
+
+  private static String key(String contentType, boolean bot) {
+    return contentType + (bot ? " bot" : " human");
+  }
+
+  private static BVLatencyHistogram histogram(
+    ConcurrentMap<String, BVLatencyHistogram> histograms,
+    String key
+  ) {
+    BVLatencyHistogram histogram = histograms.get(key);
+    if (histogram == null) {
+      BVLatencyHistogram newHistogram = new BVLatencyHistogram();
+      histogram = histograms.putIfAbsent(key, newHistogram);
+      if (histogram == null) {
+        histogram = newHistogram;
+      }
+    }
+    return histogram;
+  }
+
+  private static String[] summary(
+    Map<String, BVLatencyHistogram> histograms
+  ) {
+    List<String> lines = new ArrayList<String>();
+    for (Map.Entry<String, BVLatencyHistogram> entry : histograms.entrySet()) {
+      BVLatencyHistogram histogram = entry.getValue();
+      lines.add(String.format(
+        "%s count=%d mean=%.1fms p50=%dms p95=%dms p99=%dms max=%dms",
+        entry.getKey(),
+        histogram.getCount(),
+        histogram.getMean(),
+        histogram.getPercentile(50),
+        histogram.getPercentile(95),
+        histogram.getPercentile(99),
+        histogram.getMax()
+      ));
+    }
+    return lines.toArray(new String[lines.size()]);
+  }
+
+  /**
+   * Metrics recorded since the last reset.
+   */
+  private static final class State {
+    private final AtomicLong fetches = new AtomicLong();
+    private final AtomicLong fetchErrors = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong botTimeouts = new AtomicLong();
+    private final AtomicLong shortCircuits = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final ConcurrentMap<String, BVLatencyHistogram> fetchLatencies =
+      new ConcurrentHashMap<String, BVLatencyHistogram>();
+    private final ConcurrentMap<String, BVLatencyHistogram> callLatencies =
+      new ConcurrentHashMap<String, BVLatencyHistogram>();
+  }
+}
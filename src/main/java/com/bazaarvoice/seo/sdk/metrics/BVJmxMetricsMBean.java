@@ -0,0 +1,82 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.metrics;
+
+/**
+ * JMX management interface of {@link BVJmxMetrics}.
+ */
+public interface BVJmxMetricsMBean {
+
+  long getFetchCount();
+
+  long getFetchErrorCount();
+
+  long getBytesDownloaded();
+
+  long getTimeoutCount();
+
+  long getBotTimeoutCount();
+
+  /**
+   * @return calls that skipped loading content because a circuit breaker was
+   * open.
+   */
+  long getShortCircuitCount();
+
+  long getCacheHitCount();
+
+  long getCacheMissCount();
+
+  double getCacheHitRatio();
+
+  int getQueueDepth();
+
+  int getMaxQueueDepth();
+
+  /**
+   * @return one line per content type and user kind with the count, mean,
+   * 50th, 95th and 99th percentile and maximum fetch latency.
+   */
+  String[] getFetchLatencySummary();
+
+  /**
+   * @return one line per method with the count and the percentiles of the
+   * execution time reported in the footer.
+   */
+  String[] getCallLatencySummary();
+
+  /**
+   * @param contentType name of the content type, such as REVIEWS.
+   * @param bot true for search bot fetches.
+   * @param percentile percentile between 0 and 100.
+   * @return the fetch latency percentile in milliseconds.
+   */
+  long getFetchLatencyPercentile(
+    String contentType,
+    boolean bot,
+    double percentile
+  );
+
+  /**
+   * Clears every metric.
+   */
+  void reset();
+}
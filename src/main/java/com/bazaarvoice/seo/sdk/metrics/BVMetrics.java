@@ -0,0 +1,99 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.metrics;
+
+import com.bazaarvoice.seo.sdk.model.ContentType;
+
+/**
+ * Receives the performance events of the SDK, such as to publish them to a
+ * monitoring system.
+ *
+ * Events are reported on request threads and on BVThreadPool threads, so
+ * implementations must be thread safe and should return quickly.
+ * {@link BVNoOpMetrics} is used unless another implementation is passed to
+ * {@link com.bazaarvoice.seo.sdk.BVManagedUIContent}; {@link BVJmxMetrics}
+ * exposes the events over JMX.
+ */
+public interface BVMetrics {
+
+  /**
+   * A content fetch from the content host completed.
+   *
+   * @param contentType content type of the call that started the fetch.
+   * @param bot true if the call was made for a search bot.
+   * @param latencyMillis duration of the fetch.
+   * @param bytes number of bytes downloaded.
+   */
+  void recordFetch(
+    ContentType contentType,
+    boolean bot,
+    long latencyMillis,
+    long bytes
+  );
+
+  /**
+   * A content fetch failed, or returned invalid content.
+   *
+   * @param contentType content type of the call that started the fetch.
+   * @param bot true if the call was made for a search bot.
+   * @param errorCode error code of the failure, such as ERR0012 or ERR0025.
+   */
+  void recordFetchError(ContentType contentType, boolean bot, String errorCode);
+
+  /**
+   * A call gave up waiting for its content, reported as ERR0018 or ERR0026.
+   *
+   * @param contentType content type of the call.
+   * @param bot true if the call was made for a search bot.
+   */
+  void recordTimeout(ContentType contentType, boolean bot);
+
+  /**
+   * A call skipped loading its content because the circuit breaker of the
+   * content host is open, reported as ERR0029.
+   *
+   * @param contentType content type of the call.
+   * @param bot true if the call was made for a search bot.
+   */
+  void recordShortCircuit(ContentType contentType, boolean bot);
+
+  /**
+   * The content cache was looked up.
+   *
+   * @param hit true if cached content was served.
+   */
+  void recordCacheLookup(boolean hit);
+
+  /**
+   * A content load was queued on BVThreadPool.
+   *
+   * @param queueDepth number of tasks waiting for a thread afterwards.
+   */
+  void recordQueueDepth(int queueDepth);
+
+  /**
+   * A call of {@link com.bazaarvoice.seo.sdk.BVUIContent} completed.
+   *
+   * @param method name of the method, such as getReviews.
+   * @param executionTimeMillis the execution time reported in the footer.
+   */
+  void recordCall(String method, long executionTimeMillis);
+}
@@ -0,0 +1,64 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.metrics;
+
+import com.bazaarvoice.seo.sdk.model.ContentType;
+
+/**
+ * {@link BVMetrics} that ignores every event.
+ */
+public final class BVNoOpMetrics implements BVMetrics {
+
+  public static final BVNoOpMetrics INSTANCE = new BVNoOpMetrics();
+
+  private BVNoOpMetrics() {
+  }
+
+  public void recordFetch(
+    ContentType contentType,
+    boolean bot,
+    long latencyMillis,
+    long bytes
+  ) {
+  }
+
+  public void recordFetchError(
+    ContentType contentType,
+    boolean bot,
+    String errorCode
+  ) {
+  }
+
+  public void recordTimeout(ContentType contentType, boolean bot) {
+  }
+
+  public void recordShortCircuit(ContentType contentType, boolean bot) {
+  }
+
+  public void recordCacheLookup(boolean hit) {
+  }
+
+  public void recordQueueDepth(int queueDepth) {
+  }
+
+  public void recordCall(String method, long executionTimeMillis) {
+  }
+}
@@ -19,9 +19,8 @@
 
 package com.bazaarvoice.seo.sdk.url;
 
-import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
-import com.bazaarvoice.seo.sdk.config.BVCoreConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.exception.BVSdkException;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.model.ContentSubType;
@@ -40,8 +39,6 @@ import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.List;
 import java.util.StringTokenizer;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Builds the proper url to access the bazaarvoice content.
@@ -55,7 +52,7 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
   private static final String NUM_ONE_STR = "1";
   private static final String HTML_EXT = ".htm";
 
-  private BVConfiguration bvConfiguration;
+  private BVConfigurationSnapshot snapshot;
   private BVParameters bvParameters;
   private String fragmentString;
   private String queryString;
@@ -64,7 +61,14 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
     BVConfiguration bvConfiguration,
     BVParameters bvParameters
   ) {
-    this.bvConfiguration = bvConfiguration;
+    this(BVConfigurationSnapshot.of(bvConfiguration), bvParameters);
+  }
+
+  public BVSeoSdkURLBuilder(
+    BVConfigurationSnapshot snapshot,
+    BVParameters bvParameters
+  ) {
+    this.snapshot = snapshot;
     this.bvParameters = bvParameters;
     this.queryString = queryString();
     this.fragmentString = fragmentString();
@@ -118,9 +122,11 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
       queryString.contains(BVConstant.ESCAPED_FRAGMENT_KEY) &&
       !queryString.endsWith(BVConstant.ESCAPED_FRAGMENT_KEY)
     ) {
-      return queryString.split(
-        BVConstant.ESCAPED_FRAGMENT_KEY
-      )[1];
+      // Text between the first and the second escaped fragment key.
+      int start = queryString.indexOf(BVConstant.ESCAPED_FRAGMENT_KEY) +
+        BVConstant.ESCAPED_FRAGMENT_KEY.length();
+      int end = queryString.indexOf(BVConstant.ESCAPED_FRAGMENT_KEY, start);
+      return queryString.substring(start, end == -1 ? queryString.length() : end);
     }
     return "";
   }
@@ -143,28 +149,18 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
     // Extract content url from bvstate
     if (pageURI != null && pageURI.contains(BV_STATE)) {
       URI uri;
-      Pattern pattern = Pattern.compile(BVConstant.BVSTATE_REGEX);
       // Url fragment has highest priority for bvstate
-      uri = bvstateMatcherAndURIExtractor(
-        pattern,
-        fragmentString
-      );
+      uri = bvstateMatcherAndURIExtractor(fragmentString);
 
       if (uri == null) {
         // Next priority - bvstate in ESCAPED_FRAGMENT
         // Assuming that spec for escaped fragment is being followed and
         // that it is the last query string parameter
-        uri = bvstateMatcherAndURIExtractor(
-          pattern,
-          getEscapedFragmentValue()
-        );
+        uri = bvstateMatcherAndURIExtractor(getEscapedFragmentValue());
 
         // Finally, try bvstate in query parameter
         if (uri == null) {
-          uri = bvstateMatcherAndURIExtractor(
-            pattern,
-            queryString
-          );
+          uri = bvstateMatcherAndURIExtractor(queryString);
         }
       }
       if (uri != null) {
@@ -205,9 +201,7 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
   }
 
   private URI fileUri(String path) {
-    String fileRoot = bvConfiguration.getProperty(
-      BVClientConfig.LOCAL_SEO_FILE_ROOT.getPropertyName()
-    );
+    String fileRoot = snapshot.getLocalSeoFileRoot();
     if (StringUtils.isBlank(fileRoot)) {
       throw new BVSdkException("ERR0010");
     }
@@ -218,38 +212,10 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
   }
 
   private URI httpUri(String path) {
-    boolean isTesting = Boolean.parseBoolean(bvConfiguration.getProperty(
-      BVClientConfig.TESTING.getPropertyName()
-    ));
-    boolean isStaging = Boolean.parseBoolean(bvConfiguration.getProperty(
-      BVClientConfig.STAGING.getPropertyName()
-    ));
-    boolean isHttpsEnabled = Boolean.parseBoolean(bvConfiguration.getProperty(
-      BVClientConfig.SSL_ENABLED.getPropertyName()
-    ));
-
-
-    String s3Hostname;
-    if (isTesting)
-    {
-      s3Hostname = isStaging ? bvConfiguration.getProperty(
-        BVCoreConfig.TESTING_STAGING_S3_HOSTNAME.getPropertyName()
-      ) : bvConfiguration.getProperty(
-        BVCoreConfig.TESTING_PRODUCTION_S3_HOSTNAME.getPropertyName()
-      );
-    }
-    else
-    {
-      s3Hostname = isStaging ? bvConfiguration.getProperty(
-        BVCoreConfig.STAGING_S3_HOSTNAME.getPropertyName()
-      ) : bvConfiguration.getProperty(
-        BVCoreConfig.PRODUCTION_S3_HOSTNAME.getPropertyName()
-      );
-    }
-    String cloudKey = bvConfiguration.getProperty(
-      BVClientConfig.CLOUD_KEY.getPropertyName()
-    );
-
+    boolean isTesting = snapshot.isTesting();
+    boolean isStaging = snapshot.isStaging();
+    String s3Hostname = snapshot.getS3Hostname();
+    String cloudKey = snapshot.getCloudKey();
 
     if (bvParameters.getSubjectType() == SubjectType.SELLER)
     {
@@ -262,9 +228,7 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
     String urlPath = "/" + cloudKey + "/" + path;
     URIBuilder builder = new URIBuilder();
 
-    String httpScheme = isHttpsEnabled ? "https" : "http";
-
-    builder.setScheme(httpScheme).setHost(s3Hostname).setPath(urlPath);
+    builder.setScheme(snapshot.getScheme()).setHost(s3Hostname).setPath(urlPath);
 
     try {
       return builder.build();
@@ -276,15 +240,11 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
     return null;
   }
 
-  private URI bvstateMatcherAndURIExtractor(
-    Pattern pattern,
-    String bvstateInputStr
-  )
-  {
+  private URI bvstateMatcherAndURIExtractor(String bvstateInputStr) {
     if (bvstateInputStr != null && bvstateInputStr.contains(BV_STATE)) {
-      Matcher matcher = pattern.matcher(bvstateInputStr);
-      if (matcher.find()) {
-        return bvstateUri(matcher.group());
+      BVStateParser bvState = BVStateParser.parse(bvstateInputStr);
+      if (bvState != null) {
+        return bvstateUri(bvState);
       }
     }
     return null;
@@ -292,44 +252,16 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
 
   /**
    * Get URI from bvstate
-   * @param bvstateQueryString input containing bvstate key-value pairs
+   * @param bvState parsed bvstate key-value pairs
    * @return URI when bvstate is valid, null otherwise
    */
-  private URI bvstateUri(String bvstateQueryString) {
-    ContentType contentType = null;
-    SubjectType subjectType = null;
-    String subjectId = null;
-    String pageNumber = null;
-
-    List<NameValuePair> parameters = URLEncodedUtils.parse(
-      bvstateQueryString,
-      Charset.forName("UTF-8")
-    );
-
-    for(NameValuePair parameter : parameters) {
-      if (parameter.getName().equals(BV_STATE)) {
-        StringTokenizer tokens = new StringTokenizer(
-          parameter.getValue(),
-          BVConstant.BVSTATE_TOKEN_SEPARATOR_CHAR
-        );
-        while (tokens.hasMoreTokens()) {
-          String token = tokens.nextToken();
-          if (token.startsWith("pg")) {
-            pageNumber = extractValueFromBVStateKeyValueString(token);
-          } else if (token.startsWith("ct")) {
-            contentType = ContentType.ctFromBVStateKeyword(
-              extractValueFromBVStateKeyValueString(token)
-            );
-          } else if (token.startsWith("st")) {
-            subjectType = SubjectType.subjectType(
-              extractValueFromBVStateKeyValueString(token)
-            );
-          } else if (token.startsWith("id")) {
-            subjectId = extractValueFromBVStateKeyValueString(token);
-          }
-        }
-      }
-    }
+  private URI bvstateUri(BVStateParser bvState) {
+    ContentType contentType = bvState.getContentType() == null ?
+      null : ContentType.ctFromBVStateKeyword(bvState.getContentType());
+    SubjectType subjectType = bvState.getSubjectType() == null ?
+      null : SubjectType.subjectType(bvState.getSubjectType());
+    String subjectId = bvState.getSubjectId();
+    String pageNumber = bvState.getPageNumber();
 
     /**
      * Ignore bvstate values if
@@ -453,16 +385,6 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
     return valueString.substring(2, valueString.length());
   }
 
-  private String extractValueFromBVStateKeyValueString(String keyValueString) {
-    if (
-      keyValueString.contains(BVConstant.BVSTATE_KEYVALUE_SEPARATOR_CHAR) &&
-      !keyValueString.endsWith(BVConstant.BVSTATE_KEYVALUE_SEPARATOR_CHAR)
-    ) {
-      return keyValueString.split(BVConstant.BVSTATE_KEYVALUE_SEPARATOR_CHAR)[1];
-    }
-    return "";
-  }
-
   private String getPath(
     ContentType contentType,
     SubjectType subjectType,
@@ -499,15 +421,10 @@ public class BVSeoSdkURLBuilder implements BVSeoSdkUrl {
   }
 
   private String getRootFolder() {
-    return bvConfiguration.getProperty(
-      BVClientConfig.BV_ROOT_FOLDER.getPropertyName()
-    );
+    return snapshot.getBvRootFolder();
   }
 
   private boolean isContentFromFile() {
-    boolean loadFromFile = Boolean.parseBoolean(bvConfiguration.getProperty(
-      BVClientConfig.LOAD_SEO_FILES_LOCALLY.getPropertyName())
-    );
-    return loadFromFile;
+    return snapshot.isLoadSeoFilesLocally();
   }
 }
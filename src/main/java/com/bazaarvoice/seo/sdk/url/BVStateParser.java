@@ -0,0 +1,242 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.url;
+
+import com.bazaarvoice.seo.sdk.util.BVConstant;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Single pass scanner for the bvstate parameter.
+ *
+ * Finds the first match of {@link BVConstant#BVSTATE_REGEX} and reads the
+ * pg, ct, st and id tokens of its value, with the same result as matching the
+ * regex and decoding the match with {@link URLEncodedUtils}. Only the token
+ * values are allocated. Values containing characters that need the full form
+ * decoding rules (';', quotes, backslashes, surrounding whitespace) are
+ * decoded with {@link URLEncodedUtils} instead.
+ */
+final class BVStateParser {
+
+  private static final String BV_STATE = "bvstate";
+  private static final String BV_STATE_PREFIX = BV_STATE + "=";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private String pageNumber;
+  private String contentType;
+  private String subjectType;
+  private String subjectId;
+
+  private BVStateParser() {
+  }
+
+  /**
+   * @param input fragment, escaped fragment or query string, may be null.
+   * @return the parsed bvstate, or null if the input has no valid bvstate.
+   */
+  static BVStateParser parse(String input) {
+    if (input == null) {
+      return null;
+    }
+
+    int from = 0;
+    while (true) {
+      int start = input.indexOf(BV_STATE_PREFIX, from);
+      if (start == -1) {
+        return null;
+      }
+
+      int valueStart = start + BV_STATE_PREFIX.length();
+      int end = matchTokens(input, valueStart);
+      if (end > valueStart) {
+        BVStateParser bvState = new BVStateParser();
+        if (isPlainValue(input, valueStart, end)) {
+          bvState.readTokens(input, valueStart, end);
+        } else {
+          bvState.readDecodedTokens(input.substring(start, end));
+        }
+        return bvState;
+      }
+      from = start + 1;
+    }
+  }
+
+  /**
+   * @return bvstate page number, null if absent, empty if it has no value.
+   */
+  String getPageNumber() {
+    return pageNumber;
+  }
+
+  /**
+   * @return bvstate content type keyword, null if absent, empty if it has no
+   * value.
+   */
+  String getContentType() {
+    return contentType;
+  }
+
+  /**
+   * @return bvstate subject type keyword, null if absent, empty if it has no
+   * value.
+   */
+  String getSubjectType() {
+    return subjectType;
+  }
+
+  /**
+   * @return bvstate subject id, null if absent, empty if it has no value.
+   */
+  String getSubjectId() {
+    return subjectId;
+  }
+
+  /**
+   * Matches {@code (([^?&/%:]*:[^?&/%]*)/?)+} at the index.
+   *
+   * @return end of the match, or the index if no token matches.
+   */
+  private static int matchTokens(String input, int index) {
+    int length = input.length();
+    int end = index;
+    while (true) {
+      int position = end;
+      while (position < length) {
+        char c = input.charAt(position);
+        if (c == ':' || isTokenEnd(c)) {
+          break;
+        }
+        position++;
+      }
+      if (position == length || input.charAt(position) != ':') {
+        return end;
+      }
+
+      position++;
+      while (position < length && !isTokenEnd(input.charAt(position))) {
+        position++;
+      }
+      if (position < length && input.charAt(position) == '/') {
+        position++;
+      }
+      end = position;
+    }
+  }
+
+  private static boolean isTokenEnd(char c) {
+    return c == '?' || c == '&' || c == '/' || c == '%';
+  }
+
+  /**
+   * @return true if decoding the value only turns '+' into a space.
+   */
+  private static boolean isPlainValue(String input, int start, int end) {
+    if (isWhitespace(input.charAt(start)) || isWhitespace(input.charAt(end - 1))) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      char c = input.charAt(i);
+      if (
+        c == ';' || c == '"' || c == '\\' ||
+        Character.isHighSurrogate(c) || Character.isLowSurrogate(c)
+      ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+  }
+
+  /**
+   * Reads the '/' separated tokens between start and end.
+   */
+  private void readTokens(String input, int start, int end) {
+    int tokenStart = start;
+    while (tokenStart < end) {
+      int tokenEnd = input.indexOf('/', tokenStart);
+      if (tokenEnd == -1 || tokenEnd > end) {
+        tokenEnd = end;
+      }
+      if (tokenEnd > tokenStart) {
+        readToken(input, tokenStart, tokenEnd);
+      }
+      tokenStart = tokenEnd + 1;
+    }
+  }
+
+  private void readToken(String input, int start, int end) {
+    if (input.startsWith("pg", start)) {
+      pageNumber = getTokenValue(input, start, end);
+    } else if (input.startsWith("ct", start)) {
+      contentType = getTokenValue(input, start, end);
+    } else if (input.startsWith("st", start)) {
+      subjectType = getTokenValue(input, start, end);
+    } else if (input.startsWith("id", start)) {
+      subjectId = getTokenValue(input, start, end);
+    }
+  }
+
+  /**
+   * @return the text between the first and the second ':' of the token, empty
+   * if the token has no ':' or ends with ':'.
+   */
+  private static String getTokenValue(String input, int start, int end) {
+    int separator = input.indexOf(':', start);
+    if (separator == -1 || separator >= end || input.charAt(end - 1) == ':') {
+      return "";
+    }
+
+    int valueEnd = input.indexOf(':', separator + 1);
+    if (valueEnd == -1 || valueEnd > end) {
+      valueEnd = end;
+    }
+    return input.substring(separator + 1, valueEnd).replace('+', ' ');
+  }
+
+  /**
+   * Reads the tokens after decoding the match with URLEncodedUtils.
+   */
+  private void readDecodedTokens(String bvstateQueryString) {
+    List<NameValuePair> parameters = URLEncodedUtils.parse(
+      bvstateQueryString,
+      UTF_8
+    );
+
+    for (NameValuePair parameter : parameters) {
+      if (parameter.getName().equals(BV_STATE) && parameter.getValue() != null) {
+        StringTokenizer tokens = new StringTokenizer(
+          parameter.getValue(),
+          BVConstant.BVSTATE_TOKEN_SEPARATOR_CHAR
+        );
+        while (tokens.hasMoreTokens()) {
+          String token = tokens.nextToken();
+          readToken(token, 0, token.length());
+        }
+      }
+    }
+  }
+}
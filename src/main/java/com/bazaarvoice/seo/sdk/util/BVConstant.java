@@ -61,4 +61,25 @@ public final class BVConstant {
   public static final String SEO_SDK_ENABLED = "true";
   public static final String PROXY_HOST = "none";
   public static final String PROXY_PORT = "0";
+  public static final String CACHE_TTL = "0";
+  public static final String CACHE_MAX_ENTRIES = "1000";
+  public static final String CACHE_MAX_BYTES = "67108864";
+  public static final String CACHE_MAX_STALE = "86400000";
+  public static final String HTTP_MAX_CONNECTIONS = "200";
+  public static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "50";
+  public static final String HTTP_IDLE_TIMEOUT = "30000";
+  public static final String THREAD_POOL_CORE_SIZE = "64";
+  public static final String THREAD_POOL_MAX_SIZE = "64";
+  public static final String THREAD_POOL_QUEUE_SIZE = "256";
+  public static final String CONTENT_MEMO_TTL = "0";
+  public static final String CIRCUIT_BREAKER_FAILURES = "0";
+  public static final String CIRCUIT_BREAKER_COOL_DOWN = "30000";
+  public static final String CACHE_NOT_FOUND_TTL = "0";
+  public static final String CACHE_ERROR_TTL = "0";
+  public static final String DISK_CACHE_DIRECTORY = "none";
+  public static final String DISK_CACHE_MAX_BYTES = "1073741824";
+  public static final String WARM_UP_PARALLELISM = "4";
+  public static final String WARM_UP_RATE = "10";
+  public static final String HOT_KEY_REFRESH_COUNT = "0";
+  public static final String HOT_KEY_REFRESH_AHEAD = "10000";
 }
@@ -0,0 +1,187 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.util;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Detects crawler user agents.
+ *
+ * A user agent is a crawler when it contains one of the alternatives of the
+ * crawler agent pattern, ignoring ASCII case, or when it contains "google".
+ * This is equivalent to matching the user agent against
+ * {@code .*(crawlerAgentPattern).*} case insensitively.
+ *
+ * When every alternative is a plain ASCII literal, which is the case for the
+ * default pattern, the alternatives are compiled into an Aho-Corasick
+ * automaton that scans the user agent once without allocating or locking.
+ * Other patterns fall back to the regular expression.
+ *
+ * Instances are immutable and thread safe.
+ */
+public final class BVCrawlerAgentMatcher {
+
+  private static final String GOOGLE = "google";
+  private static final String REGEX_META_CHARS = "\\^$.|?*+()[]{}";
+  private static final int ALPHABET_SIZE = 128;
+
+  private final Pattern pattern;
+  private final int[][] transitions;
+  private final boolean[] accepting;
+
+  /**
+   * @param crawlerAgentPattern alternatives separated by '|'.
+   */
+  public BVCrawlerAgentMatcher(String crawlerAgentPattern) {
+    List<String> literals = getLiterals(crawlerAgentPattern);
+    if (literals == null) {
+      pattern = Pattern.compile(
+        "(" + crawlerAgentPattern + ")|" + GOOGLE,
+        Pattern.CASE_INSENSITIVE
+      );
+      transitions = null;
+      accepting = null;
+    } else {
+      literals.add(GOOGLE);
+      pattern = null;
+
+      List<int[]> trie = new ArrayList<int[]>();
+      List<Boolean> trieAccepting = new ArrayList<Boolean>();
+      trie.add(newState());
+      trieAccepting.add(Boolean.FALSE);
+      for (String literal : literals) {
+        int state = 0;
+        for (int i = 0; i < literal.length(); i++) {
+          int c = toLowerCase(literal.charAt(i));
+          if (trie.get(state)[c] == -1) {
+            trie.get(state)[c] = trie.size();
+            trie.add(newState());
+            trieAccepting.add(Boolean.FALSE);
+          }
+          state = trie.get(state)[c];
+        }
+        trieAccepting.set(state, Boolean.TRUE);
+      }
+
+      transitions = trie.toArray(new int[trie.size()][]);
+      accepting = new boolean[transitions.length];
+      for (int i = 0; i < accepting.length; i++) {
+        accepting[i] = trieAccepting.get(i);
+      }
+      buildAutomaton();
+    }
+  }
+
+  /**
+   * @param userAgent the user agent, may be null.
+   * @return true if the user agent belongs to a crawler.
+   */
+  public boolean isCrawler(String userAgent) {
+    if (userAgent == null) {
+      return false;
+    }
+
+    return pattern == null ?
+      scan(userAgent) : pattern.matcher(userAgent).find();
+  }
+
+  private boolean scan(String userAgent) {
+    int state = 0;
+    if (accepting[state]) {
+      return true;
+    }
+    for (int i = 0; i < userAgent.length(); i++) {
+      char c = userAgent.charAt(i);
+      state = c < ALPHABET_SIZE ? transitions[state][toLowerCase(c)] : 0;
+      if (accepting[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Turns the trie into a complete automaton: missing transitions follow the
+   * failure links and states accept when their failure state accepts.
+   */
+  private void buildAutomaton() {
+    int[] failure = new int[transitions.length];
+    LinkedList<Integer> queue = new LinkedList<Integer>();
+    for (int c = 0; c < ALPHABET_SIZE; c++) {
+      int next = transitions[0][c];
+      if (next == -1) {
+        transitions[0][c] = 0;
+      } else {
+        failure[next] = 0;
+        queue.add(next);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      int state = queue.removeFirst();
+      accepting[state] = accepting[state] || accepting[failure[state]];
+      for (int c = 0; c < ALPHABET_SIZE; c++) {
+        int next = transitions[state][c];
+        if (next == -1) {
+          transitions[state][c] = transitions[failure[state]][c];
+        } else {
+          failure[next] = transitions[failure[state]][c];
+          queue.add(next);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the alternatives of the pattern, or null if any alternative is
+   * not a plain ASCII literal.
+   */
+  private static List<String> getLiterals(String crawlerAgentPattern) {
+    List<String> literals = new ArrayList<String>();
+    int start = 0;
+    for (int i = 0; i <= crawlerAgentPattern.length(); i++) {
+      if (i == crawlerAgentPattern.length() || crawlerAgentPattern.charAt(i) == '|') {
+        literals.add(crawlerAgentPattern.substring(start, i));
+        start = i + 1;
+      } else {
+        char c = crawlerAgentPattern.charAt(i);
+        if (c >= ALPHABET_SIZE || REGEX_META_CHARS.indexOf(c) != -1) {
+          return null;
+        }
+      }
+    }
+    return literals;
+  }
+
+  private static int[] newState() {
+    int[] state = new int[ALPHABET_SIZE];
+    for (int c = 0; c < ALPHABET_SIZE; c++) {
+      state[c] = -1;
+    }
+    return state;
+  }
+
+  private static int toLowerCase(char c) {
+    return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+  }
+}
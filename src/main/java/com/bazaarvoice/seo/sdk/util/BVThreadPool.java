@@ -19,19 +19,180 @@
 
 package com.bazaarvoice.seo.sdk.util;
 
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Singleton instance of cached thread pool.
+ * Shared bounded thread pools used to load seo content.
+ *
+ * A pool runs up to {@link BVClientConfig#THREAD_POOL_MAX_SIZE} threads and
+ * queues up to {@link BVClientConfig#THREAD_POOL_QUEUE_SIZE} tasks. Tasks
+ * submitted to a saturated pool are rejected with a
+ * {@link java.util.concurrent.RejectedExecutionException} instead of starting
+ * more threads, so a slow content host cannot grow the thread count without
+ * limit. Threads are daemon threads and idle threads are released after a
+ * minute.
+ *
+ * A pool only starts threads above its core size once the queue is full, so
+ * by default the core size equals the maximum size. Otherwise a slow content
+ * host would leave loads waiting in the queue behind the core threads while
+ * the remaining threads are never started.
+ *
+ * One pool is shared for every distinct combination of pool settings. Pools
+ * live as long as the class and are never shut down, but their threads,
+ * core threads included, exit after a minute without tasks, so a pool whose
+ * settings are no longer used holds no threads. Applications should
+ * therefore use a small, fixed set of pool settings.
+ * A single scheduler thread runs the execution timeouts of asynchronous
+ * calls.
  *
  * @author Anandan Narayanaswamy
  */
 public final class BVThreadPool {
 
-  private static final ExecutorService executorService = Executors.newCachedThreadPool();
+  private static final long KEEP_ALIVE_MILLIS = 60000;
+  private static final AtomicInteger threadCount = new AtomicInteger();
+  private static final ConcurrentMap<String, ThreadPoolExecutor> executorServices =
+    new ConcurrentHashMap<String, ThreadPoolExecutor>();
 
+  private BVThreadPool() {
+  }
+
+  /**
+   * @return the pool for the default pool settings.
+   */
   public static ExecutorService getExecutorService() {
+    return getThreadPoolExecutor();
+  }
+
+  /**
+   * @return the pool for the default pool settings.
+   */
+  public static ThreadPoolExecutor getThreadPoolExecutor() {
+    return getThreadPoolExecutor(
+      Integer.parseInt(BVConstant.THREAD_POOL_CORE_SIZE),
+      Integer.parseInt(BVConstant.THREAD_POOL_MAX_SIZE),
+      Integer.parseInt(BVConstant.THREAD_POOL_QUEUE_SIZE)
+    );
+  }
+
+  /**
+   * @return the pool for the pool settings of the configuration.
+   */
+  public static ThreadPoolExecutor getThreadPoolExecutor(
+    BVConfiguration bvConfiguration
+  ) {
+    return getThreadPoolExecutor(BVConfigurationSnapshot.of(bvConfiguration));
+  }
+
+  /**
+   * @param snapshot snapshot of the configuration.
+   * @return the pool for the pool settings of the snapshot.
+   */
+  public static ThreadPoolExecutor getThreadPoolExecutor(
+    BVConfigurationSnapshot snapshot
+  ) {
+    return getThreadPoolExecutor(
+      snapshot.getThreadPoolCoreSize(),
+      snapshot.getThreadPoolMaxSize(),
+      snapshot.getThreadPoolQueueSize()
+    );
+  }
+
+  /**
+   * @return the scheduler the execution timeouts of asynchronous calls run on.
+   */
+  public static ScheduledThreadPoolExecutor getScheduler() {
+    return SchedulerHolder.SCHEDULER;
+  }
+
+  /**
+   * @return number of tasks waiting for a thread in the configuration's pool.
+   */
+  public static int getQueueDepth(BVConfiguration bvConfiguration) {
+    return getThreadPoolExecutor(bvConfiguration).getQueue().size();
+  }
+
+  /**
+   * @return number of threads running a task in the configuration's pool.
+   */
+  public static int getActiveCount(BVConfiguration bvConfiguration) {
+    return getThreadPoolExecutor(bvConfiguration).getActiveCount();
+  }
+
+  private static ThreadPoolExecutor getThreadPoolExecutor(
+    int coreSize,
+    int maxSize,
+    int queueSize
+  ) {
+    String poolKey = coreSize + "|" + maxSize + "|" + queueSize;
+    ThreadPoolExecutor executorService = executorServices.get(poolKey);
+    if (executorService == null) {
+      ThreadPoolExecutor newExecutorService = newExecutorService(
+        coreSize,
+        maxSize,
+        queueSize
+      );
+      executorService = executorServices.putIfAbsent(poolKey, newExecutorService);
+      if (executorService == null) {
+        executorService = newExecutorService;
+      } else {
+        newExecutorService.shutdown();
+      }
+    }
+    return executorService;
+  }
+
+  private static ThreadPoolExecutor newExecutorService(
+    int coreSize,
+    int maxSize,
+    int queueSize
+  ) {
+    int maximumPoolSize = Math.max(1, maxSize);
+    ThreadPoolExecutor executorService = new ThreadPoolExecutor(
+      Math.max(1, Math.min(coreSize, maximumPoolSize)),
+      maximumPoolSize,
+      KEEP_ALIVE_MILLIS,
+      TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+      new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(
+            runnable,
+            "bvseo-sdk-worker-" + threadCount.incrementAndGet()
+          );
+          thread.setDaemon(true);
+          return thread;
+        }
+      },
+      new ThreadPoolExecutor.AbortPolicy()
+    );
+    executorService.allowCoreThreadTimeOut(true);
     return executorService;
   }
+
+  /**
+   * Creates the scheduler on first use.
+   */
+  private static final class SchedulerHolder {
+    private static final ScheduledThreadPoolExecutor SCHEDULER =
+      new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "bvseo-sdk-timer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+  }
 }
@@ -161,6 +161,22 @@ public final class BVUtility {
     StringBuilder content,
     String baseUri
   ) {
+    replaceString(
+      content,
+      BVConstant.INCLUDE_PAGE_URI,
+      getPageUri(baseUri)
+    );
+  }
+
+  /**
+   * Gets the value {@link BVConstant#INCLUDE_PAGE_URI} is replaced with in
+   * the seo content: the base uri followed by the separator needed to append
+   * the bvstate parameter of the seo links.
+   *
+   * @param baseUri the corrected base uri of the page.
+   * @return the page uri.
+   */
+  public static String getPageUri(String baseUri) {
     String toAppendToBaseUri = "";
     // baseUri has hashbang or a non _escaped_fragment_url
     if (
@@ -189,11 +205,7 @@ public final class BVUtility {
       }
     }
 
-    replaceString(
-      content,
-      BVConstant.INCLUDE_PAGE_URI,
-      baseUri + toAppendToBaseUri
-    );
+    return baseUri + toAppendToBaseUri;
   }
 
   public static String removeBVParameters(String url) {
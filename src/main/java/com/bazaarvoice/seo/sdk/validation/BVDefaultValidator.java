@@ -28,8 +28,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
 
@@ -56,6 +56,20 @@ public class BVDefaultValidator implements BVValidator {
    * @return String if there are any errors for the attributes which are either null or invalid.
    */
   public String validate(BVConfiguration bvConfiguration, BVParameters bvParams) {
+    return validate(bvConfiguration, null, bvParams);
+  }
+
+  /**
+   * Validates the attributes in bvParameter object against a snapshot that was
+   * already taken of the configuration.
+   *
+   * @return String if there are any errors for the attributes which are either null or invalid.
+   */
+  public String validate(
+    BVConfiguration bvConfiguration,
+    BVConfigurationSnapshot snapshot,
+    BVParameters bvParams
+  ) {
     if (bvConfiguration == null) {
       errorMessages.append(BVMessageUtil.getMessage("ERR0007"));
       _logger.error(BVMessageUtil.getMessage("ERR0007"));
@@ -68,21 +82,22 @@ public class BVDefaultValidator implements BVValidator {
       return errorMessages.toString();
     }
 
-    boolean loadSeoFilesLocally = Boolean.parseBoolean(bvConfiguration.getProperty(
-        BVClientConfig.LOAD_SEO_FILES_LOCALLY.getPropertyName()));
-    if (loadSeoFilesLocally) {
-      String localSeoFileRoot = bvConfiguration.getProperty(BVClientConfig.LOCAL_SEO_FILE_ROOT.getPropertyName());
+    if (snapshot == null) {
+      snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    }
+    if (snapshot.isLoadSeoFilesLocally()) {
+      String localSeoFileRoot = snapshot.getLocalSeoFileRoot();
       if (StringUtils.isBlank(localSeoFileRoot)) {
         errorMessages.append(BVMessageUtil.getMessage("ERR0010"));
       }
     } else {
-      String cloudKey = bvConfiguration.getProperty(BVClientConfig.CLOUD_KEY.getPropertyName());
+      String cloudKey = snapshot.getCloudKey();
       if (StringUtils.isBlank(cloudKey)) {
         errorMessages.append(BVMessageUtil.getMessage("ERR0020"));
       }
     }
 
-    String rootFolder = bvConfiguration.getProperty(BVClientConfig.BV_ROOT_FOLDER.getPropertyName());
+    String rootFolder = snapshot.getBvRootFolder();
     if (StringUtils.isBlank(rootFolder)) {
       errorMessages.append(BVMessageUtil.getMessage("ERR0021"));
     }
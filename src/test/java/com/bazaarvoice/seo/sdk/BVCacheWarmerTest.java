@@ -0,0 +1,231 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.model.SubjectType;
+import com.bazaarvoice.seo.sdk.url.BVSeoSdkURLBuilder;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Test class for {@link BVCacheWarmer}.
+ */
+public class BVCacheWarmerTest {
+
+  private LocalSeoContentServer server;
+  private BVConfiguration bvConfiguration;
+
+  @BeforeMethod
+  public void startServer() {
+    server = new LocalSeoContentServer().start();
+    bvConfiguration = server.newConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "60000");
+    bvConfiguration.addProperty(BVClientConfig.WARM_UP_RATE, "0");
+  }
+
+  @AfterMethod
+  public void stopServer() {
+    server.stop();
+  }
+
+  /**
+   * Warmed up content is served from the cache, subjects which cannot be
+   * resolved are reported as failures.
+   */
+  @Test
+  public void testWarmUp() {
+    List<BVParameters> subjects = new ArrayList<BVParameters>();
+    for (int i = 0; i < 5; i++) {
+      subjects.add(newSubject("warmUp" + i));
+    }
+    subjects.add(newSubject(null));
+
+    final AtomicInteger loaded = new AtomicInteger();
+    final AtomicInteger failed = new AtomicInteger();
+    BVCacheWarmer warmer = new BVCacheWarmer(bvConfiguration);
+    warmer.setListener(new BVWarmUpListener() {
+      public void onLoaded(BVParameters bvParameters, URI seoContentUri) {
+        loaded.incrementAndGet();
+      }
+
+      public void onFailed(BVParameters bvParameters, String message) {
+        failed.incrementAndGet();
+      }
+    });
+    BVWarmUpReport report = warmer.warmUp(subjects.iterator());
+
+    assertEquals(report.getLoaded(), 5, "every subject with an id should be loaded.");
+    assertEquals(report.getFailed(), 1, "the subject without an id should fail.");
+    assertEquals(
+      report.getFailures().values().iterator().next(),
+      BVMessageUtil.getMessage("ERR0014"),
+      "failure should carry its reason."
+    );
+    assertFalse(report.isInterrupted(), "warm-up should not be interrupted.");
+    assertEquals(loaded.get(), 5, "listener should see every load.");
+    assertEquals(failed.get(), 1, "listener should see every failure.");
+    assertEquals(server.getRequestCount(), 5, "every subject should be fetched once.");
+    assertTrue(
+      server.getLastUserAgent().contains("bvseo-sdk-warm-up"),
+      "loads should send the warm-up user agent."
+    );
+    assertEquals(subjects.get(0).getPageNumber(), null, "subjects should not be modified.");
+
+    BVUIContentService contentService =
+      new BVUIContentServiceProvider(bvConfiguration);
+    BVParameters bvParameters = newSubject("warmUp3");
+    contentService.setBVParameters(bvParameters);
+    contentService.setBVSeoSdkUrl(new BVSeoSdkURLBuilder(bvConfiguration, bvParameters));
+    assertTrue(
+      contentService.executeCall().toString().contains("BV reviews"),
+      "warmed up content should be served."
+    );
+    assertEquals(server.getRequestCount(), 5, "warmed up content should come from the cache.");
+  }
+
+  /**
+   * Loads are started no faster than the configured rate.
+   */
+  @Test
+  public void testRateLimit() {
+    bvConfiguration.addProperty(BVClientConfig.WARM_UP_RATE, "20");
+    List<BVParameters> subjects = new ArrayList<BVParameters>();
+    for (int i = 0; i < 6; i++) {
+      subjects.add(newSubject("rateLimit" + i));
+    }
+
+    BVWarmUpReport report = new BVCacheWarmer(bvConfiguration).warmUp(subjects.iterator());
+
+    assertEquals(report.getLoaded(), 6, "every subject should be loaded.");
+    assertTrue(
+      report.getElapsedMillis() >= 5 * 50 - 10,
+      "6 loads at 20 per second should take at least 250ms, took " +
+        report.getElapsedMillis() + "ms."
+    );
+  }
+
+  /**
+   * Only the first failures are kept in the report, the others are counted.
+   */
+  @Test
+  public void testFailuresCapped() {
+    int subjectCount = BVCacheWarmer.MAX_REPORTED_FAILURES + 5;
+    List<BVParameters> subjects = new ArrayList<BVParameters>();
+    for (int i = 0; i < subjectCount; i++) {
+      BVParameters bvParameters = newSubject(null);
+      bvParameters.setPageURI("http://localhost/page" + i + ".jsp");
+      subjects.add(bvParameters);
+    }
+
+    BVWarmUpReport report = new BVCacheWarmer(bvConfiguration).warmUp(subjects.iterator());
+
+    assertEquals(report.getFailed(), subjectCount, "every subject should fail.");
+    assertEquals(
+      report.getFailures().size(),
+      BVCacheWarmer.MAX_REPORTED_FAILURES,
+      "failures kept should be capped."
+    );
+    assertEquals(report.getOmittedFailures(), 5, "other failures should be counted.");
+    assertEquals(server.getRequestCount(), 0, "nothing should be fetched.");
+  }
+
+  /**
+   * Pages of a sitemap are resolved from their bvstate parameter.
+   */
+  @Test
+  public void testSitemap() throws IOException {
+    File sitemap = File.createTempFile("bvseo-sitemap", ".xml");
+    try {
+      FileUtils.writeStringToFile(sitemap,
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n" +
+        "  <url><loc>http://localhost/product.jsp?bvstate=ct:r/id:sitemap1</loc></url>\n" +
+        "  <url><loc>http://localhost/product.jsp?bvstate=pg:2/ct:r/id:sitemap1</loc></url>\n" +
+        "  <url><loc>http://localhost/about.jsp</loc></url>\n" +
+        "</urlset>\n",
+        "UTF-8"
+      );
+
+      BVWarmUpReport report = new BVCacheWarmer(bvConfiguration).warmUp(
+        sitemap,
+        new BVParameters()
+      );
+
+      assertEquals(report.getLoaded(), 2, "pages with a subject id should be loaded.");
+      assertEquals(report.getFailed(), 1, "page without a subject id should fail.");
+      assertTrue(
+        report.getFailures().containsKey("http://localhost/about.jsp"),
+        "failure should name the page."
+      );
+      assertEquals(server.getRequestCount(), 2, "every page should be fetched once.");
+    } finally {
+      FileUtils.forceDelete(sitemap);
+    }
+  }
+
+  /**
+   * A sitemap which is not xml is reported before anything is loaded.
+   */
+  @Test
+  public void testInvalidSitemap() throws IOException {
+    File sitemap = File.createTempFile("bvseo-sitemap", ".xml");
+    try {
+      FileUtils.writeStringToFile(sitemap, "<urlset><url><loc>", "UTF-8");
+      new BVCacheWarmer(bvConfiguration).warmUp(sitemap, new BVParameters());
+      fail("invalid sitemap should not be read.");
+    } catch (BVSdkException e) {
+      assertEquals(e.getErrorCode(), "ERR0030", "invalid sitemap should be reported.");
+      assertEquals(server.getRequestCount(), 0, "nothing should be loaded.");
+    } finally {
+      FileUtils.forceDelete(sitemap);
+    }
+  }
+
+  private static BVParameters newSubject(String subjectId) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("googlebot");
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    return bvParameters;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Test class for {@link BVHotContentRefresher}.
+ */
+public class BVHotContentRefresherTest {
+
+  /**
+   * Only the most accessed uris are refreshed, at most once per refresh
+   * window, without the user agent of the requests that accessed them.
+   */
+  @Test
+  public void testRefreshMostAccessed() {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "600");
+
+      BVParameters bvParameters = new BVParameters();
+      bvParameters.setUserAgent("googlebot");
+      bvParameters.setContentType(ContentType.REVIEWS);
+      BVUIContentServiceProvider contentService =
+        new BVUIContentServiceProvider(bvConfiguration);
+      contentService.setBVParameters(bvParameters);
+
+      String prefix = "http://localhost:" + server.getPort() + "/" + System.nanoTime();
+      URI hot = URI.create(prefix + "-hot.htm");
+      URI warm = URI.create(prefix + "-warm.htm");
+      URI cold = URI.create(prefix + "-cold.htm");
+
+      BVHotContentRefresher refresher = new BVHotContentRefresher(2, 60000);
+      for (int i = 0; i < 5; i++) {
+        refresher.recordAccess("UTF-8 " + hot, hot, contentService);
+      }
+      for (int i = 0; i < 3; i++) {
+        refresher.recordAccess("UTF-8 " + warm, warm, contentService);
+      }
+      refresher.recordAccess("UTF-8 " + cold, cold, contentService);
+
+      refresher.refresh();
+      assertEquals(server.getRequestCount(), 2, "the two most accessed uris should be refreshed.");
+      assertTrue(
+        server.getLastUserAgent().contains("bvseo-sdk-hot-key-refresh"),
+        "refresh should send its own user agent."
+      );
+      assertFalse(
+        server.getLastUserAgent().contains("googlebot"),
+        "refresh should not send the user agent of a request."
+      );
+
+      refresher.refresh();
+      assertEquals(server.getRequestCount(), 2, "refreshed uris should wait for the refresh window.");
+
+      refresher.recordAccess("UTF-8 " + cold, cold, contentService);
+      refresher.refresh();
+      assertEquals(server.getRequestCount(), 2, "cold uri should not be admitted anymore.");
+    } finally {
+      server.stop();
+    }
+  }
+}
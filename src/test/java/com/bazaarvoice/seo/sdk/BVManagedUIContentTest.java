@@ -20,7 +20,19 @@
 package com.bazaarvoice.seo.sdk;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.bazaarvoice.seo.sdk.servlet.DefaultRequestContext;
 import org.testng.annotations.Test;
@@ -28,6 +40,8 @@ import org.testng.annotations.Test;
 import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
 import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.metrics.BVMetrics;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.model.ContentType;
 import com.bazaarvoice.seo.sdk.model.SubjectType;
@@ -152,4 +166,246 @@ public class BVManagedUIContentTest {
     assertNotNull(sBvOutput, "sBvOutput should not be null");
   }
 
+  /**
+   * Test case for sharing a single instance across concurrent calls of
+   * different content types.
+   */
+  @Test
+  public void testSharedInstance() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration _bvConfig = server.newConfiguration();
+      _bvConfig.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      final BVUIContent bvUIContent = new BVManagedUIContent(_bvConfig);
+
+      int calls = 16;
+      final CountDownLatch startSignal = new CountDownLatch(1);
+      ExecutorService callerPool = Executors.newFixedThreadPool(calls);
+      List<Future<String>> aggregateRatings = new ArrayList<Future<String>>();
+      List<Future<String>> reviews = new ArrayList<Future<String>>();
+      for (int i = 0; i < calls / 2; i++) {
+        final String subjectId = "shared-" + i;
+        aggregateRatings.add(callerPool.submit(new Callable<String>() {
+          public String call() throws Exception {
+            startSignal.await();
+            return bvUIContent.getAggregateRating(
+              newParameters(subjectId, ContentType.REVIEWS)
+            );
+          }
+        }));
+        reviews.add(callerPool.submit(new Callable<String>() {
+          public String call() throws Exception {
+            startSignal.await();
+            return bvUIContent.getReviews(
+              newParameters(subjectId, ContentType.REVIEWS)
+            );
+          }
+        }));
+      }
+      startSignal.countDown();
+
+      for (Future<String> aggregateRating : aggregateRatings) {
+        String content = aggregateRating.get(5, TimeUnit.SECONDS);
+        assertTrue(content.contains("BV aggregate rating"), "aggregate rating should be returned.");
+        assertFalse(content.contains("BV reviews"), "reviews should be removed.");
+        assertTrue(content.contains("getAggregateRating"), "footer should belong to the call.");
+      }
+      for (Future<String> review : reviews) {
+        String content = review.get(5, TimeUnit.SECONDS);
+        assertTrue(content.contains("BV reviews"), "reviews should be returned.");
+        assertFalse(content.contains("BV aggregate rating"), "aggregate rating should be removed.");
+        assertTrue(content.contains("getReviews"), "footer should belong to the call.");
+      }
+      callerPool.shutdown();
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that the write methods stream the same output the get
+   * methods return.
+   */
+  @Test
+  public void testWriteContent() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration _bvConfig = server.newConfiguration();
+      _bvConfig.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      BVUIContent bvUIContent = new BVManagedUIContent(_bvConfig);
+      BVParameters bvParameters = newParameters("write", ContentType.REVIEWS);
+
+      StringWriter content = new StringWriter();
+      bvUIContent.writeContent(bvParameters, content);
+      assertEquals(
+        withoutExecutionTime(content.toString()),
+        withoutExecutionTime(bvUIContent.getContent(bvParameters)),
+        "written content should match getContent."
+      );
+
+      StringWriter aggregateRating = new StringWriter();
+      bvUIContent.writeAggregateRating(bvParameters, aggregateRating);
+      assertEquals(
+        withoutExecutionTime(aggregateRating.toString()),
+        withoutExecutionTime(bvUIContent.getAggregateRating(bvParameters)),
+        "written aggregate rating should match getAggregateRating."
+      );
+      assertFalse(aggregateRating.toString().contains("BV reviews"), "reviews should be removed.");
+
+      StringWriter reviews = new StringWriter();
+      bvUIContent.writeReviews(bvParameters, reviews);
+      assertEquals(
+        withoutExecutionTime(reviews.toString()),
+        withoutExecutionTime(bvUIContent.getReviews(bvParameters)),
+        "written reviews should match getReviews."
+      );
+      assertTrue(reviews.toString().contains("BV reviews"), "reviews should be written.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that the asynchronous methods complete with the same
+   * output the blocking methods return.
+   */
+  @Test
+  public void testAsyncContent() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration _bvConfig = server.newConfiguration();
+      _bvConfig.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      BVUIContent bvUIContent = new BVManagedUIContent(_bvConfig);
+      BVParameters bvParameters = newParameters("async", ContentType.REVIEWS);
+
+      assertEquals(
+        withoutExecutionTime(bvUIContent.getContentAsync(bvParameters).get(5, TimeUnit.SECONDS)),
+        withoutExecutionTime(bvUIContent.getContent(bvParameters)),
+        "asynchronous content should match getContent."
+      );
+      assertEquals(
+        withoutExecutionTime(bvUIContent.getAggregateRatingAsync(bvParameters).get(5, TimeUnit.SECONDS)),
+        withoutExecutionTime(bvUIContent.getAggregateRating(bvParameters)),
+        "asynchronous aggregate rating should match getAggregateRating."
+      );
+      assertEquals(
+        withoutExecutionTime(bvUIContent.getReviewsAsync(bvParameters).get(5, TimeUnit.SECONDS)),
+        withoutExecutionTime(bvUIContent.getReviews(bvParameters)),
+        "asynchronous reviews should match getReviews."
+      );
+
+      String invalid = bvUIContent.getContentAsync(null).get(5, TimeUnit.SECONDS);
+      assertEquals(
+        withoutExecutionTime(invalid),
+        withoutExecutionTime(bvUIContent.getContent(null)),
+        "validation errors should be reported in the footer."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that a batch loads its contents in parallel and
+   * returns them in order.
+   */
+  @Test
+  public void testBatchContent() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration _bvConfig = server.newConfiguration();
+      _bvConfig.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      server.setDelayMillis(400);
+      BVUIContent bvUIContent = new BVManagedUIContent(_bvConfig);
+
+      List<BVParameters> bvParameters = new ArrayList<BVParameters>();
+      bvParameters.add(newParameters("batch", ContentType.REVIEWS));
+      bvParameters.add(newParameters("batch", ContentType.QUESTIONS));
+      bvParameters.add(newParameters("batch", ContentType.STORIES));
+
+      long start = System.currentTimeMillis();
+      List<String> contents = bvUIContent.getContents(bvParameters);
+      long elapsed = System.currentTimeMillis() - start;
+
+      assertEquals(contents.size(), 3, "there should be a result per parameter.");
+      for (String content : contents) {
+        assertTrue(content.contains("BV reviews"), "there should be content from the server.");
+      }
+      assertTrue(
+        contents.get(1).contains("QUESTIONS, PRODUCT"),
+        "results should be in the order of the parameters: " + contents.get(1)
+      );
+      assertTrue(elapsed < 1000, "contents should be loaded in parallel: " + elapsed + "ms");
+      assertEquals(server.getRequestCount(), 3, "every content should be fetched.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that asynchronous calls and batches complete when
+   * building the footer fails.
+   */
+  @Test
+  public void testFailingFooterCompletes() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration _bvConfig = server.newConfiguration();
+      _bvConfig.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      BVUIContent bvUIContent = new BVManagedUIContent(_bvConfig, null, new BVMetrics() {
+        public void recordFetch(ContentType contentType, boolean bot, long latencyMillis, long bytes) {
+        }
+
+        public void recordFetchError(ContentType contentType, boolean bot, String errorCode) {
+        }
+
+        public void recordTimeout(ContentType contentType, boolean bot) {
+        }
+
+        public void recordShortCircuit(ContentType contentType, boolean bot) {
+        }
+
+        public void recordCacheLookup(boolean hit) {
+        }
+
+        public void recordQueueDepth(int queueDepth) {
+        }
+
+        public void recordCall(String method, long executionTimeMillis) {
+          throw new IllegalStateException("footer failed");
+        }
+      });
+
+      String content = bvUIContent
+        .getContentAsync(newParameters("failingFooter", ContentType.REVIEWS))
+        .get(5, TimeUnit.SECONDS);
+      assertTrue(content.contains("BV reviews"), "content should be returned without its footer.");
+
+      List<BVParameters> bvParameters = new ArrayList<BVParameters>();
+      bvParameters.add(newParameters("failingFooter", ContentType.QUESTIONS));
+      bvParameters.add(newParameters("failingFooter", ContentType.STORIES));
+      long start = System.currentTimeMillis();
+      List<String> contents = bvUIContent.getContents(bvParameters);
+      long elapsed = System.currentTimeMillis() - start;
+      assertEquals(contents.size(), 2, "there should be a result per parameter.");
+      assertTrue(elapsed < 3000, "batch should complete within its deadline: " + elapsed + "ms");
+    } finally {
+      server.stop();
+    }
+  }
+
+  private String withoutExecutionTime(String content) {
+    return content.replaceAll("\\d+ms", "");
+  }
+
+  private BVParameters newParameters(String subjectId, ContentType contentType) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("googlebot");
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    bvParameters.setPageURI("http://localhost/product.jsp");
+    bvParameters.setContentType(contentType);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    return bvParameters;
+  }
 }
@@ -19,13 +19,44 @@
 
 package com.bazaarvoice.seo.sdk;
 
+import com.bazaarvoice.seo.sdk.cache.BVCacheEntry;
+import com.bazaarvoice.seo.sdk.cache.BVContentCache;
+import com.bazaarvoice.seo.sdk.cache.BVDiskCache;
 import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import com.bazaarvoice.seo.sdk.content.BVContentView;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.http.BVContentFetcher;
+import com.bazaarvoice.seo.sdk.http.BVFetchRequest;
+import com.bazaarvoice.seo.sdk.http.BVFetchResponse;
+import com.bazaarvoice.seo.sdk.http.BVHttpClientContentFetcher;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.model.SubjectType;
+import com.bazaarvoice.seo.sdk.url.BVSeoSdkURLBuilder;
+import com.bazaarvoice.seo.sdk.util.BVConstant;
+import com.bazaarvoice.seo.sdk.util.BVMessageUtil;
+import com.bazaarvoice.seo.sdk.util.BVThreadPool;
+import org.apache.commons.io.FileUtils;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
@@ -89,6 +120,9 @@ public class BVUIContentServiceProviderTest {
       BVClientConfig.CRAWLER_AGENT_PATTERN,
       "custombot"
     );
+    // the configuration is read once, when the provider is built.
+    bvUIContentService = new BVUIContentServiceProvider(bvConfiguration);
+    bvUIContentService.setBVParameters(bvParameters);
     bvParameters.setUserAgent("custombot");
     showUserAgent = bvUIContentService.showUserAgentSEOContent();
     message = bvUIContentService.getMessage();
@@ -173,4 +207,791 @@ public class BVUIContentServiceProviderTest {
     assertTrue(isSdkEnabled, "SDK enabled reveal:debug should be true here.");
   }
 
+  /**
+   * Test case to check that content is served from the content cache once
+   * caching is enabled and fetched every time otherwise.
+   */
+  @Test
+  public void testContentCache() {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      executeCall("cache-disabled");
+      executeCall("cache-disabled");
+      assertEquals(
+        server.getRequestCount(),
+        2,
+        "every call should reach the server when caching is disabled."
+      );
+
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "60000");
+      for (int i = 0; i < 3; i++) {
+        StringBuilder content = executeCall("cache-enabled");
+        assertTrue(
+          content.toString().contains("BV reviews"),
+          "there should be content from the server."
+        );
+      }
+      assertEquals(
+        server.getRequestCount(),
+        3,
+        "cached content should not reach the server again."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that expired content is served right away while it is
+   * refreshed in the background.
+   */
+  @Test
+  public void testStaleWhileRevalidate() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "50");
+      server.setContent("BV first version");
+      executeCall("stale-while-revalidate");
+
+      waitForExpiry("stale-while-revalidate");
+      server.setContent("BV second version");
+      assertTrue(
+        executeCall("stale-while-revalidate").toString().contains("BV first version"),
+        "expired content should be served while it is refreshed."
+      );
+
+      waitForRequestCount(server, 2);
+      waitForContent("stale-while-revalidate", "BV second version");
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that expired content keeps being served while the
+   * content host fails.
+   */
+  @Test
+  public void testServeStaleOnError() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "50");
+      executeCall("serve-stale-on-error");
+
+      waitForExpiry("serve-stale-on-error");
+      server.setStatus(500);
+      // calls made while a refresh is running share it, so keep calling until
+      // three refreshes failed.
+      long deadline = System.currentTimeMillis() + 5000;
+      while (
+        server.getRequestCount() < 4 &&
+        System.currentTimeMillis() < deadline
+      ) {
+        assertTrue(
+          executeCall("serve-stale-on-error").toString().contains("BV reviews"),
+          "expired content should be served while the host fails."
+        );
+        Thread.sleep(10);
+      }
+      assertTrue(
+        server.getRequestCount() >= 4,
+        "failed refreshes should be retried."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that http content is loaded through a custom content
+   * fetcher.
+   */
+  @Test
+  public void testCustomContentFetcher() {
+    final StringBuilder fetchedUri = new StringBuilder();
+    BVContentFetcher contentFetcher = new BVContentFetcher() {
+      public BVFetchResponse fetch(BVFetchRequest request) {
+        fetchedUri.append(request.getUri());
+        return new BVFetchResponse("BV custom content", 17);
+      }
+    };
+
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("googlebot");
+    bvParameters.setSubjectId("custom-fetcher");
+    bvConfiguration.addProperty(BVClientConfig.CLOUD_KEY, "cloud-key");
+    bvConfiguration.addProperty(BVClientConfig.BV_ROOT_FOLDER, "root-folder");
+
+    String content = new BVManagedUIContent(bvConfiguration, contentFetcher)
+      .getContent(bvParameters);
+    assertTrue(
+      content.contains("BV custom content"),
+      "there should be content from the custom fetcher."
+    );
+    assertEquals(
+      fetchedUri.toString(),
+      "http://seo.bazaarvoice.com/cloud-key/root-folder/reviews/product/1/custom-fetcher.htm",
+      "custom fetcher should receive the seo content uri."
+    );
+  }
+
+  /**
+   * Test case to check that content loaded with caching disabled is reused
+   * only within the content memo ttl and never served stale.
+   */
+  @Test
+  public void testContentMemo() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CONTENT_MEMO_TTL, "200");
+      server.setContent("BV first version");
+      executeCall("memo");
+      server.setContent("BV second version");
+      assertTrue(
+        executeCall("memo").toString().contains("BV first version"),
+        "content should be reused within the memo ttl."
+      );
+      assertEquals(server.getRequestCount(), 1, "memoized content should not reach the server again.");
+
+      Thread.sleep(300);
+      assertTrue(
+        executeCall("memo").toString().contains("BV second version"),
+        "expired memoized content should not be served."
+      );
+      assertEquals(server.getRequestCount(), 2, "expired memoized content should be fetched again.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testSingleFlightLoad() throws Exception {
+    final LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      server.setDelayMillis(300);
+
+      int callers = 8;
+      final CountDownLatch startSignal = new CountDownLatch(1);
+      ExecutorService callerPool = Executors.newFixedThreadPool(callers);
+      List<Future<StringBuilder>> results =
+        new ArrayList<Future<StringBuilder>>();
+      for (int i = 0; i < callers; i++) {
+        results.add(callerPool.submit(new Callable<StringBuilder>() {
+          public StringBuilder call() throws Exception {
+            startSignal.await();
+            return executeCall("single-flight");
+          }
+        }));
+      }
+      startSignal.countDown();
+
+      for (Future<StringBuilder> result : results) {
+        assertTrue(
+          result.get(5, TimeUnit.SECONDS).toString().contains("BV reviews"),
+          "every concurrent caller should receive the content."
+        );
+      }
+      callerPool.shutdown();
+      assertEquals(
+        server.getRequestCount(),
+        1,
+        "concurrent calls for the same content uri should share one fetch."
+      );
+
+      executeCall("single-flight");
+      assertEquals(
+        server.getRequestCount(),
+        2,
+        "a completed load should not be shared with later calls."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that a load is not shared with a caller using another
+   * content fetcher.
+   */
+  @Test
+  public void testLoadNotSharedAcrossFetchers() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      server.setDelayMillis(500);
+
+      ExecutorService callerPool = Executors.newSingleThreadExecutor();
+      Future<StringBuilder> sharedFetcherCall = callerPool.submit(
+        new Callable<StringBuilder>() {
+          public StringBuilder call() {
+            return executeCall("fetcher-scoped");
+          }
+        }
+      );
+      waitForRequestCount(server, 1);
+
+      BVParameters bvParameters = new BVParameters();
+      bvParameters.setUserAgent("googlebot");
+      bvParameters.setContentType(ContentType.REVIEWS);
+      bvParameters.setSubjectType(SubjectType.PRODUCT);
+      bvParameters.setSubjectId("fetcher-scoped");
+      bvParameters.setBaseURI("http://localhost/product.jsp");
+      BVUIContentService contentService = new BVUIContentServiceProvider(
+        bvConfiguration,
+        new BVContentFetcher() {
+          public BVFetchResponse fetch(BVFetchRequest request) {
+            return new BVFetchResponse("BV custom content", 17);
+          }
+        }
+      );
+      contentService.setBVParameters(bvParameters);
+      contentService.setBVSeoSdkUrl(
+        new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+      );
+      assertTrue(
+        contentService.executeCall().toString().contains("BV custom content"),
+        "the custom fetcher should load its own content."
+      );
+      assertTrue(
+        sharedFetcherCall.get(5, TimeUnit.SECONDS).toString().contains("BV reviews"),
+        "the running load should complete with the content of the server."
+      );
+      callerPool.shutdown();
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testSaturatedThreadPool() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_CORE_SIZE, "1");
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_MAX_SIZE, "1");
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_QUEUE_SIZE, "2");
+      ExecutorService executorService =
+        BVThreadPool.getThreadPoolExecutor(bvConfiguration);
+      for (int i = 0; i < 3; i++) {
+        executorService.execute(new Runnable() {
+          public void run() {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        });
+      }
+
+      BVParameters bvParameters = new BVParameters();
+      bvParameters.setUserAgent("googlebot");
+      bvParameters.setContentType(ContentType.REVIEWS);
+      bvParameters.setSubjectType(SubjectType.PRODUCT);
+      bvParameters.setSubjectId("saturated");
+      bvParameters.setBaseURI("http://localhost/product.jsp");
+      bvUIContentService = new BVUIContentServiceProvider(bvConfiguration);
+      bvUIContentService.setBVParameters(bvParameters);
+      bvUIContentService.setBVSeoSdkUrl(
+        new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+      );
+
+      StringBuilder content = bvUIContentService.executeCall();
+      assertFalse(
+        content.toString().contains("BV reviews"),
+        "no content should be loaded by a saturated thread pool."
+      );
+      assertEquals(
+        bvUIContentService.getMessage().toString(),
+        BVMessageUtil.getMessage("ERR0027"),
+        "saturated thread pool message should be reported."
+      );
+      assertEquals(server.getRequestCount(), 0, "no request should be made.");
+    } finally {
+      release.countDown();
+      server.stop();
+    }
+  }
+
+  /**
+   * A load cancelled while it waits for a thread leaves the queue.
+   */
+  @Test
+  public void testCancelledLoadLeavesQueue() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    final CountDownLatch release = new CountDownLatch(1);
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT_BOT, "100");
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_CORE_SIZE, "1");
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_MAX_SIZE, "1");
+      bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_QUEUE_SIZE, "4");
+      ThreadPoolExecutor executorService =
+        BVThreadPool.getThreadPoolExecutor(bvConfiguration);
+      executorService.execute(new Runnable() {
+        public void run() {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+
+      BVUIContentService contentService = newContentService("queued");
+      contentService.executeCall();
+      assertEquals(
+        contentService.getMessage().toString(),
+        MessageFormat.format(BVMessageUtil.getMessage("ERR0026"), new Object[]{100}),
+        "queued load should time out."
+      );
+      assertEquals(executorService.getQueue().size(), 0, "cancelled load should leave the queue.");
+    } finally {
+      release.countDown();
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testTimeoutAbortsFetch() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT_BOT, "100");
+      bvConfiguration.addProperty(BVClientConfig.SOCKET_TIMEOUT, "5000");
+      server.setDelayMillis(2000);
+
+      BVParameters bvParameters = new BVParameters();
+      bvParameters.setUserAgent("googlebot");
+      bvParameters.setContentType(ContentType.REVIEWS);
+      bvParameters.setSubjectType(SubjectType.PRODUCT);
+      bvParameters.setSubjectId("timeout-abort");
+      bvParameters.setBaseURI("http://localhost/product.jsp");
+      bvUIContentService = new BVUIContentServiceProvider(bvConfiguration);
+      bvUIContentService.setBVParameters(bvParameters);
+      bvUIContentService.setBVSeoSdkUrl(
+        new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+      );
+
+      assertEquals(
+        bvUIContentService.executeCall().length(),
+        0,
+        "there should not be any content."
+      );
+      assertTrue(
+        bvUIContentService.getMessage().toString().contains("100ms"),
+        "timeout message should be reported."
+      );
+
+      long deadline = System.currentTimeMillis() + 500;
+      while (
+        BVThreadPool.getActiveCount(bvConfiguration) > 0 &&
+        System.currentTimeMillis() < deadline
+      ) {
+        Thread.sleep(10);
+      }
+      assertEquals(
+        BVThreadPool.getActiveCount(bvConfiguration),
+        0,
+        "the worker thread should be released right after the timeout."
+      );
+      assertEquals(
+        BVHttpClientContentFetcher.getInstance(bvConfiguration)
+          .getConnectionStats().getLeased(),
+        0,
+        "the connection should be released right after the timeout."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  private void waitForExpiry(String subjectId) throws InterruptedException {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    String key = new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+      .seoContentUri().toString();
+    BVConfigurationSnapshot snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    BVContentCache contentCache = BVContentCache.getInstance(
+      snapshot.getCacheMaxEntries(),
+      snapshot.getCacheMaxBytes()
+    );
+
+    long deadline = System.currentTimeMillis() + 5000;
+    BVCacheEntry cacheEntry = contentCache.get(key);
+    while (
+      cacheEntry != null &&
+      !cacheEntry.isExpired(System.currentTimeMillis()) &&
+      System.currentTimeMillis() < deadline
+    ) {
+      Thread.sleep(10);
+      cacheEntry = contentCache.get(key);
+    }
+    assertTrue(
+      cacheEntry != null && cacheEntry.isExpired(System.currentTimeMillis()),
+      "cached content should expire."
+    );
+  }
+
+  private void waitForContent(String subjectId, String expectedContent)
+    throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    String content = executeCall(subjectId).toString();
+    while (
+      !content.contains(expectedContent) &&
+      System.currentTimeMillis() < deadline
+    ) {
+      Thread.sleep(10);
+      content = executeCall(subjectId).toString();
+    }
+    assertTrue(
+      content.contains(expectedContent),
+      "expected content was not served: " + content
+    );
+  }
+
+  private void waitForRequestCount(LocalSeoContentServer server, int count)
+    throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (
+      server.getRequestCount() < count &&
+      System.currentTimeMillis() < deadline
+    ) {
+      Thread.sleep(10);
+    }
+    assertEquals(server.getRequestCount(), count, "unexpected request count.");
+  }
+
+  /**
+   * Test case to check that an asynchronous call completes on the loading
+   * thread with the content, and on the timer thread with the timeout
+   * message when the content host is too slow.
+   */
+  @Test
+  public void testExecuteCallAsync() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT_BOT, "300");
+      server.setDelayMillis(100);
+
+      bvUIContentService = newContentService("async");
+      final CountDownLatch callbackSignal = new CountDownLatch(1);
+      final AtomicReference<String> callbackThread = new AtomicReference<String>();
+      int queuedTimers = BVThreadPool.getScheduler().getQueue().size();
+      BVContentFuture future =
+        bvUIContentService.executeCallAsync(BVContentView.CONTENT);
+      future.addCallback(new BVContentCallback() {
+        public void onComplete(String content) {
+          callbackThread.set(Thread.currentThread().getName());
+          callbackSignal.countDown();
+        }
+      });
+      assertTrue(
+        future.get(5, TimeUnit.SECONDS).contains("BV reviews"),
+        "there should be content from the server."
+      );
+      assertTrue(callbackSignal.await(5, TimeUnit.SECONDS), "callback should be invoked.");
+      assertTrue(
+        callbackThread.get().startsWith("bvseo-sdk-worker-"),
+        "callback should run on the loading thread: " + callbackThread.get()
+      );
+      assertEquals(bvUIContentService.getMessage().length(), 0, "there should not be any message.");
+      assertEquals(
+        BVThreadPool.getScheduler().getQueue().size(),
+        queuedTimers,
+        "timer of the completed call should leave the scheduler."
+      );
+
+      server.setDelayMillis(2000);
+      bvUIContentService = newContentService("async-timeout");
+      long start = System.currentTimeMillis();
+      future = bvUIContentService.executeCallAsync(BVContentView.CONTENT);
+      assertFalse(future.isDone(), "the call should not block the caller.");
+      assertEquals(future.get(5, TimeUnit.SECONDS), "", "there should not be any content.");
+      assertTrue(
+        System.currentTimeMillis() - start < 1500,
+        "the call should complete on its execution timeout."
+      );
+      assertTrue(
+        bvUIContentService.getMessage().toString().contains("300ms"),
+        "timeout message should be reported."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that the circuit breaker skips the content host after
+   * consecutive failures, lets a probe through after the cool down and is
+   * not opened by missing content.
+   */
+  @Test
+  public void testCircuitBreaker() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CIRCUIT_BREAKER_FAILURES, "3");
+      bvConfiguration.addProperty(BVClientConfig.CIRCUIT_BREAKER_COOL_DOWN, "300");
+
+      server.setStatus(404);
+      for (int i = 0; i < 5; i++) {
+        newContentService("breaker-missing").executeCall();
+      }
+      assertEquals(server.getRequestCount(), 5, "missing content should not open the breaker.");
+
+      server.setStatus(503);
+      for (int i = 0; i < 3; i++) {
+        newContentService("breaker").executeCall();
+      }
+      assertEquals(server.getRequestCount(), 8, "failures should reach the host.");
+
+      bvUIContentService = newContentService("breaker");
+      assertEquals(bvUIContentService.executeCall().length(), 0, "there should not be any content.");
+      assertTrue(
+        bvUIContentService.getMessage().toString().contains("circuit breaker is open"),
+        "open breaker should be reported: " + bvUIContentService.getMessage()
+      );
+      assertEquals(server.getRequestCount(), 8, "open breaker should skip the host.");
+
+      server.setStatus(200);
+      Thread.sleep(350);
+      assertTrue(
+        newContentService("breaker").executeCall().toString().contains("BV reviews"),
+        "probe after the cool down should load the content."
+      );
+      assertTrue(
+        newContentService("breaker").executeCall().toString().contains("BV reviews"),
+        "successful probe should close the breaker."
+      );
+      assertEquals(server.getRequestCount(), 10, "closed breaker should reach the host.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that missing content and failures are cached for
+   * their own ttl and do not replace content that is still served.
+   */
+  @Test
+  public void testFailureCache() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_NOT_FOUND_TTL, "300");
+
+      server.setStatus(404);
+      for (int i = 0; i < 3; i++) {
+        bvUIContentService = newContentService("failure-cache-missing");
+        assertEquals(bvUIContentService.executeCall().length(), 0, "there should not be any content.");
+        assertTrue(
+          bvUIContentService.getMessage().toString().contains("currently unavailable"),
+          "cached failure should be reported: " + bvUIContentService.getMessage()
+        );
+      }
+      assertEquals(server.getRequestCount(), 1, "missing content should be fetched once.");
+      Thread.sleep(350);
+      newContentService("failure-cache-missing").executeCall();
+      assertEquals(server.getRequestCount(), 2, "expired failure should be fetched again.");
+
+      server.setStatus(503);
+      newContentService("failure-cache-error").executeCall();
+      newContentService("failure-cache-error").executeCall();
+      assertEquals(server.getRequestCount(), 4, "host failures should not use the not found ttl.");
+
+      bvConfiguration.addProperty(BVClientConfig.CACHE_ERROR_TTL, "1000");
+      newContentService("failure-cache-error").executeCall();
+      newContentService("failure-cache-error").executeCall();
+      assertEquals(server.getRequestCount(), 5, "host failures should be cached for the error ttl.");
+
+      server.setStatus(200);
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "50");
+      executeCall("failure-cache-stale");
+      Thread.sleep(100);
+      server.setStatus(500);
+      executeCall("failure-cache-stale");
+      waitForRequestCount(server, 7);
+      Thread.sleep(50);
+      assertTrue(
+        executeCall("failure-cache-stale").toString().contains("BV reviews"),
+        "a failed refresh should not replace content that is still served."
+      );
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Test case to check that expired content with an ETag is revalidated and
+   * renewed when not modified, and replaced when it changed.
+   */
+  @Test
+  public void testRevalidation() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "300");
+      server.setEtag("\"v1\"");
+      executeCall("revalidation");
+
+      Thread.sleep(350);
+      executeCall("revalidation");
+      waitForRequestCount(server, 2);
+      assertEquals(server.getNotModifiedCount(), 1, "expired content should be revalidated.");
+      Thread.sleep(50);
+      assertTrue(
+        executeCall("revalidation").toString().contains("BV reviews"),
+        "revalidated content should be served."
+      );
+      assertEquals(server.getRequestCount(), 2, "revalidated content should be fresh again.");
+
+      server.setContent(LocalSeoContentServer.DEFAULT_CONTENT.replace("BV reviews", "BV new reviews"));
+      server.setEtag("\"v2\"");
+      Thread.sleep(350);
+      executeCall("revalidation");
+      waitForRequestCount(server, 3);
+      Thread.sleep(50);
+      assertTrue(
+        executeCall("revalidation").toString().contains("BV new reviews"),
+        "changed content should replace the cached content."
+      );
+      assertEquals(server.getNotModifiedCount(), 1, "changed content should be downloaded.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Content missing from the memory cache, such as after a restart, is
+   * served from the disk cache without reaching the content host.
+   */
+  @Test
+  public void testDiskCache() throws Exception {
+    File directory = File.createTempFile("bvseo-disk-cache", "");
+    assertTrue(directory.delete(), "temp file should be replaced by a directory.");
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "60000");
+      bvConfiguration.addProperty(BVClientConfig.DISK_CACHE_DIRECTORY, directory.getPath());
+      executeCall("diskCache");
+      assertEquals(server.getRequestCount(), 1, "content should be loaded once.");
+
+      BVDiskCache diskCache = BVDiskCache.getInstance(directory, Long.parseLong(BVConstant.DISK_CACHE_MAX_BYTES));
+      diskCache.flush();
+      BVContentCache.getInstance(
+        Integer.parseInt(BVConstant.CACHE_MAX_ENTRIES),
+        Long.parseLong(BVConstant.CACHE_MAX_BYTES)
+      ).clear();
+
+      assertTrue(
+        executeCall("diskCache").toString().contains("BV reviews"),
+        "content should be served from the disk cache."
+      );
+      assertEquals(server.getRequestCount(), 1, "content host should not be asked again.");
+      diskCache.close();
+    } finally {
+      server.stop();
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * The most accessed content is refreshed before it expires while other
+   * content expires.
+   */
+  @Test
+  public void testHotKeyRefresh() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "600");
+      bvConfiguration.addProperty(BVClientConfig.HOT_KEY_REFRESH_COUNT, "1");
+      bvConfiguration.addProperty(BVClientConfig.HOT_KEY_REFRESH_AHEAD, "400");
+      for (int i = 0; i < 3; i++) {
+        executeCall("hotKey");
+      }
+      executeCall("coldKey");
+      assertEquals(server.getRequestCount(), 2, "content should be loaded once.");
+
+      Thread.sleep(1000);
+      BVContentCache contentCache = BVContentCache.getInstance(
+        Integer.parseInt(BVConstant.CACHE_MAX_ENTRIES),
+        Long.parseLong(BVConstant.CACHE_MAX_BYTES)
+      );
+      long now = System.currentTimeMillis();
+      assertFalse(
+        contentCache.get(seoContentUri("hotKey")).isExpired(now),
+        "hot content should have been refreshed before it expired."
+      );
+      assertTrue(
+        contentCache.get(seoContentUri("coldKey")).isExpired(now),
+        "cold content should not be refreshed."
+      );
+      assertTrue(server.getRequestCount() >= 3, "hot content should be loaded again.");
+    } finally {
+      server.stop();
+    }
+  }
+
+  private String seoContentUri(String subjectId) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    return new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+      .seoContentUri()
+      .toString();
+  }
+
+  private BVUIContentService newContentService(String subjectId) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("googlebot");
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+
+    BVUIContentService contentService =
+      new BVUIContentServiceProvider(bvConfiguration);
+    contentService.setBVParameters(bvParameters);
+    contentService.setBVSeoSdkUrl(
+      new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+    );
+    return contentService;
+  }
+
+  private StringBuilder executeCall(String subjectId) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent("googlebot");
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+
+    BVUIContentService contentService =
+      new BVUIContentServiceProvider(bvConfiguration);
+    contentService.setBVParameters(bvParameters);
+    contentService.setBVSeoSdkUrl(
+      new BVSeoSdkURLBuilder(bvConfiguration, bvParameters)
+    );
+    StringBuilder content = contentService.executeCall();
+    assertTrue(
+      contentService.getMessage().length() == 0,
+      "there should not be any message: " + contentService.getMessage()
+    );
+    return content;
+  }
 }
@@ -0,0 +1,196 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for {@link BVContentCache}.
+ */
+public class BVContentCacheTest {
+
+  /**
+   * Entries are served until they expire and dropped afterwards.
+   */
+  @Test
+  public void testGetAndExpiry() {
+    BVContentCache cache = new BVContentCache(10, 1024);
+    long now = System.currentTimeMillis();
+
+    cache.put("fresh", new BVCacheEntry("BV content", "UTF-8", now, now + 60000));
+    cache.put("expired", new BVCacheEntry("BV content", "UTF-8", now - 2000, now - 1000));
+
+    assertEquals(cache.get("fresh").getContent(), "BV content", "fresh entry should be served.");
+    assertNull(cache.get("expired"), "expired entry should not be served.");
+    assertNull(cache.get("unknown"), "there should not be any entry.");
+    assertEquals(cache.size(), 1, "expired entry should have been dropped.");
+  }
+
+  /**
+   * Expired entries are served within their stale window.
+   */
+  @Test
+  public void testStaleWindow() {
+    BVContentCache cache = new BVContentCache(10, 1024);
+    long now = System.currentTimeMillis();
+
+    cache.put("stale", new BVCacheEntry("BV content", "UTF-8", now - 2000, now - 1000, now + 60000));
+    cache.put("dead", new BVCacheEntry("BV content", "UTF-8", now - 3000, now - 2000, now - 1000));
+
+    BVCacheEntry entry = cache.get("stale");
+    assertNotNull(entry, "entry within stale window should be served.");
+    assertTrue(entry.isExpired(now), "entry within stale window should be expired.");
+    assertNull(cache.get("dead"), "entry past stale window should not be served.");
+  }
+
+  /**
+   * Least recently used entries are evicted once the entry count is exceeded.
+   */
+  @Test
+  public void testEvictionByEntryCount() {
+    BVContentCache cache = new BVContentCache(2, 1024);
+    long expiresAt = System.currentTimeMillis() + 60000;
+
+    cache.put("a", new BVCacheEntry("a", "UTF-8", 0, expiresAt));
+    cache.put("b", new BVCacheEntry("b", "UTF-8", 0, expiresAt));
+    // Touch a so that b becomes the least recently used entry.
+    cache.get("a");
+    cache.put("c", new BVCacheEntry("c", "UTF-8", 0, expiresAt));
+
+    assertEquals(cache.size(), 2, "cache should be bounded by entry count.");
+    assertNotNull(cache.get("a"), "recently used entry should be retained.");
+    assertNull(cache.get("b"), "least recently used entry should be evicted.");
+    assertNotNull(cache.get("c"), "new entry should be cached.");
+  }
+
+  /**
+   * Least recently used entries are evicted once the byte bound is exceeded
+   * and entries bigger than the whole cache are never stored.
+   */
+  @Test
+  public void testEvictionByBytes() {
+    BVContentCache cache = new BVContentCache(10, 20);
+    long expiresAt = System.currentTimeMillis() + 60000;
+
+    cache.put("a", new BVCacheEntry("12345", "UTF-8", 0, expiresAt));
+    cache.put("b", new BVCacheEntry("12345", "UTF-8", 0, expiresAt));
+    assertEquals(cache.getTotalBytes(), 20L, "both entries should fit.");
+
+    cache.put("c", new BVCacheEntry("12345", "UTF-8", 0, expiresAt));
+    assertNull(cache.get("a"), "least recently used entry should be evicted.");
+    assertEquals(cache.getTotalBytes(), 20L, "cache should be bounded by bytes.");
+
+    cache.put("d", new BVCacheEntry("12345678901", "UTF-8", 0, expiresAt));
+    assertNull(cache.get("d"), "oversized entry should not be cached.");
+    assertEquals(cache.size(), 2, "oversized entry should not evict others.");
+  }
+
+  /**
+   * Replacing an entry should keep the byte accounting right.
+   */
+  @Test
+  public void testReplace() {
+    BVContentCache cache = new BVContentCache(10, 1024);
+    long expiresAt = System.currentTimeMillis() + 60000;
+
+    cache.put("a", new BVCacheEntry("12345", "UTF-8", 0, expiresAt));
+    cache.put("a", new BVCacheEntry("123", "UTF-8", 0, expiresAt));
+
+    assertEquals(cache.size(), 1, "there should be a single entry.");
+    assertEquals(cache.getTotalBytes(), 6L, "replaced entry should be accounted once.");
+    assertEquals(cache.get("a").getContent(), "123", "latest entry should be served.");
+  }
+
+  /**
+   * Concurrent lookups and puts keep the cache within its bounds and the
+   * byte accounting right.
+   */
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    final BVContentCache cache = new BVContentCache(50, 400);
+    final long expiresAt = System.currentTimeMillis() + 60000;
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t;
+      threads[t] = new Thread(new Runnable() {
+        public void run() {
+          for (int i = 0; i < 2000; i++) {
+            String key = "key" + ((i * 7 + offset) % 100);
+            if (cache.get(key) == null) {
+              cache.put(key, new BVCacheEntry(key, "UTF-8", 0, expiresAt));
+            }
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    long totalBytes = 0;
+    for (int i = 0; i < 100; i++) {
+      BVCacheEntry entry = cache.get("key" + i);
+      if (entry != null) {
+        totalBytes += entry.getWeight();
+      }
+    }
+    assertTrue(cache.size() <= 50, "cache should be bounded by entry count.");
+    assertTrue(cache.getTotalBytes() <= 400, "cache should be bounded by bytes.");
+    assertEquals(cache.getTotalBytes(), totalBytes, "bytes should match the cached entries.");
+  }
+
+  /**
+   * Caches with the same bounds are shared.
+   */
+  @Test
+  public void testSharedInstance() {
+    assertSame(
+      BVContentCache.getInstance(5, 500),
+      BVContentCache.getInstance(5, 500),
+      "caches with same bounds should be shared."
+    );
+    assertNotSame(
+      BVContentCache.getInstance(5, 500),
+      BVContentCache.getInstance(6, 500),
+      "caches with different bounds should not be shared."
+    );
+  }
+
+  /**
+   * Failure entries hold an error code and are never served stale.
+   */
+  @Test
+  public void testFailureEntry() {
+    BVContentCache cache = new BVContentCache(10, 1024);
+    long now = System.currentTimeMillis();
+
+    cache.put("missing", BVCacheEntry.failure("ERR0012", "UTF-8", now, now + 60000));
+    cache.put("expired", BVCacheEntry.failure("ERR0012", "UTF-8", now - 2000, now - 1000));
+
+    BVCacheEntry entry = cache.get("missing");
+    assertTrue(entry.isFailure(), "entry should be a failure.");
+    assertEquals(entry.getErrorCode(), "ERR0012", "error code should be kept.");
+    assertNull(entry.getContent(), "failure should not have content.");
+    assertNull(cache.get("expired"), "expired failure should not be served.");
+  }
+}
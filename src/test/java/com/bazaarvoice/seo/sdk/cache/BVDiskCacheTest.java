@@ -0,0 +1,222 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import com.bazaarvoice.seo.sdk.content.BVContentTemplate;
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for {@link BVDiskCache}.
+ */
+public class BVDiskCacheTest {
+
+  private File directory;
+
+  @BeforeMethod
+  public void createDirectory() throws IOException {
+    directory = File.createTempFile("bvseo-disk-cache", "");
+    assertTrue(directory.delete(), "temp file should be replaced by a directory.");
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws IOException {
+    FileUtils.deleteDirectory(directory);
+  }
+
+  /**
+   * Entries are read back with their content and metadata.
+   */
+  @Test
+  public void testPutAndGet() {
+    BVDiskCache cache = new BVDiskCache(directory, 1024 * 1024);
+    long now = System.currentTimeMillis();
+
+    cache.put("product/1", entry("BV content", now, now + 60000, "\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT"));
+    cache.flush();
+
+    BVCacheEntry entry = cache.get("product/1");
+    assertNotNull(entry, "entry should be served from disk.");
+    assertEquals(entry.getContent(), "BV content", "content should be read back.");
+    assertEquals(entry.getCharset(), "UTF-8", "charset should be read back.");
+    assertEquals(entry.getExpiresAt(), now + 60000, "expiry should be read back.");
+    assertEquals(entry.getEtag(), "\"v1\"", "ETag should be read back.");
+    assertEquals(entry.getLastModified(), "Mon, 01 Jan 2024 00:00:00 GMT", "Last-Modified should be read back.");
+    assertNull(cache.get("product/2"), "there should not be any entry.");
+    cache.close();
+  }
+
+  /**
+   * A later entry of a key replaces the earlier one, also after reopening.
+   */
+  @Test
+  public void testReopen() {
+    BVDiskCache cache = new BVDiskCache(directory, 1024 * 1024);
+    long now = System.currentTimeMillis();
+    cache.put("product/1", entry("old content", now, now + 60000, null, null));
+    cache.put("product/1", entry("new content", now, now + 60000, null, null));
+    cache.put("product/2", entry("other content", now, now + 60000, null, null));
+    cache.flush();
+    cache.close();
+
+    BVDiskCache reopened = new BVDiskCache(directory, 1024 * 1024);
+    assertEquals(reopened.size(), 2, "index should be rebuilt from the segments.");
+    assertEquals(reopened.get("product/1").getContent(), "new content", "latest entry should be served.");
+    assertEquals(reopened.get("product/2").getContent(), "other content", "entry should survive a restart.");
+    reopened.close();
+  }
+
+  /**
+   * Entries past their stale window and failures are not served.
+   */
+  @Test
+  public void testUnservableEntries() {
+    BVDiskCache cache = new BVDiskCache(directory, 1024 * 1024);
+    long now = System.currentTimeMillis();
+    cache.put("stale", new BVCacheEntry("BV content", "UTF-8", now - 2000, now - 1000, now + 60000));
+    cache.put("dead", new BVCacheEntry("BV content", "UTF-8", now - 3000, now - 2000, now - 1000));
+    cache.put("failure", BVCacheEntry.failure("ERR0012", "UTF-8", now, now + 60000));
+    cache.flush();
+
+    assertNotNull(cache.get("stale"), "entry within stale window should be served.");
+    assertNull(cache.get("dead"), "entry past stale window should not be served.");
+    assertNull(cache.get("failure"), "failures should not be stored.");
+    cache.close();
+
+    BVDiskCache reopened = new BVDiskCache(directory, 1024 * 1024);
+    assertEquals(reopened.size(), 1, "only servable entries should be indexed.");
+    reopened.close();
+  }
+
+  /**
+   * The oldest segments are deleted once the size bound is exceeded.
+   */
+  @Test
+  public void testEvictionBySize() {
+    BVDiskCache cache = new BVDiskCache(directory, 8 * 1024);
+    long now = System.currentTimeMillis();
+    Random random = new Random(1);
+    for (int i = 0; i < 40; i++) {
+      cache.put("product/" + i, entry(randomContent(random, 500), now, now + 60000, null, null));
+    }
+    cache.flush();
+
+    assertTrue(cache.getTotalBytes() <= 8 * 1024, "disk cache should be bounded by size.");
+    assertNull(cache.get("product/0"), "oldest entry should have been evicted.");
+    assertNotNull(cache.get("product/39"), "latest entry should be retained.");
+    assertTrue(directory.list().length < 40 / 2, "segments of evicted entries should be deleted.");
+    cache.close();
+  }
+
+  /**
+   * A record cut short by a crash ends the scan, earlier records are kept.
+   */
+  @Test
+  public void testTornWrite() throws IOException {
+    BVDiskCache cache = new BVDiskCache(directory, 1024 * 1024);
+    long now = System.currentTimeMillis();
+    cache.put("product/1", entry("first content", now, now + 60000, null, null));
+    cache.put("product/2", entry("second content", now, now + 60000, null, null));
+    cache.flush();
+    cache.close();
+
+    File segment = lastSegment();
+    RandomAccessFile file = new RandomAccessFile(segment, "rw");
+    file.setLength(file.length() - 5);
+    file.close();
+
+    BVDiskCache reopened = new BVDiskCache(directory, 1024 * 1024);
+    assertEquals(reopened.get("product/1").getContent(), "first content", "complete record should be served.");
+    assertNull(reopened.get("product/2"), "torn record should not be served.");
+    reopened.put("product/2", entry("second content", now, now + 60000, null, null));
+    reopened.flush();
+    assertEquals(reopened.get("product/2").getContent(), "second content", "cache should accept entries again.");
+    reopened.close();
+  }
+
+  /**
+   * A record whose checksum does not match is dropped when it is read.
+   */
+  @Test
+  public void testCorruptRecord() throws IOException {
+    BVDiskCache cache = new BVDiskCache(directory, 1024 * 1024);
+    long now = System.currentTimeMillis();
+    cache.put("product/1", entry("BV content", now, now + 60000, null, null));
+    cache.flush();
+
+    RandomAccessFile file = new RandomAccessFile(lastSegment(), "rw");
+    file.seek(file.length() - 6);
+    int value = file.read();
+    file.seek(file.length() - 6);
+    file.write(value ^ 0xFF);
+    file.close();
+
+    assertNull(cache.get("product/1"), "corrupt record should not be served.");
+    assertEquals(cache.size(), 0, "corrupt record should be dropped.");
+    cache.close();
+  }
+
+  private File lastSegment() {
+    File[] segments = directory.listFiles();
+    Arrays.sort(segments);
+    for (int i = segments.length - 1; i >= 0; i--) {
+      if (segments[i].length() > 0) {
+        return segments[i];
+      }
+    }
+    throw new AssertionError("there should be a segment with records.");
+  }
+
+  private static BVCacheEntry entry(
+    String content,
+    long cachedAt,
+    long expiresAt,
+    String etag,
+    String lastModified
+  ) {
+    return new BVCacheEntry(
+      BVContentTemplate.parse(content),
+      "UTF-8",
+      cachedAt,
+      expiresAt,
+      expiresAt,
+      etag,
+      lastModified
+    );
+  }
+
+  private static String randomContent(Random random, int length) {
+    StringBuilder content = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      content.append((char) ('a' + random.nextInt(26)));
+    }
+    return content.toString();
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.cache;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for {@link BVFrequencySketch}.
+ */
+public class BVFrequencySketchTest {
+
+  /**
+   * Estimates never fall below the actual counts and rank keys by access.
+   */
+  @Test
+  public void testEstimate() {
+    BVFrequencySketch sketch = new BVFrequencySketch(1024);
+    for (int i = 0; i < 50; i++) {
+      sketch.increment("hot");
+    }
+    for (int i = 0; i < 200; i++) {
+      sketch.increment("cold" + i);
+    }
+
+    assertTrue(sketch.estimate("hot") >= 50, "estimate should not be below the count.");
+    assertTrue(sketch.estimate("cold7") >= 1, "estimate should not be below the count.");
+    assertTrue(
+      sketch.estimate("hot") > sketch.estimate("cold7"),
+      "hot key should be estimated above a cold key."
+    );
+    assertEquals(sketch.estimate("unknown"), 0, "unknown key should not be counted.");
+  }
+
+  /**
+   * Counters are halved once the sample size is reached.
+   */
+  @Test
+  public void testAging() {
+    BVFrequencySketch sketch = new BVFrequencySketch(16);
+    for (int i = 0; i < 100; i++) {
+      sketch.increment("hot");
+    }
+    int beforeAging = sketch.estimate("hot");
+    // 16 counters per row age after 160 increments.
+    for (int i = 0; i < 60; i++) {
+      sketch.increment("other" + i);
+    }
+
+    assertTrue(
+      sketch.estimate("hot") <= beforeAging / 2 + 1,
+      "estimate should have been halved, was " + sketch.estimate("hot") + "."
+    );
+  }
+}
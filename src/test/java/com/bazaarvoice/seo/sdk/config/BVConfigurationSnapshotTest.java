@@ -0,0 +1,152 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.config;
+
+import org.testng.annotations.Test;
+
+import java.nio.charset.Charset;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVConfigurationSnapshot.
+ */
+public class BVConfigurationSnapshotTest {
+
+  /**
+   * Test case for the parsed default values.
+   */
+  @Test
+  public void testDefaults() {
+    BVConfigurationSnapshot snapshot =
+      BVConfigurationSnapshot.of(new BVSdkConfiguration());
+
+    assertEquals(snapshot.getExecutionTimeout(), 500L, "executionTimeout should be parsed.");
+    assertEquals(snapshot.getExecutionTimeoutBot(), 2000L, "executionTimeoutBot should be parsed.");
+    assertEquals(snapshot.getConnectTimeout(), 2000, "connectTimeout should be parsed.");
+    assertEquals(snapshot.getSocketTimeout(), 2000, "socketTimeout should be parsed.");
+    assertEquals(snapshot.getScheme(), "http", "scheme should be http.");
+    assertEquals(snapshot.getS3Hostname(), "seo.bazaarvoice.com", "production host should be used.");
+    assertEquals(snapshot.getCharset(), Charset.defaultCharset(), "default charset should be used.");
+    assertTrue(snapshot.isSeoSdkEnabled(), "sdk should be enabled.");
+    assertFalse(snapshot.isLoadSeoFilesLocally(), "files should not be loaded locally.");
+    assertTrue(
+      snapshot.getCrawlerAgentMatcher().isCrawler("Mozilla BingBot/2.0"),
+      "crawler pattern should match case insensitively."
+    );
+  }
+
+  /**
+   * Test case for the staging and testing host combinations.
+   */
+  @Test
+  public void testS3Hostname() {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.STAGING, "true");
+    assertEquals(
+      BVConfigurationSnapshot.of(bvConfiguration).getS3Hostname(),
+      "seo-stg.bazaarvoice.com",
+      "staging host should be used."
+    );
+
+    bvConfiguration.addProperty(BVClientConfig.TESTING, "true");
+    assertEquals(
+      BVConfigurationSnapshot.of(bvConfiguration).getS3Hostname(),
+      "seo-qa-stg.bazaarvoice.com",
+      "testing staging host should be used."
+    );
+
+    bvConfiguration.addProperty(BVClientConfig.STAGING, "false");
+    bvConfiguration.addProperty(BVClientConfig.SSL_ENABLED, "true");
+    BVConfigurationSnapshot snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    assertEquals(snapshot.getS3Hostname(), "seo-qa.bazaarvoice.com", "testing host should be used.");
+    assertEquals(snapshot.getScheme(), "https", "scheme should be https.");
+  }
+
+  /**
+   * Test case for reusing the snapshot until a property is added.
+   */
+  @Test
+  public void testSnapshotInvalidation() {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+    BVConfigurationSnapshot snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    assertSame(
+      BVConfigurationSnapshot.of(bvConfiguration),
+      snapshot,
+      "snapshot should be reused."
+    );
+
+    bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT, "750");
+    BVConfigurationSnapshot newSnapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    assertNotSame(newSnapshot, snapshot, "snapshot should be rebuilt.");
+    assertEquals(newSnapshot.getExecutionTimeout(), 750L, "new value should be used.");
+    assertEquals(snapshot.getExecutionTimeout(), 500L, "old snapshot should not change.");
+  }
+
+  /**
+   * Test case for invalid values falling back to defaults.
+   */
+  @Test
+  public void testInvalidValues() {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.SOCKET_TIMEOUT, "abc");
+    bvConfiguration.addProperty(BVClientConfig.CONNECT_TIMEOUT, "4294967396");
+    bvConfiguration.addProperty(BVClientConfig.CHARSET, "no-such-charset");
+    bvConfiguration.addProperty(BVClientConfig.CRAWLER_AGENT_PATTERN, "(unclosed");
+
+    BVConfigurationSnapshot snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    assertEquals(snapshot.getSocketTimeout(), 2000, "default socketTimeout should be used.");
+    assertEquals(snapshot.getConnectTimeout(), 2000, "out of range connectTimeout should not wrap.");
+    assertEquals(snapshot.getCharset(), Charset.defaultCharset(), "default charset should be used.");
+    assertEquals(snapshot.getCharsetName(), "no-such-charset", "configured charset name should be kept.");
+    assertTrue(
+      snapshot.getCrawlerAgentMatcher().isCrawler("msnbot"),
+      "default crawler pattern should be used."
+    );
+  }
+
+  /**
+   * Test case for sharing the crawler agent matcher between snapshots of a
+   * custom configuration.
+   */
+  @Test
+  public void testSharedCrawlerAgentMatcher() {
+    final BVConfiguration properties = new BVSdkConfiguration();
+    BVConfiguration bvConfiguration = new BVConfiguration() {
+      public BVConfiguration addProperty(BVClientConfig bvConfig, String propertyValue) {
+        properties.addProperty(bvConfig, propertyValue);
+        return this;
+      }
+
+      public String getProperty(String propertyName) {
+        return properties.getProperty(propertyName);
+      }
+    };
+
+    BVConfigurationSnapshot snapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    BVConfigurationSnapshot newSnapshot = BVConfigurationSnapshot.of(bvConfiguration);
+    assertNotSame(newSnapshot, snapshot, "custom configuration snapshot should be rebuilt.");
+    assertSame(
+      newSnapshot.getCrawlerAgentMatcher(),
+      snapshot.getCrawlerAgentMatcher(),
+      "crawler agent matcher should be shared."
+    );
+  }
+}
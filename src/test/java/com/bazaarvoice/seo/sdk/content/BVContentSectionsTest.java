@@ -0,0 +1,163 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+import com.bazaarvoice.seo.sdk.util.BVUtility;
+import org.testng.annotations.Test;
+
+import static com.bazaarvoice.seo.sdk.content.BVContentSections.*;
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVContentSections.
+ *
+ * Selections are compared with the section removal getAggregateRating and
+ * getReviews did on the rendered content before the index.
+ */
+public class BVContentSectionsTest {
+
+  private static final String AGGREGATE_RATING =
+    BEGIN_AGGREGATE_RATING + "<div>rating</div>" + END_AGGREGATE_RATING;
+  private static final String REVIEWS =
+    BEGIN_REVIEWS + "<div " + SCHEMA_ORG_PRODUCT + ">reviews " +
+      "<a href=\"{INSERT_PAGE_URI}bvstate=pg:2/ct:r\">2</a></div>" + END_REVIEWS;
+  private static final String PAGINATION =
+    BEGIN_PAGINATION + "<a href=\"{INSERT_PAGE_URI}bvstate=pg:3/ct:r\">3</a>" +
+      END_PAGINATION;
+
+  private static final String[] CONTENTS = {
+    "",
+    "no sections",
+    AGGREGATE_RATING,
+    REVIEWS,
+    PAGINATION,
+    AGGREGATE_RATING + REVIEWS + PAGINATION,
+    "<div " + SCHEMA_ORG_PRODUCT + ">" + AGGREGATE_RATING + REVIEWS + "</div>",
+    REVIEWS + PAGINATION + AGGREGATE_RATING,
+    BEGIN_REVIEWS + PAGINATION + END_REVIEWS + PAGINATION,
+    BEGIN_AGGREGATE_RATING + SCHEMA_ORG_PRODUCT + END_AGGREGATE_RATING +
+      REVIEWS,
+    AGGREGATE_RATING + AGGREGATE_RATING + REVIEWS + REVIEWS,
+    BEGIN_AGGREGATE_RATING + REVIEWS + END_AGGREGATE_RATING + PAGINATION,
+  };
+
+  private static final String PAGE_URI =
+    BVUtility.getPageUri("http://localhost/product.jsp");
+
+  @Test
+  public void testAggregateRating() {
+    for (String content : CONTENTS) {
+      StringBuilder expected = rendered(content);
+      int startIndex = expected.indexOf(BEGIN_REVIEWS);
+      if (startIndex != -1) {
+        int endIndex = expected.indexOf(END_REVIEWS) + END_REVIEWS.length();
+        expected.delete(startIndex, endIndex);
+
+        startIndex = expected.indexOf(BEGIN_PAGINATION);
+        if (startIndex != -1) {
+          endIndex = expected.indexOf(END_PAGINATION) + END_PAGINATION.length();
+          expected.delete(startIndex, endIndex);
+        }
+      }
+      boolean sectionFound = expected.indexOf(BEGIN_AGGREGATE_RATING) != -1;
+
+      assertSelection(
+        content,
+        BVContentView.AGGREGATE_RATING,
+        expected.toString(),
+        sectionFound
+      );
+    }
+  }
+
+  @Test
+  public void testReviews() {
+    for (String content : CONTENTS) {
+      StringBuilder expected = rendered(content);
+      int startIndex = expected.indexOf(BEGIN_AGGREGATE_RATING);
+      if (startIndex != -1) {
+        int endIndex = expected.indexOf(END_AGGREGATE_RATING) +
+          END_AGGREGATE_RATING.length();
+        expected.delete(startIndex, endIndex);
+      }
+      boolean sectionFound = expected.indexOf(BEGIN_REVIEWS) != -1;
+      startIndex = expected.indexOf(SCHEMA_ORG_PRODUCT);
+      if (startIndex != -1) {
+        expected.delete(startIndex, startIndex + SCHEMA_ORG_PRODUCT.length());
+      }
+
+      assertSelection(
+        content,
+        BVContentView.REVIEWS,
+        expected.toString(),
+        sectionFound
+      );
+    }
+  }
+
+  @Test
+  public void testContent() {
+    for (String content : CONTENTS) {
+      assertSelection(
+        content,
+        BVContentView.CONTENT,
+        rendered(content).toString(),
+        true
+      );
+    }
+  }
+
+  @Test
+  public void testMissingEndMarker() {
+    String content = AGGREGATE_RATING + BEGIN_REVIEWS + "reviews";
+    assertSelection(
+      content,
+      BVContentView.AGGREGATE_RATING,
+      content,
+      true
+    );
+  }
+
+  private StringBuilder rendered(String content) {
+    StringBuilder sb = new StringBuilder(content);
+    BVUtility.replacePageURIFromContent(sb, "http://localhost/product.jsp");
+    return sb;
+  }
+
+  private void assertSelection(
+    String content,
+    BVContentView view,
+    String expected,
+    boolean sectionFound
+  ) {
+    BVContentTemplate template = BVContentTemplate.parse(content);
+    BVContentSelection selection = template.getSections().select(view);
+    StringBuilder actual = new StringBuilder();
+    template.render(actual, PAGE_URI, selection);
+
+    assertEquals(actual.toString(), expected, view + " of " + content);
+    assertEquals(
+      selection.isSectionFound(),
+      sectionFound,
+      "section found for " + view + " of " + content
+    );
+  }
+}
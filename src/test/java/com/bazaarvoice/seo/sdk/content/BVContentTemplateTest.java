@@ -0,0 +1,93 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.content;
+
+import com.bazaarvoice.seo.sdk.util.BVUtility;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVContentTemplate.
+ *
+ * Rendered content is compared with
+ * {@link BVUtility#replacePageURIFromContent(StringBuilder, String)}.
+ */
+public class BVContentTemplateTest {
+
+  private static final String[] CONTENTS = {
+    "",
+    "no page uri",
+    "{INSERT_PAGE_URI}",
+    "{INSERT_PAGE_URI}{INSERT_PAGE_URI}",
+    "{INSERT_PAGE_URI}bvrrp=9344/reviews/product/4/5000001.htm",
+    "<a href=\"{INSERT_PAGE_URI}bvstate=pg:2/ct:r\">2</a>" +
+      "<a href=\"{INSERT_PAGE_URI}bvstate=pg:3/ct:r\">3</a> trailing",
+    "{INSERT_PAGE_URI {INSERT_PAGE_URI} INSERT_PAGE_URI}",
+  };
+
+  private static final String[] BASE_URIS = {
+    "http://localhost:8080/index.jsp",
+    "http://localhost:8080/index.jsp?a=b",
+    "http://localhost:8080/index.jsp?",
+    "http://localhost:8080/index.jsp#!",
+    "http://localhost:8080/index.jsp?_escaped_fragment_=",
+    "http://localhost:8080/index.jsp?_escaped_fragment_=a?b=c",
+  };
+
+  @Test
+  public void testRender() {
+    for (String content : CONTENTS) {
+      BVContentTemplate template = BVContentTemplate.parse(content);
+      assertEquals(template.getContent(), content, "content should be kept");
+
+      for (String baseUri : BASE_URIS) {
+        StringBuilder expected = new StringBuilder("prefix ").append(content);
+        BVUtility.replacePageURIFromContent(expected, baseUri);
+
+        StringBuilder actual = new StringBuilder("prefix ");
+        String pageUri = BVUtility.getPageUri(baseUri);
+        template.render(actual, pageUri);
+
+        assertEquals(
+          actual.toString(),
+          expected.toString(),
+          "rendered content should match for " + content + " " + baseUri
+        );
+        assertEquals(
+          template.getRenderedLength(pageUri.length()),
+          actual.length() - "prefix ".length(),
+          "rendered length should match"
+        );
+      }
+    }
+  }
+
+  @Test
+  public void testSlotCount() {
+    assertEquals(BVContentTemplate.parse("none").getSlotCount(), 0);
+    assertEquals(
+      BVContentTemplate.parse("a{INSERT_PAGE_URI}b{INSERT_PAGE_URI}")
+        .getSlotCount(),
+      2
+    );
+  }
+}
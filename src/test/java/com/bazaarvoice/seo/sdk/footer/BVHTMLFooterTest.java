@@ -21,6 +21,7 @@ package com.bazaarvoice.seo.sdk.footer;
 
 import com.bazaarvoice.seo.sdk.config.BVClientConfig;
 import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVConfigurationSnapshot;
 import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
 import com.bazaarvoice.seo.sdk.model.BVParameters;
 import com.bazaarvoice.seo.sdk.model.ContentType;
@@ -74,6 +75,30 @@ public class BVHTMLFooterTest {
     assertEquals(displayFooter, expectedFooter.toString(), "Footer did not match the expected value.");
   }
 
+  /**
+   * A footer built without a snapshot takes one of the configuration.
+   */
+  @Test
+  public void testDisplayFooter_nullSnapshot() {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setContentType(ContentType.REVIEWS);
+
+    BVFooter bvFooter = new BVHTMLFooter(
+      bvConfiguration,
+      (BVConfigurationSnapshot) null,
+      bvParameters
+    );
+    String displayFooter = bvFooter.displayFooter("getContent");
+
+    assertTrue(
+      displayFooter.contains("<li data-bvseo=\"sp_mt\">CLOUD, getContent, 0ms</li>"),
+      "Footer should fall back to the configuration."
+    );
+  }
+
   /**
    * Test case to test display footer method for reveal=debug.
    */
@@ -337,6 +362,27 @@ public class BVHTMLFooterTest {
             "  <li data-bvseo=\"seo.sdk.http.proxy.port\">0</li>",
             "  <li data-bvseo=\"seo.sdk.charset\"></li>",
             "  <li data-bvseo=\"seo.sdk.ssl.enabled\"></li>",
+            "  <li data-bvseo=\"seo.sdk.cache.ttl\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.cache.max.entries\">1000</li>",
+            "  <li data-bvseo=\"seo.sdk.cache.max.bytes\">67108864</li>",
+            "  <li data-bvseo=\"seo.sdk.cache.max.stale\">86400000</li>",
+            "  <li data-bvseo=\"seo.sdk.http.max.connections\">200</li>",
+            "  <li data-bvseo=\"seo.sdk.http.max.connections.per.route\">50</li>",
+            "  <li data-bvseo=\"seo.sdk.http.idle.timeout\">30000</li>",
+            "  <li data-bvseo=\"seo.sdk.thread.pool.core.size\">64</li>",
+            "  <li data-bvseo=\"seo.sdk.thread.pool.max.size\">64</li>",
+            "  <li data-bvseo=\"seo.sdk.thread.pool.queue.size\">256</li>",
+            "  <li data-bvseo=\"seo.sdk.content.memo.ttl\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.circuit.breaker.failures\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.circuit.breaker.cool.down\">30000</li>",
+            "  <li data-bvseo=\"seo.sdk.cache.not.found.ttl\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.cache.error.ttl\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.disk.cache.directory\">none</li>",
+            "  <li data-bvseo=\"seo.sdk.disk.cache.max.bytes\">1073741824</li>",
+            "  <li data-bvseo=\"seo.sdk.warm.up.parallelism\">4</li>",
+            "  <li data-bvseo=\"seo.sdk.warm.up.rate\">10</li>",
+            "  <li data-bvseo=\"seo.sdk.hot.key.refresh.count\">0</li>",
+            "  <li data-bvseo=\"seo.sdk.hot.key.refresh.ahead\">10000</li>",
             "  <li data-bvseo=\"userAgent\"></li>",
             "  <li data-bvseo=\"baseURI\"></li>",
             "  <li data-bvseo=\"pageURI\">"+pageURI+"</li>",
@@ -0,0 +1,296 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.helpers;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVCoreConfig;
+import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Embedded http server standing in for the Bazaarvoice seo content host so
+ * that http driven test cases do not depend on the network.
+ *
+ * Every request is answered with the configured status and content and is
+ * counted, which lets test cases verify how many requests reached the host.
+ * The latency distribution, error rate and slow drip settings let load tests
+ * simulate a degraded CDN.
+ */
+public class LocalSeoContentServer {
+
+  public static final String CLOUD_KEY = "local-cloud-key";
+  public static final String ROOT_FOLDER = "Main_Site-en_US";
+  public static final String DEFAULT_CONTENT =
+    "<!--begin-aggregate-rating--><div>BV aggregate rating</div><!--end-aggregate-rating-->" +
+    "<!--begin-reviews--><div itemscope itemtype=\"http://schema.org/Product\">BV reviews " +
+    "<a href=\"{INSERT_PAGE_URI}bvstate=pg:2/ct:r\">next</a></div><!--end-reviews-->" +
+    "<!--begin-pagination--><div>BV pagination</div><!--end-pagination-->";
+
+  private final Server server;
+  private final AtomicInteger requestCount = new AtomicInteger();
+  private final AtomicInteger notModifiedCount = new AtomicInteger();
+  private final Random random = new Random();
+  private volatile int status = HttpServletResponse.SC_OK;
+  private volatile String content = DEFAULT_CONTENT;
+  private volatile long delayMillis;
+  private volatile double delaySigma;
+  private volatile double errorRate;
+  private volatile boolean gzip;
+  private volatile int dripBytes;
+  private volatile long dripMillis;
+  private volatile String etag;
+  private volatile long lastModified;
+  private volatile String lastUserAgent;
+
+  public LocalSeoContentServer() {
+    server = new Server(0);
+    server.setHandler(new ContentHandler());
+  }
+
+  public LocalSeoContentServer start() {
+    try {
+      server.start();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+    return this;
+  }
+
+  public void stop() {
+    try {
+      server.stop();
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public int getPort() {
+    return ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+  }
+
+  /**
+   * Configuration that points the production seo content host at this server.
+   *
+   * @return new configuration.
+   */
+  public BVConfiguration newConfiguration() {
+    final String hostname = "localhost:" + getPort();
+    BVConfiguration bvConfiguration = new BVSdkConfiguration() {
+      @Override
+      public String getProperty(String propertyName) {
+        if (BVCoreConfig.PRODUCTION_S3_HOSTNAME.getPropertyName().equals(propertyName)) {
+          return hostname;
+        }
+        return super.getProperty(propertyName);
+      }
+    };
+    bvConfiguration.addProperty(BVClientConfig.CLOUD_KEY, CLOUD_KEY);
+    bvConfiguration.addProperty(BVClientConfig.BV_ROOT_FOLDER, ROOT_FOLDER);
+    return bvConfiguration;
+  }
+
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * @return User-Agent header of the latest request.
+   */
+  public String getLastUserAgent() {
+    return lastUserAgent;
+  }
+
+  /**
+   * @return requests answered with 304 not modified.
+   */
+  public int getNotModifiedCount() {
+    return notModifiedCount.get();
+  }
+
+  /**
+   * Sends the ETag with successful responses and answers requests with a
+   * matching If-None-Match with 304 not modified.
+   *
+   * @param etag the ETag, or null for none.
+   */
+  public void setEtag(String etag) {
+    this.etag = etag;
+  }
+
+  /**
+   * Sends the Last-Modified date with successful responses and answers
+   * requests with an If-Modified-Since that is not older with 304 not
+   * modified.
+   *
+   * @param lastModified the date in milliseconds, or 0 for none.
+   */
+  public void setLastModified(long lastModified) {
+    this.lastModified = lastModified;
+  }
+
+  public void setStatus(int status) {
+    this.status = status;
+  }
+
+  public void setContent(String content) {
+    this.content = content;
+  }
+
+  public void setDelayMillis(long delayMillis) {
+    setLatencyDistribution(delayMillis, 0);
+  }
+
+  /**
+   * Delays responses by a log-normal distributed time, the usual shape of
+   * CDN latencies with a long tail.
+   *
+   * @param medianMillis median delay.
+   * @param sigma standard deviation of the underlying normal distribution,
+   * 0 for a constant delay and around 1 for a heavy tail.
+   */
+  public void setLatencyDistribution(long medianMillis, double sigma) {
+    this.delayMillis = medianMillis;
+    this.delaySigma = sigma;
+  }
+
+  /**
+   * @param errorRate fraction of requests, between 0 and 1, answered with
+   * 503 service unavailable instead of the configured status.
+   */
+  public void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  /**
+   * Sends the body in chunks with a pause before each chunk, like a CDN
+   * node that accepts the connection but is starved of bandwidth.
+   *
+   * @param chunkBytes bytes per chunk, 0 to send the body at once.
+   * @param pauseMillis pause before each chunk.
+   */
+  public void setSlowDrip(int chunkBytes, long pauseMillis) {
+    this.dripBytes = chunkBytes;
+    this.dripMillis = pauseMillis;
+  }
+
+  public void setGzip(boolean gzip) {
+    this.gzip = gzip;
+  }
+
+  private class ContentHandler extends AbstractHandler {
+
+    public void handle(
+      String target,
+      Request baseRequest,
+      HttpServletRequest request,
+      HttpServletResponse response
+    ) throws IOException {
+      requestCount.incrementAndGet();
+      lastUserAgent = request.getHeader("User-Agent");
+      pause(nextDelayMillis());
+
+      int responseStatus = random.nextDouble() < errorRate
+        ? HttpServletResponse.SC_SERVICE_UNAVAILABLE
+        : status;
+      if (responseStatus == HttpServletResponse.SC_OK) {
+        if (etag != null) {
+          response.setHeader("ETag", etag);
+        }
+        if (lastModified > 0) {
+          response.setDateHeader("Last-Modified", lastModified);
+        }
+        if (isNotModified(request)) {
+          notModifiedCount.incrementAndGet();
+          response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+          baseRequest.setHandled(true);
+          return;
+        }
+      }
+      response.setStatus(responseStatus);
+      response.setContentType("text/html;charset=UTF-8");
+      byte[] body = content.getBytes("UTF-8");
+      if (gzip) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzipStream = new GZIPOutputStream(compressed);
+        gzipStream.write(body);
+        gzipStream.close();
+        body = compressed.toByteArray();
+        response.setHeader("Content-Encoding", "gzip");
+      }
+      response.setContentLength(body.length);
+      write(response.getOutputStream(), body);
+      baseRequest.setHandled(true);
+    }
+
+    private boolean isNotModified(HttpServletRequest request) {
+      String ifNoneMatch = request.getHeader("If-None-Match");
+      if (ifNoneMatch != null) {
+        return ifNoneMatch.equals(etag);
+      }
+      long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+      // http dates have a resolution of seconds.
+      return lastModified > 0 && ifModifiedSince >= lastModified / 1000 * 1000;
+    }
+
+    private long nextDelayMillis() {
+      if (delaySigma <= 0) {
+        return delayMillis;
+      }
+      return Math.round(delayMillis * Math.exp(delaySigma * random.nextGaussian()));
+    }
+
+    private void write(OutputStream out, byte[] body) throws IOException {
+      int chunkBytes = dripBytes;
+      if (chunkBytes <= 0) {
+        out.write(body);
+        return;
+      }
+      for (int offset = 0; offset < body.length; offset += chunkBytes) {
+        pause(dripMillis);
+        out.write(body, offset, Math.min(chunkBytes, body.length - offset));
+        out.flush();
+      }
+    }
+
+    private void pause(long millis) {
+      if (millis <= 0) {
+        return;
+      }
+      try {
+        Thread.sleep(millis);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
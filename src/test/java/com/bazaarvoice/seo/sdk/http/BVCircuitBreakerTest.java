@@ -0,0 +1,99 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.http;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for {@link BVCircuitBreaker}.
+ */
+public class BVCircuitBreakerTest {
+
+  /**
+   * The breaker opens after consecutive failures only.
+   */
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    BVCircuitBreaker breaker = new BVCircuitBreaker(3, 1000);
+
+    assertFalse(breaker.recordFailure(0), "first failure should not open the breaker.");
+    assertFalse(breaker.recordFailure(0), "second failure should not open the breaker.");
+    breaker.recordSuccess();
+    assertFalse(breaker.recordFailure(0), "success should reset the failures.");
+    assertFalse(breaker.recordFailure(0), "success should reset the failures.");
+    assertTrue(breaker.allowRequest(0), "closed breaker should allow requests.");
+
+    assertTrue(breaker.recordFailure(100), "third consecutive failure should open the breaker.");
+    assertTrue(breaker.isOpen(100), "breaker should be open.");
+    assertFalse(breaker.allowRequest(1099), "open breaker should refuse requests.");
+  }
+
+  /**
+   * A single probe is let through after the cool down; its outcome closes
+   * or reopens the breaker.
+   */
+  @Test
+  public void testProbe() {
+    BVCircuitBreaker breaker = new BVCircuitBreaker(1, 1000);
+    breaker.recordFailure(0);
+
+    assertTrue(breaker.allowRequest(1000), "probe should be let through after the cool down.");
+    assertFalse(breaker.allowRequest(1001), "other requests should wait for the probe.");
+    assertFalse(breaker.recordFailure(1100), "failed probe should not report a new opening.");
+    assertFalse(breaker.allowRequest(2099), "failed probe should keep the breaker open.");
+
+    assertTrue(breaker.allowRequest(2100), "next probe should be let through.");
+    breaker.recordSuccess();
+    assertFalse(breaker.isOpen(2101), "successful probe should close the breaker.");
+    assertTrue(breaker.allowRequest(2101), "closed breaker should allow requests.");
+  }
+
+  /**
+   * A probe that never reports back does not keep the breaker half open.
+   */
+  @Test
+  public void testLostProbe() {
+    BVCircuitBreaker breaker = new BVCircuitBreaker(1, 1000);
+    breaker.recordFailure(0);
+
+    assertTrue(breaker.allowRequest(1000), "probe should be let through after the cool down.");
+    assertTrue(breaker.allowRequest(2000), "another probe should be let through a cool down later.");
+  }
+
+  /**
+   * Breakers are shared per host and settings.
+   */
+  @Test
+  public void testSharedInstance() {
+    assertSame(
+      BVCircuitBreaker.getInstance("shared.example.com", 5, 1000),
+      BVCircuitBreaker.getInstance("shared.example.com", 5, 1000),
+      "the same host should share a breaker."
+    );
+    assertNotSame(
+      BVCircuitBreaker.getInstance("shared.example.com", 5, 1000),
+      BVCircuitBreaker.getInstance("other.example.com", 5, 1000),
+      "each host should have its own breaker."
+    );
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.http;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for {@link BVHttpClientContentFetcher}.
+ */
+public class BVHttpClientContentFetcherTest {
+
+  private LocalSeoContentServer server;
+  private BVConfiguration bvConfiguration;
+  private BVHttpClientContentFetcher fetcher;
+
+  @BeforeMethod
+  public void doSetup() {
+    server = new LocalSeoContentServer().start();
+    bvConfiguration = server.newConfiguration();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    if (fetcher != null) {
+      fetcher.shutdown();
+    }
+    server.stop();
+  }
+
+  /**
+   * Content is fetched and connections are returned to the pool for reuse.
+   */
+  @Test
+  public void testFetchReusesConnection() {
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+
+    for (int i = 0; i < 3; i++) {
+      BVFetchResponse response = fetcher.fetch(newRequest());
+      assertEquals(
+        response.getContent(),
+        LocalSeoContentServer.DEFAULT_CONTENT,
+        "content should be fetched."
+      );
+      assertEquals(
+        response.getContentLength(),
+        (long) LocalSeoContentServer.DEFAULT_CONTENT.length(),
+        "content length should be the number of bytes read."
+      );
+    }
+
+    assertEquals(fetcher.getConnectionStats().getLeased(), 0, "no connection should be leased.");
+    assertEquals(
+      fetcher.getConnectionStats().getAvailable(),
+      1,
+      "a single kept alive connection should serve every request."
+    );
+  }
+
+  /**
+   * Gzip compressed content is decompressed.
+   */
+  @Test
+  public void testFetchGzip() {
+    server.setGzip(true);
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+
+    BVFetchResponse response = fetcher.fetch(newRequest());
+    assertEquals(
+      response.getContent(),
+      LocalSeoContentServer.DEFAULT_CONTENT,
+      "compressed content should be decompressed."
+    );
+  }
+
+  /**
+   * Error status codes are reported as unavailable content.
+   */
+  @Test
+  public void testFetchErrorStatus() {
+    server.setStatus(404);
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+
+    String errorCode = null;
+    try {
+      fetcher.fetch(newRequest());
+    } catch (BVSdkException e) {
+      errorCode = e.getMessage();
+    }
+    assertEquals(
+      errorCode,
+      "The resource to the URL or file is currently unavailable.;",
+      "unavailable message should be reported."
+    );
+    assertEquals(
+      fetcher.getConnectionStats().getAvailable(),
+      1,
+      "connection should be reusable after an error status."
+    );
+  }
+
+  /**
+   * Validators are returned with the content, and a request with current
+   * validators is answered as not modified.
+   */
+  @Test
+  public void testFetchNotModified() {
+    server.setEtag("\"v1\"");
+    server.setLastModified(System.currentTimeMillis());
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+
+    BVFetchResponse response = fetcher.fetch(newRequest());
+    assertFalse(response.isNotModified(), "first fetch should return the content.");
+    assertEquals(response.getEtag(), "\"v1\"", "ETag should be returned.");
+    assertNotNull(response.getLastModified(), "Last-Modified should be returned.");
+
+    BVFetchRequest request = newRequest();
+    request.setValidators(response.getEtag(), null);
+    BVFetchResponse revalidated = fetcher.fetch(request);
+    assertTrue(revalidated.isNotModified(), "matching ETag should not be modified.");
+    assertNull(revalidated.getContent(), "there should not be any content.");
+    assertEquals(revalidated.getContentLength(), 0L, "nothing should be downloaded.");
+
+    request = newRequest();
+    request.setValidators(null, response.getLastModified());
+    assertTrue(fetcher.fetch(request).isNotModified(), "current Last-Modified should not be modified.");
+
+    request = newRequest();
+    request.setValidators("\"v0\"", null);
+    assertEquals(
+      fetcher.fetch(request).getContent(),
+      LocalSeoContentServer.DEFAULT_CONTENT,
+      "changed content should be fetched."
+    );
+    assertEquals(server.getNotModifiedCount(), 2, "unexpected not modified count.");
+    assertEquals(
+      fetcher.getConnectionStats().getAvailable(),
+      1,
+      "connection should be reusable after a not modified response."
+    );
+  }
+
+  /**
+   * Hosts that do not answer within the socket timeout are reported with the
+   * timeout message.
+   */
+  @Test
+  public void testFetchSocketTimeout() {
+    server.setDelayMillis(500);
+    bvConfiguration.addProperty(BVClientConfig.SOCKET_TIMEOUT, "100");
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+
+    String errorMessage = null;
+    try {
+      fetcher.fetch(newRequest());
+    } catch (BVSdkException e) {
+      errorMessage = e.getMessage();
+    }
+    assertEquals(errorMessage, "Read timed out", "timeout should be reported.");
+  }
+
+  /**
+   * Without a proxy in the configuration, the proxy selector of the JVM
+   * routes the requests.
+   */
+  @Test
+  public void testJvmProxySelector() {
+    final List<URI> selected = new ArrayList<URI>();
+    ProxySelector defaultSelector = ProxySelector.getDefault();
+    ProxySelector.setDefault(new ProxySelector() {
+      public List<Proxy> select(URI uri) {
+        selected.add(uri);
+        return Collections.singletonList(Proxy.NO_PROXY);
+      }
+
+      public void connectFailed(URI uri, SocketAddress address, IOException e) {
+      }
+    });
+    try {
+      fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+      assertEquals(
+        fetcher.fetch(newRequest()).getContent(),
+        LocalSeoContentServer.DEFAULT_CONTENT,
+        "content should be fetched."
+      );
+    } finally {
+      ProxySelector.setDefault(defaultSelector);
+    }
+    assertFalse(selected.isEmpty(), "proxy selector should be consulted.");
+  }
+
+  /**
+   * An aborted fetch fails right away and releases its connection.
+   */
+  @Test
+  public void testAbortFetch() throws Exception {
+    server.setDelayMillis(2000);
+    fetcher = new BVHttpClientContentFetcher(bvConfiguration);
+    final BVFetchRequest request = newRequest();
+    new Thread(new Runnable() {
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          return;
+        }
+        request.abort();
+      }
+    }).start();
+
+    long start = System.currentTimeMillis();
+    try {
+      fetcher.fetch(request);
+      fail("an aborted fetch should fail.");
+    } catch (BVSdkException e) {
+      // expected
+    }
+    assertTrue(
+      System.currentTimeMillis() - start < 1000,
+      "an aborted fetch should not wait for the response."
+    );
+    assertTrue(request.isAborted(), "request should be aborted.");
+    assertEquals(fetcher.getConnectionStats().getLeased(), 0, "connection should be released.");
+  }
+
+  /**
+   * Fetchers with the same settings are shared.
+   */
+  @Test
+  public void testSharedInstance() {
+    BVHttpClientContentFetcher sharedFetcher =
+      BVHttpClientContentFetcher.getInstance(bvConfiguration);
+    assertSame(
+      BVHttpClientContentFetcher.getInstance(bvConfiguration),
+      sharedFetcher,
+      "fetchers with the same settings should be shared."
+    );
+
+    bvConfiguration.addProperty(BVClientConfig.HTTP_MAX_CONNECTIONS, "5");
+    assertNotSame(
+      BVHttpClientContentFetcher.getInstance(bvConfiguration),
+      sharedFetcher,
+      "fetchers with different settings should not be shared."
+    );
+  }
+
+  private BVFetchRequest newRequest() {
+    return new BVFetchRequest(
+      URI.create("http://localhost:" + server.getPort() + "/content.htm"),
+      "test-agent",
+      Charset.forName("UTF-8")
+    );
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.load;
+
+import com.bazaarvoice.seo.sdk.BVManagedUIContent;
+import com.bazaarvoice.seo.sdk.BVUIContent;
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.metrics.BVJmxMetrics;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.model.SubjectType;
+import com.bazaarvoice.seo.sdk.util.BVThreadPool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@link BVManagedUIContent} from many concurrent threads and reports
+ * throughput, latency percentiles, thread counts and the rate of timeouts,
+ * rejections and errors.
+ *
+ * Point the configuration at a {@link LocalSeoContentServer} to see how the
+ * sdk behaves when the CDN is slow, fails or drips its responses. The main
+ * method starts such a server and takes its settings from system properties,
+ * for example:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *   -Dexec.mainClass=com.bazaarvoice.seo.sdk.load.BVLoadHarness \
+ *   -Dload.threads=128 -Dload.latency.median=200 -Dload.latency.sigma=1
+ * </pre>
+ */
+public class BVLoadHarness {
+
+  private static final long SAMPLE_INTERVAL_MILLIS = 20;
+
+  private final BVConfiguration bvConfiguration;
+  private int threads = 32;
+  private long durationMillis = 10000;
+  private int subjectCount = 100000;
+  private String userAgent = "googlebot";
+  private ContentType contentType = ContentType.REVIEWS;
+
+  public BVLoadHarness(BVConfiguration bvConfiguration) {
+    this.bvConfiguration = bvConfiguration;
+  }
+
+  public BVLoadHarness setThreads(int threads) {
+    this.threads = threads;
+    return this;
+  }
+
+  public BVLoadHarness setDurationMillis(long durationMillis) {
+    this.durationMillis = durationMillis;
+    return this;
+  }
+
+  /**
+   * @param subjectCount number of distinct subject ids requested in turn,
+   * small values let the cache absorb the load.
+   * @return this.
+   */
+  public BVLoadHarness setSubjectCount(int subjectCount) {
+    this.subjectCount = subjectCount;
+    return this;
+  }
+
+  public BVLoadHarness setUserAgent(String userAgent) {
+    this.userAgent = userAgent;
+    return this;
+  }
+
+  public BVLoadHarness setContentType(ContentType contentType) {
+    this.contentType = contentType;
+    return this;
+  }
+
+  /**
+   * Runs the load until the duration elapsed and every caller returned.
+   *
+   * @return the report of the run.
+   * @throws InterruptedException if interrupted while waiting for callers.
+   */
+  public BVLoadReport run() throws InterruptedException {
+    BVJmxMetrics metrics = new BVJmxMetrics("load");
+    BVUIContent bvUIContent = new BVManagedUIContent(bvConfiguration, null, metrics);
+    ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    threadMXBean.resetPeakThreadCount();
+    int threadsBefore = threadMXBean.getThreadCount();
+
+    AtomicLong sequence = new AtomicLong();
+    long start = System.currentTimeMillis();
+    long deadline = start + durationMillis;
+    List<Caller> callers = new ArrayList<Caller>();
+    for (int i = 0; i < threads; i++) {
+      Caller caller = new Caller(bvUIContent, sequence, deadline);
+      caller.setName("bvseo-load-" + i);
+      caller.start();
+      callers.add(caller);
+    }
+
+    int maxPoolActive = 0;
+    int maxQueueDepth = 0;
+    while (isAlive(callers)) {
+      maxPoolActive = Math.max(maxPoolActive, BVThreadPool.getActiveCount(bvConfiguration));
+      maxQueueDepth = Math.max(maxQueueDepth, BVThreadPool.getQueueDepth(bvConfiguration));
+      Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+    }
+    long elapsedMillis = System.currentTimeMillis() - start;
+
+    BVLoadReport report = new BVLoadReport(threads, elapsedMillis);
+    for (Caller caller : callers) {
+      caller.join();
+      report.add(
+        caller.latencies,
+        caller.count,
+        caller.ok,
+        caller.timeouts,
+        caller.rejected,
+        caller.shortCircuited
+      );
+    }
+    report.setThreadCounts(
+      threadsBefore,
+      threadMXBean.getPeakThreadCount(),
+      maxPoolActive,
+      maxQueueDepth
+    );
+    report.setFetchCounts(metrics.getFetchCount(), metrics.getFetchErrorCount());
+    return report;
+  }
+
+  private static boolean isAlive(List<Caller> callers) {
+    for (Caller caller : callers) {
+      if (caller.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private BVParameters newParameters(long sequence) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent(userAgent);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    bvParameters.setPageURI("http://localhost/product.jsp");
+    bvParameters.setContentType(contentType);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId("load-" + sequence % subjectCount);
+    return bvParameters;
+  }
+
+  /**
+   * Calls the sdk in a loop and classifies each result by its content.
+   */
+  private class Caller extends Thread {
+
+    private final BVUIContent bvUIContent;
+    private final AtomicLong sequence;
+    private final long deadline;
+    private long[] latencies = new long[1024];
+    private int count;
+    private int ok;
+    private int timeouts;
+    private int rejected;
+    private int shortCircuited;
+
+    Caller(BVUIContent bvUIContent, AtomicLong sequence, long deadline) {
+      this.bvUIContent = bvUIContent;
+      this.sequence = sequence;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      while (System.currentTimeMillis() < deadline) {
+        BVParameters bvParameters = newParameters(sequence.getAndIncrement());
+        long start = System.nanoTime();
+        String content = bvUIContent.getContent(bvParameters);
+        long latency = (System.nanoTime() - start) / 1000000;
+
+        if (count == latencies.length) {
+          latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latency;
+        if (content.contains("timed out")) {
+          timeouts++;
+        } else if (content.contains("saturated")) {
+          rejected++;
+        } else if (content.contains("circuit breaker is open")) {
+          shortCircuited++;
+        } else if (content.contains("itemscope")) {
+          ok++;
+        }
+      }
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      server.setLatencyDistribution(
+        Long.getLong("load.latency.median", 50),
+        Double.parseDouble(System.getProperty("load.latency.sigma", "0.5"))
+      );
+      server.setErrorRate(Double.parseDouble(System.getProperty("load.error.rate", "0")));
+      server.setGzip(Boolean.getBoolean("load.gzip"));
+      server.setSlowDrip(
+        Integer.getInteger("load.drip.bytes", 0),
+        Long.getLong("load.drip.millis", 0)
+      );
+
+      BVConfiguration bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+      bvConfiguration.addProperty(
+        BVClientConfig.CIRCUIT_BREAKER_FAILURES,
+        System.getProperty("load.circuit.breaker.failures", "0")
+      );
+      BVLoadReport report = new BVLoadHarness(bvConfiguration)
+        .setThreads(Integer.getInteger("load.threads", 32))
+        .setDurationMillis(Long.getLong("load.duration", 10000))
+        .setSubjectCount(Integer.getInteger("load.subjects", 100000))
+        .setUserAgent(System.getProperty("load.user.agent", "googlebot"))
+        .run();
+      System.out.println(report);
+    } finally {
+      server.stop();
+    }
+  }
+}
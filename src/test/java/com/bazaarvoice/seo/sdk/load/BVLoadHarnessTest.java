@@ -0,0 +1,129 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.load;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+/**
+ * Short runs of the load harness against healthy and degraded local CDNs.
+ */
+public class BVLoadHarnessTest {
+
+  private LocalSeoContentServer server;
+
+  @BeforeMethod
+  public void startServer() {
+    server = new LocalSeoContentServer().start();
+  }
+
+  @AfterMethod
+  public void stopServer() {
+    server.stop();
+  }
+
+  /**
+   * Test case to check that every call returns content from a healthy CDN,
+   * including gzip responses sent in small chunks.
+   */
+  @Test
+  public void testHealthyCdn() throws Exception {
+    server.setLatencyDistribution(5, 0.5);
+    server.setGzip(true);
+    server.setSlowDrip(64, 1);
+
+    BVLoadReport report = newHarness(newConfiguration()).run();
+
+    assertTrue(report.getRequests() > 0, "there should be requests: " + report);
+    assertEquals(report.getOk(), report.getRequests(), "every call should return content: " + report);
+    assertEquals(report.getTimeouts(), 0, "there should be no timeouts: " + report);
+    assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+    assertTrue(report.getLatencyPercentile(99) <= report.getLatencyPercentile(99.9));
+    assertTrue(report.getLatencyPercentile(99.9) <= report.getMaxLatency());
+  }
+
+  /**
+   * Test case to check that calls to a CDN slower than the execution
+   * timeout are reported as timeouts and return on time.
+   */
+  @Test
+  public void testSlowCdn() throws Exception {
+    server.setDelayMillis(1000);
+    BVConfiguration bvConfiguration = newConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT_BOT, "100");
+
+    BVLoadReport report = newHarness(bvConfiguration).run();
+
+    assertEquals(report.getTimeouts(), report.getRequests(), "every call should time out: " + report);
+    assertEquals(report.getTimeoutRate(), 1.0, "timeout rate should be reported.");
+    assertTrue(report.getLatencyPercentile(99) < 1000, "calls should not wait for the CDN: " + report);
+  }
+
+  /**
+   * Test case to check that the circuit breaker turns most calls to a slow
+   * CDN into quick short circuits.
+   */
+  @Test
+  public void testSlowCdnWithCircuitBreaker() throws Exception {
+    server.setDelayMillis(1000);
+    BVConfiguration bvConfiguration = newConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT_BOT, "100");
+    bvConfiguration.addProperty(BVClientConfig.CIRCUIT_BREAKER_FAILURES, "3");
+
+    BVLoadReport report = newHarness(bvConfiguration).run();
+
+    assertTrue(report.getTimeouts() < report.getShortCircuited(), "most calls should be short circuited: " + report);
+    assertEquals(report.getErrors(), 0, "there should be no other errors: " + report);
+  }
+
+  /**
+   * Test case to check that failing CDN responses are reported as errors.
+   */
+  @Test
+  public void testFailingCdn() throws Exception {
+    server.setErrorRate(1);
+
+    BVLoadReport report = newHarness(newConfiguration()).run();
+
+    assertEquals(report.getOk(), 0, "there should be no content: " + report);
+    assertEquals(report.getErrors(), report.getRequests(), "every call should fail: " + report);
+    assertEquals(report.getFetches(), 0L, "no fetch should succeed: " + report);
+    assertTrue(report.getFetchErrors() > 0, "fetch errors should be reported: " + report);
+  }
+
+  private BVConfiguration newConfiguration() {
+    BVConfiguration bvConfiguration = server.newConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.SEO_SDK_ENABLED, "true");
+    return bvConfiguration;
+  }
+
+  private BVLoadHarness newHarness(BVConfiguration bvConfiguration) {
+    return new BVLoadHarness(bvConfiguration)
+      .setThreads(8)
+      .setDurationMillis(500);
+  }
+}
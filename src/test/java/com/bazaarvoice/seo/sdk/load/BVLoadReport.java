@@ -0,0 +1,202 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.load;
+
+import java.util.Arrays;
+
+/**
+ * Result of a {@link BVLoadHarness} run.
+ *
+ * Percentiles are exact, computed from every recorded call latency.
+ */
+public class BVLoadReport {
+
+  private final int callerThreads;
+  private final long elapsedMillis;
+  private long[] latencies = new long[0];
+  private boolean sorted = true;
+  private int requests;
+  private int ok;
+  private int timeouts;
+  private int rejected;
+  private int shortCircuited;
+  private int threadsBefore;
+  private int peakThreads;
+  private int maxPoolActive;
+  private int maxQueueDepth;
+  private long fetches;
+  private long fetchErrors;
+
+  BVLoadReport(int callerThreads, long elapsedMillis) {
+    this.callerThreads = callerThreads;
+    this.elapsedMillis = elapsedMillis;
+  }
+
+  void add(
+    long[] callerLatencies,
+    int count,
+    int ok,
+    int timeouts,
+    int rejected,
+    int shortCircuited
+  ) {
+    long[] merged = Arrays.copyOf(latencies, requests + count);
+    System.arraycopy(callerLatencies, 0, merged, requests, count);
+    this.latencies = merged;
+    this.sorted = false;
+    this.requests += count;
+    this.ok += ok;
+    this.timeouts += timeouts;
+    this.rejected += rejected;
+    this.shortCircuited += shortCircuited;
+  }
+
+  void setThreadCounts(int threadsBefore, int peakThreads, int maxPoolActive, int maxQueueDepth) {
+    this.threadsBefore = threadsBefore;
+    this.peakThreads = peakThreads;
+    this.maxPoolActive = maxPoolActive;
+    this.maxQueueDepth = maxQueueDepth;
+  }
+
+  void setFetchCounts(long fetches, long fetchErrors) {
+    this.fetches = fetches;
+    this.fetchErrors = fetchErrors;
+  }
+
+  public int getRequests() {
+    return requests;
+  }
+
+  public double getThroughput() {
+    return elapsedMillis == 0 ? 0 : requests * 1000.0 / elapsedMillis;
+  }
+
+  /**
+   * @param percentile percentile between 0 and 100.
+   * @return call latency in milliseconds at the percentile, 0 if there were
+   * no calls.
+   */
+  public long getLatencyPercentile(double percentile) {
+    if (requests == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(requests * percentile / 100);
+    return getSortedLatencies()[Math.max(0, rank - 1)];
+  }
+
+  public long getMaxLatency() {
+    return requests == 0 ? 0 : getSortedLatencies()[requests - 1];
+  }
+
+  private long[] getSortedLatencies() {
+    if (!sorted) {
+      Arrays.sort(latencies);
+      sorted = true;
+    }
+    return latencies;
+  }
+
+  /**
+   * @return calls that returned seo content.
+   */
+  public int getOk() {
+    return ok;
+  }
+
+  public int getTimeouts() {
+    return timeouts;
+  }
+
+  /**
+   * @return calls refused because the sdk thread pool was saturated.
+   */
+  public int getRejected() {
+    return rejected;
+  }
+
+  /**
+   * @return calls skipped because the circuit breaker of the CDN was open.
+   */
+  public int getShortCircuited() {
+    return shortCircuited;
+  }
+
+  /**
+   * @return calls that returned neither content, a timeout, a rejection nor
+   * a short circuit.
+   */
+  public int getErrors() {
+    return requests - ok - timeouts - rejected - shortCircuited;
+  }
+
+  public double getTimeoutRate() {
+    return rate(timeouts);
+  }
+
+  public double getErrorRate() {
+    return rate(getErrors());
+  }
+
+  public int getPeakThreads() {
+    return peakThreads;
+  }
+
+  public int getMaxPoolActive() {
+    return maxPoolActive;
+  }
+
+  public int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /**
+   * @return successful fetches from the CDN.
+   */
+  public long getFetches() {
+    return fetches;
+  }
+
+  public long getFetchErrors() {
+    return fetchErrors;
+  }
+
+  private double rate(int count) {
+    return requests == 0 ? 0 : (double) count / requests;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "callers: %d, elapsed: %dms, requests: %d, throughput: %.1f/s%n" +
+      "latency p50: %dms, p99: %dms, p999: %dms, max: %dms%n" +
+      "ok: %d, timeouts: %d (%.2f%%), rejected: %d, short circuited: %d, errors: %d (%.2f%%)%n" +
+      "successful fetches: %d, fetch errors: %d%n" +
+      "jvm threads before: %d, peak: %d, pool active max: %d, queue depth max: %d",
+      callerThreads, elapsedMillis, requests, getThroughput(),
+      getLatencyPercentile(50), getLatencyPercentile(99),
+      getLatencyPercentile(99.9), getMaxLatency(),
+      ok, timeouts, getTimeoutRate() * 100, rejected, shortCircuited,
+      getErrors(), getErrorRate() * 100,
+      fetches, fetchErrors,
+      threadsBefore, peakThreads, maxPoolActive, maxQueueDepth
+    );
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+
+package com.bazaarvoice.seo.sdk.metrics;
+
+import com.bazaarvoice.seo.sdk.BVManagedUIContent;
+import com.bazaarvoice.seo.sdk.BVUIContent;
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.exception.BVSdkException;
+import com.bazaarvoice.seo.sdk.helpers.LocalSeoContentServer;
+import com.bazaarvoice.seo.sdk.model.BVParameters;
+import com.bazaarvoice.seo.sdk.model.ContentType;
+import com.bazaarvoice.seo.sdk.model.SubjectType;
+import org.testng.annotations.Test;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVJmxMetrics.
+ */
+public class BVJmxMetricsTest {
+
+  @Test
+  public void testHistogram() {
+    BVLatencyHistogram histogram = new BVLatencyHistogram();
+    assertEquals(histogram.getPercentile(50), 0, "empty histogram percentile");
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    assertEquals(histogram.getCount(), 100);
+    assertEquals(histogram.getMax(), 100);
+    assertEquals(histogram.getPercentile(50), 50, "p50 should be the 50ms bucket");
+    assertEquals(histogram.getPercentile(95), 100, "p95 should be the 100ms bucket");
+    assertEquals(histogram.getMean(), 50.5, 0.001);
+
+    histogram.record(45000);
+    assertEquals(histogram.getPercentile(100), 45000, "overflow bucket should report the max");
+  }
+
+  @Test
+  public void testRecordedEvents() throws Exception {
+    LocalSeoContentServer server = new LocalSeoContentServer().start();
+    try {
+      BVConfiguration bvConfiguration = server.newConfiguration();
+      bvConfiguration.addProperty(BVClientConfig.CACHE_TTL, "60000");
+      BVJmxMetrics metrics = new BVJmxMetrics("test-events");
+      BVUIContent bvUIContent =
+        new BVManagedUIContent(bvConfiguration, null, metrics);
+
+      bvUIContent.getAggregateRating(newParameters("metrics", "googlebot"));
+      bvUIContent.getReviews(newParameters("metrics", "googlebot"));
+
+      assertEquals(metrics.getFetchCount(), 1, "content should be fetched once");
+      assertEquals(
+        metrics.getBytesDownloaded(),
+        LocalSeoContentServer.DEFAULT_CONTENT.getBytes("UTF-8").length,
+        "downloaded bytes"
+      );
+      assertEquals(metrics.getCacheMissCount(), 1, "cache misses");
+      assertEquals(metrics.getCacheHitCount(), 1, "cache hits");
+      assertEquals(metrics.getCacheHitRatio(), 0.5, 0.001);
+      assertEquals(metrics.getFetchLatencies(ContentType.REVIEWS, true).getCount(), 1);
+      assertNull(metrics.getFetchLatencies(ContentType.REVIEWS, false));
+      assertEquals(metrics.getCallLatencySummary().length, 2, "one line per method");
+
+      server.setStatus(500);
+      bvUIContent.getContent(newParameters("metrics-error", "googlebot"));
+      assertEquals(metrics.getFetchErrorCount(), 1, "failed fetches");
+
+      server.setStatus(200);
+      server.setDelayMillis(1000);
+      bvConfiguration.addProperty(BVClientConfig.EXECUTION_TIMEOUT, "100");
+      bvUIContent.getContent(newParameters("metrics-timeout", "Mozilla"));
+      assertEquals(metrics.getTimeoutCount(), 1, "human timeouts");
+      assertEquals(metrics.getBotTimeoutCount(), 0, "bot timeouts");
+
+      metrics.reset();
+      assertEquals(metrics.getFetchCount(), 0, "reset should clear the metrics");
+    } finally {
+      server.stop();
+    }
+  }
+
+  @Test
+  public void testRegister() throws Exception {
+    BVJmxMetrics metrics = new BVJmxMetrics("test-register").register();
+    try {
+      metrics.recordCacheLookup(true);
+      MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+      ObjectName objectName = new ObjectName(
+        "com.bazaarvoice.seo.sdk:type=BVMetrics,name=\"test-register\""
+      );
+      assertEquals(mBeanServer.getAttribute(objectName, "CacheHitCount"), 1L);
+    } finally {
+      metrics.unregister();
+    }
+  }
+
+  /**
+   * A failed registration keeps the JMX error as its cause.
+   */
+  @Test
+  public void testRegisterTwice() {
+    BVJmxMetrics metrics = new BVJmxMetrics("test-register-twice").register();
+    try {
+      new BVJmxMetrics("test-register-twice").register();
+      fail("second registration should fail");
+    } catch (BVSdkException e) {
+      assertEquals(e.getErrorCode(), "ERR0028", "error code");
+      assertTrue(
+        e.getCause() instanceof InstanceAlreadyExistsException,
+        "cause should be kept"
+      );
+    } finally {
+      metrics.unregister();
+    }
+  }
+
+  private BVParameters newParameters(String subjectId, String userAgent) {
+    BVParameters bvParameters = new BVParameters();
+    bvParameters.setUserAgent(userAgent);
+    bvParameters.setBaseURI("http://localhost/product.jsp");
+    bvParameters.setPageURI("http://localhost/product.jsp");
+    bvParameters.setContentType(ContentType.REVIEWS);
+    bvParameters.setSubjectType(SubjectType.PRODUCT);
+    bvParameters.setSubjectId(subjectId);
+    return bvParameters;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.url;
+
+import com.bazaarvoice.seo.sdk.util.BVConstant;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.utils.URLEncodedUtils;
+import org.testng.annotations.Test;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVStateParser.
+ *
+ * Results are compared with the regex and URLEncodedUtils based parsing the
+ * scanner replaces.
+ */
+public class BVStateParserTest {
+
+  private static final Pattern BVSTATE_PATTERN =
+    Pattern.compile(BVConstant.BVSTATE_REGEX);
+  private static final String[] FRAGMENTS = {
+    "bvstate=", "bvstate", "pg", "ct", "st", "id", ":", "/", "?", "&", "%",
+    ";", "+", "=", "\"", "\\", " ", "r", "2", "q", "p", "xx"
+  };
+
+  /**
+   * Test case for typical bvstate values.
+   */
+  @Test
+  public void testParse() {
+    BVStateParser bvState = BVStateParser.parse("bvstate=pg:2/ct:r/st:p/id:my+product");
+    assertEquals(bvState.getPageNumber(), "2", "page number should be parsed.");
+    assertEquals(bvState.getContentType(), "r", "content type should be parsed.");
+    assertEquals(bvState.getSubjectType(), "p", "subject type should be parsed.");
+    assertEquals(bvState.getSubjectId(), "my product", "subject id should be decoded.");
+
+    bvState = BVStateParser.parse("foo=bar&bvstate=ct:q/pg:&x=y");
+    assertEquals(bvState.getContentType(), "q", "content type should be parsed.");
+    assertEquals(bvState.getPageNumber(), "", "empty page number should be parsed.");
+    assertNull(bvState.getSubjectId(), "subject id should be absent.");
+
+    assertNull(BVStateParser.parse("bvstate=pg2&bvstate"), "invalid bvstate should be ignored.");
+    assertNull(BVStateParser.parse(null), "null should be ignored.");
+  }
+
+  /**
+   * Test case comparing random inputs with the regex based parsing.
+   */
+  @Test
+  public void testSameAsRegex() {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      StringBuilder input = new StringBuilder();
+      int fragments = random.nextInt(12);
+      for (int j = 0; j < fragments; j++) {
+        input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+      }
+      assertSameAsRegex(input.toString());
+    }
+  }
+
+  private void assertSameAsRegex(String input) {
+    String[] expected = parseWithRegex(input);
+    BVStateParser bvState = BVStateParser.parse(input);
+    if (expected == null) {
+      assertNull(bvState, "no bvstate expected in " + input);
+      return;
+    }
+
+    assertNotNull(bvState, "bvstate expected in " + input);
+    assertEquals(bvState.getPageNumber(), expected[0], "page number of " + input);
+    assertEquals(bvState.getContentType(), expected[1], "content type of " + input);
+    assertEquals(bvState.getSubjectType(), expected[2], "subject type of " + input);
+    assertEquals(bvState.getSubjectId(), expected[3], "subject id of " + input);
+  }
+
+  private String[] parseWithRegex(String input) {
+    Matcher matcher = BVSTATE_PATTERN.matcher(input);
+    if (!matcher.find()) {
+      return null;
+    }
+
+    String[] values = new String[4];
+    List<NameValuePair> parameters = URLEncodedUtils.parse(
+      matcher.group(),
+      Charset.forName("UTF-8")
+    );
+    for (NameValuePair parameter : parameters) {
+      if (parameter.getName().equals("bvstate") && parameter.getValue() != null) {
+        StringTokenizer tokens = new StringTokenizer(parameter.getValue(), "/");
+        while (tokens.hasMoreTokens()) {
+          String token = tokens.nextToken();
+          String value = "";
+          if (token.contains(":") && !token.endsWith(":")) {
+            value = token.split(":")[1];
+          }
+          if (token.startsWith("pg")) {
+            values[0] = value;
+          } else if (token.startsWith("ct")) {
+            values[1] = value;
+          } else if (token.startsWith("st")) {
+            values[2] = value;
+          } else if (token.startsWith("id")) {
+            values[3] = value;
+          }
+        }
+      }
+    }
+    return values;
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.util;
+
+import org.testng.annotations.Test;
+
+import java.util.regex.Pattern;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVCrawlerAgentMatcher.
+ */
+public class BVCrawlerAgentMatcherTest {
+
+  private static final String[] USER_AGENTS = {
+    "",
+    "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+    "Mozilla/5.0 (compatible; bingbot/2.0; +http://www.bing.com/bingbot.htm)",
+    "Mozilla/5.0 (compatible; YandexBot/3.0)",
+    "msnbot/2.0b",
+    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 Chrome/70.0",
+    "Mozilla/5.0 (compatible; Yahoo! Slurp)",
+    "teom",
+    "abce",
+    "xxabcdxx",
+    "\u00e9\u00e8teoma\u00e0",
+    "GOOGLE"
+  };
+
+  /**
+   * Test case for the literal automaton against the regular expression.
+   */
+  @Test
+  public void testLiteralPatterns() {
+    assertSameAsRegex(BVConstant.CRAWLER_AGENT_PATTERN);
+    assertSameAsRegex("abcd|bc");
+    assertSameAsRegex("abcd|bce");
+    assertSameAsRegex("Slurp|YANDEX");
+    assertSameAsRegex("teoma||bingbot");
+  }
+
+  /**
+   * Test case for patterns falling back to the regular expression.
+   */
+  @Test
+  public void testRegexPatterns() {
+    assertSameAsRegex("bot/[0-9]+");
+    assertSameAsRegex("yahoo!? slurp|msn.*");
+  }
+
+  /**
+   * Test case for repeated and null user agents.
+   */
+  @Test
+  public void testRepeatedVerdicts() {
+    BVCrawlerAgentMatcher matcher = new BVCrawlerAgentMatcher("bingbot");
+    for (int i = 0; i < 3; i++) {
+      assertTrue(matcher.isCrawler(USER_AGENTS[2]), "bingbot should be a crawler.");
+      assertFalse(matcher.isCrawler(USER_AGENTS[5]), "chrome should not be a crawler.");
+    }
+    assertFalse(matcher.isCrawler(null), "null should not be a crawler.");
+  }
+
+  private void assertSameAsRegex(String crawlerAgentPattern) {
+    BVCrawlerAgentMatcher matcher = new BVCrawlerAgentMatcher(crawlerAgentPattern);
+    Pattern pattern = Pattern.compile(
+      ".*(" + crawlerAgentPattern + ").*",
+      Pattern.CASE_INSENSITIVE
+    );
+    for (String userAgent : USER_AGENTS) {
+      assertEquals(
+        matcher.isCrawler(userAgent),
+        pattern.matcher(userAgent).matches() ||
+          userAgent.toLowerCase().contains("google"),
+        crawlerAgentPattern + " should match " + userAgent + " like the regex."
+      );
+    }
+  }
+}
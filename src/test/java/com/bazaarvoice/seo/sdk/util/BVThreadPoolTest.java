@@ -0,0 +1,138 @@
+/*
+ * ===========================================================================
+ * Copyright 2014 Bazaarvoice, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ===========================================================================
+ *
+ */
+
+package com.bazaarvoice.seo.sdk.util;
+
+import com.bazaarvoice.seo.sdk.config.BVClientConfig;
+import com.bazaarvoice.seo.sdk.config.BVConfiguration;
+import com.bazaarvoice.seo.sdk.config.BVSdkConfiguration;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.testng.Assert.*;
+
+/**
+ * Test class for BVThreadPool.
+ */
+public class BVThreadPoolTest {
+
+  /**
+   * Test case for the bounds, rejection and metrics of a pool.
+   */
+  @Test
+  public void testBoundedPool() throws Exception {
+    BVConfiguration bvConfiguration = newConfiguration("1", "1", "1");
+    ThreadPoolExecutor executorService =
+      BVThreadPool.getThreadPoolExecutor(bvConfiguration);
+    assertEquals(executorService.getMaximumPoolSize(), 1, "max pool size should be configured.");
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    Runnable blockingTask = new Runnable() {
+      public void run() {
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    };
+
+    try {
+      executorService.execute(blockingTask);
+      started.await();
+      executorService.execute(blockingTask);
+      assertEquals(BVThreadPool.getActiveCount(bvConfiguration), 1, "one task should be running.");
+      assertEquals(BVThreadPool.getQueueDepth(bvConfiguration), 1, "one task should be queued.");
+
+      try {
+        executorService.execute(blockingTask);
+        fail("a saturated pool should reject tasks.");
+      } catch (RejectedExecutionException e) {
+        // expected
+      }
+    } finally {
+      release.countDown();
+    }
+  }
+
+  /**
+   * Test case for the thread naming of a pool.
+   */
+  @Test
+  public void testThreadFactory() throws Exception {
+    final Thread[] worker = new Thread[1];
+    BVThreadPool.getThreadPoolExecutor(newConfiguration("2", "2", "2")).submit(
+      new Runnable() {
+        public void run() {
+          worker[0] = Thread.currentThread();
+        }
+      }
+    ).get();
+
+    assertTrue(worker[0].getName().startsWith("bvseo-sdk-worker-"), "worker thread should be named.");
+    assertTrue(worker[0].isDaemon(), "worker thread should be a daemon thread.");
+  }
+
+  /**
+   * The default pool starts all its threads before queueing loads.
+   */
+  @Test
+  public void testDefaultCoreSize() {
+    ThreadPoolExecutor executorService = BVThreadPool.getThreadPoolExecutor();
+    assertEquals(
+      executorService.getCorePoolSize(),
+      executorService.getMaximumPoolSize(),
+      "core size should default to the maximum size."
+    );
+  }
+
+  /**
+   * Test case for sharing pools with the same settings.
+   */
+  @Test
+  public void testSharedInstance() {
+    assertSame(
+      BVThreadPool.getThreadPoolExecutor(newConfiguration("3", "3", "3")),
+      BVThreadPool.getThreadPoolExecutor(newConfiguration("3", "3", "3")),
+      "pools with the same settings should be shared."
+    );
+    assertSame(
+      BVThreadPool.getThreadPoolExecutor(new BVSdkConfiguration()),
+      BVThreadPool.getExecutorService(),
+      "default settings should share the default pool."
+    );
+  }
+
+  private BVConfiguration newConfiguration(
+    String coreSize,
+    String maxSize,
+    String queueSize
+  ) {
+    BVConfiguration bvConfiguration = new BVSdkConfiguration();
+    bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_CORE_SIZE, coreSize);
+    bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_MAX_SIZE, maxSize);
+    bvConfiguration.addProperty(BVClientConfig.THREAD_POOL_QUEUE_SIZE, queueSize);
+    return bvConfiguration;
+  }
+}
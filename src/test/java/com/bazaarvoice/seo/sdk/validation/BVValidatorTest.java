@@ -79,4 +79,23 @@ public class BVValidatorTest {
 
   }
 
+  /**
+   * Validation without a snapshot takes one of the configuration.
+   */
+  @Test
+  public void testValidationNullSnapshot() {
+    BVConfiguration bvConfig = new BVSdkConfiguration();
+    BVParameters bvParams = new BVParameters();
+
+    String errorMessage = new BVDefaultValidator().validate(
+      bvConfig,
+      null,
+      bvParams
+    );
+    assertTrue(
+      errorMessage.contains("CLOUD_KEY is not configured in BVConfiguration.;"),
+      "Error Messages are different."
+    );
+  }
+
 }